@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.index;
+
+import static org.apache.solr.bench.Docs.docs;
+import static org.apache.solr.bench.generators.SourceDSL.integers;
+import static org.apache.solr.bench.generators.SourceDSL.longs;
+import static org.apache.solr.bench.generators.SourceDSL.strings;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.bench.CircularIterator;
+import org.apache.solr.bench.Docs;
+import org.apache.solr.bench.MiniClusterState;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.request.GenericSolrRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Indexes batches of JSON documents, either as a JSON array of Solr documents to /update, which is
+ * parsed straight into documents, or as JSON lines to /update/json/docs, which goes through the
+ * record reader. Run on two revisions to compare the JSON loaders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+@Warmup(time = 15, iterations = 2)
+@Measurement(time = 30, iterations = 4)
+@Fork(value = 1)
+public class JsonIndexing {
+
+  static final String COLLECTION = "c1";
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"/update", "/update/json/docs"})
+    String path;
+
+    @Param({"1000"})
+    int batchSize;
+
+    @Param({"50"})
+    int batches;
+
+    private Iterator<byte[]> batchIterator;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void doSetup(MiniClusterState.MiniClusterBenchState miniClusterState) throws Exception {
+      Docs docs =
+          docs()
+              .field("id", integers().incrementing())
+              .field("text", strings().basicLatinAlphabet().multi(2).ofLengthBetween(20, 32))
+              .field("int1_i", integers().all())
+              .field("int2_i", integers().all())
+              .field("long1_l", longs().all());
+      docs.preGenerate(batchSize * batches);
+      Iterator<SolrInputDocument> docIterator = docs.generatedDocsIterator();
+
+      boolean jsonLines = path.endsWith("/docs");
+      List<byte[]> jsonBatches = new ArrayList<>(batches);
+      for (int i = 0; i < batches; i++) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        for (int j = 0; j < batchSize; j++) {
+          Map<String, Object> doc = new LinkedHashMap<>();
+          for (SolrInputField field : docIterator.next()) {
+            doc.put(field.getName(), field.getValue());
+          }
+          if (jsonLines) {
+            out.write(Utils.toJSON(doc));
+            out.write('\n');
+          } else {
+            batch.add(doc);
+          }
+        }
+        jsonBatches.add(jsonLines ? out.toByteArray() : Utils.toJSON(batch));
+      }
+      batchIterator = new CircularIterator<>(jsonBatches);
+
+      miniClusterState.startMiniCluster(1);
+      miniClusterState.createCollection(COLLECTION, 1, 1);
+      baseUrl = miniClusterState.nodes.get(0);
+    }
+
+    private synchronized byte[] nextBatch() {
+      return batchIterator.next();
+    }
+  }
+
+  @Benchmark
+  public Object indexBatch(MiniClusterState.MiniClusterBenchState miniClusterState, BenchState state)
+      throws Exception {
+    GenericSolrRequest request =
+        new GenericSolrRequest(SolrRequest.METHOD.POST, state.path)
+            .withContent(state.nextBatch(), "application/json");
+    request.setRequiresCollection(true);
+    return miniClusterState.client.requestWithBaseUrl(state.baseUrl, COLLECTION, request);
+  }
+}
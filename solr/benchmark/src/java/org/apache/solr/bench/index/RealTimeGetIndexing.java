@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.index;
+
+import static org.apache.solr.bench.Docs.docs;
+import static org.apache.solr.bench.generators.SourceDSL.integers;
+import static org.apache.solr.bench.generators.SourceDSL.longs;
+import static org.apache.solr.bench.generators.SourceDSL.strings;
+
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.solr.bench.Docs;
+import org.apache.solr.bench.MiniClusterState;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Concurrent adds and real-time gets against a single core, so that both go through the update
+ * log at the same time: adds log documents to the tlog and its id map, while real-time gets look
+ * up the ids that were just added in that map. Soft commits rotate the maps while this happens.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(time = 10, iterations = 2)
+@Measurement(time = 30, iterations = 4)
+@Fork(value = 1)
+public class RealTimeGetIndexing {
+
+  static final String COLLECTION = "c1";
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    /** Soft commit interval in ms, which rotates the update log's id maps. */
+    @Param({"1000"})
+    int autoSoftCommitMs;
+
+    @Param({"50000"})
+    int preGenerate;
+
+    /** Ids that were added, real-time gets pick among the most recent of these. */
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    private Iterator<SolrInputDocument> docIterator;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void doSetup(MiniClusterState.MiniClusterBenchState miniClusterState) throws Exception {
+      Docs docs =
+          docs()
+              .field("text", strings().basicLatinAlphabet().multi(2).ofLengthBetween(20, 32))
+              .field("int1_i", integers().all())
+              .field("long1_l", longs().all());
+      docs.preGenerate(preGenerate);
+      docIterator = docs.generatedDocsCircularIterator();
+
+      System.setProperty("autoSoftCommit.maxTime", Integer.toString(autoSoftCommitMs));
+      miniClusterState.startMiniCluster(1);
+      miniClusterState.createCollection(COLLECTION, 1, 1);
+      baseUrl = miniClusterState.nodes.get(0);
+    }
+
+    private synchronized SolrInputDocument nextDoc() {
+      SolrInputDocument doc = docIterator.next().deepCopy();
+      doc.setField("id", Integer.toString(lastId.incrementAndGet()));
+      return doc;
+    }
+
+    private String recentId() {
+      int last = Math.max(1, lastId.get());
+      return Integer.toString(Math.max(1, last - ThreadLocalRandom.current().nextInt(1000)));
+    }
+  }
+
+  @Benchmark
+  @Group("addAndGet")
+  @GroupThreads(4)
+  public Object add(MiniClusterState.MiniClusterBenchState miniClusterState, BenchState state)
+      throws Exception {
+    UpdateRequest updateRequest = new UpdateRequest();
+    updateRequest.add(state.nextDoc());
+    return miniClusterState.client.requestWithBaseUrl(state.baseUrl, COLLECTION, updateRequest);
+  }
+
+  @Benchmark
+  @Group("addAndGet")
+  @GroupThreads(12)
+  public Object realTimeGet(
+      MiniClusterState.MiniClusterBenchState miniClusterState, BenchState state) throws Exception {
+    QueryRequest request = new QueryRequest(MiniClusterState.params("id", state.recentId()));
+    request.setPath("/get");
+    return miniClusterState.client.requestWithBaseUrl(state.baseUrl, COLLECTION, request);
+  }
+}
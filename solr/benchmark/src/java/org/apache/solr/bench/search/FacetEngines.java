@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import static org.apache.solr.bench.Docs.docs;
+import static org.apache.solr.bench.generators.SourceDSL.integers;
+import static org.apache.solr.bench.generators.SourceDSL.lists;
+import static org.apache.solr.bench.generators.SourceDSL.strings;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.bench.Docs;
+import org.apache.solr.bench.MiniClusterState;
+import org.apache.solr.bench.generators.SolrGen;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Compares the faceting implementations against each other on the same index, across field
+ * cardinality, single vs multi-valued fields and the fraction of documents matching the query.
+ *
+ * <p>Each <code>engine</code> forces one code path:
+ *
+ * <ul>
+ *   <li><code>json_dv</code>, <code>json_uif</code>, <code>json_dvhash</code>, <code>json_enum
+ *       </code>: a json.facet terms facet with the corresponding <code>method</code> (<code>
+ *       FacetFieldProcessorByArrayDV</code>, <code>FacetFieldProcessorByArrayUIF</code>, <code>
+ *       FacetFieldProcessorByHashDV</code>, <code>FacetFieldProcessorByEnumTermsStream</code>).
+ *       Note that json.facet falls back to the array based processor for multi-valued fields
+ *       with <code>dvhash</code>, and to <code>DV</code> (over an uninverted reader) for
+ *       single-valued fields with <code>uif</code>.
+ *   <li><code>fc</code>, <code>fcs</code>, <code>uif</code>, <code>enum</code>: a legacy <code>
+ *       facet.field</code> with the corresponding <code>facet.method</code> (<code>DocValuesFacets
+ *       </code>, per-segment <code>DocValuesFacets</code>, <code>UnInvertedField</code> and term
+ *       enumeration in <code>SimpleFacets</code>).
+ *   <li><code>pivot</code>: a legacy <code>facet.pivot</code> of the facet field by a low
+ *       cardinality field (<code>PivotFacetProcessor</code>).
+ * </ul>
+ *
+ * The uif engines facet a field without docValues that is uninverted on first use; the first
+ * request of a trial pays for the uninversion, which is absorbed by the warmup iterations.
+ *
+ * <p>Allocation per engine is reported by running with the gc profiler, e.g. <code>
+ * ./jmh.sh -prof gc FacetEngines -p engine=json_dv,fc -p multiValued=true</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Warmup(time = 5, iterations = 3)
+@Measurement(time = 10, iterations = 5)
+@Fork(value = 1)
+@Timeout(time = 60)
+public class FacetEngines {
+
+  static final String COLLECTION = "c1";
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"100000"})
+    public int docCount;
+
+    @Param("1")
+    int nodeCount;
+
+    @Param("1")
+    int numShards;
+
+    @Param({
+      "json_dv",
+      "json_uif",
+      "json_dvhash",
+      "json_enum",
+      "fc",
+      "fcs",
+      "uif",
+      "enum",
+      "pivot"
+    })
+    String engine;
+
+    /** The maximum number of distinct values of the faceted field. */
+    @Param({"100", "10000"})
+    int cardinality;
+
+    @Param({"false", "true"})
+    boolean multiValued;
+
+    /** The percentage of documents matching the query. */
+    @Param({"1", "50", "100"})
+    int density;
+
+    private String baseUrl;
+    private QueryRequest request;
+
+    @Setup(Level.Trial)
+    public void setup(
+        BenchmarkParams benchmarkParams, MiniClusterState.MiniClusterBenchState miniClusterState)
+        throws Exception {
+
+      miniClusterState.startMiniCluster(nodeCount);
+      miniClusterState.createCollection(COLLECTION, numShards, 1);
+
+      SolrGen<String> values =
+          strings().basicLatinAlphabet().maxCardinality(cardinality).ofLengthBetween(4, 16);
+      Docs docs =
+          docs()
+              .field("id", integers().incrementing())
+              .field("density_i_dv", integers().between(0, 99))
+              .field("pivot_s", strings().alpha().maxCardinality(10).ofLengthBetween(4, 8));
+      if (multiValued) {
+        docs.field("facet_ss", lists().of(values).ofSizeBetween(1, 8))
+            .field("facet_ss_uif", lists().of(values).ofSizeBetween(1, 8));
+      } else {
+        docs.field("facet_s", values).field("facet_s_uif", values);
+      }
+
+      miniClusterState.index(COLLECTION, docs, docCount);
+      miniClusterState.forceMerge(COLLECTION, 10);
+
+      String field = multiValued ? "facet_ss" : "facet_s";
+      if (engine.endsWith("uif")) {
+        field = field + "_uif";
+      }
+
+      ModifiableSolrParams params =
+          MiniClusterState.params(
+              "q", "density_i_dv:[0 TO " + (density - 1) + "]", "rows", "0", "facet", "true");
+      switch (engine) {
+        case "json_dv", "json_uif", "json_dvhash", "json_enum" -> MiniClusterState.params(
+            params,
+            "json.facet",
+            "{f:{type:terms, field:'"
+                + field
+                + "', limit:10, method:'"
+                + engine.substring("json_".length())
+                + "'}}");
+        case "fc", "fcs", "uif", "enum" -> MiniClusterState.params(
+            params, "facet.field", field, "facet.method", engine, "facet.limit", "10");
+        case "pivot" -> MiniClusterState.params(
+            params, "facet.pivot", field + ",pivot_s", "facet.limit", "10");
+        default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+      }
+
+      request = new QueryRequest(params);
+      baseUrl = miniClusterState.nodes.get(0);
+    }
+  }
+
+  @Benchmark
+  public Object facet(MiniClusterState.MiniClusterBenchState miniClusterState, BenchState state)
+      throws Exception {
+    NamedList<Object> result =
+        miniClusterState
+            .client
+            .requestWithBaseUrl(state.baseUrl, COLLECTION, state.request)
+            .getResponse();
+    return result;
+  }
+}
@@ -300,6 +300,11 @@ public class SolrConfig implements MapSerializable {
       queryResultMaxDocsCached =
           get("query").get("queryResultMaxDocsCached").intVal(Integer.MAX_VALUE);
       enableLazyFieldLoading = get("query").get("enableLazyFieldLoading").boolVal(false);
+      ConfigNode segmentFilterCache = get("query").get("segmentFilterCache");
+      segmentFilterCacheSize =
+          segmentFilterCache.exists() ? segmentFilterCache.intAttr("size", 10000) : 0;
+      segmentFilterCacheMaxRamMB = segmentFilterCache.intAttr("maxRamMB", 256);
+      uninvertPerSegment = get("query").get("uninvertPerSegment").boolVal(false);
 
       filterCacheConfig =
           CacheConfig.getConfig(this, get("query").get("filterCache"), "query/filterCache");
@@ -677,6 +682,22 @@ public class SolrConfig implements MapSerializable {
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
 
+  /**
+   * Max number of (filter, segment) entries of the per-segment filter cache, 0 if disabled. When
+   * enabled, filters are computed segment by segment before being put in the filterCache, and the
+   * matches of each segment are kept across searchers for as long as the segment lives.
+   */
+  public final int segmentFilterCacheSize;
+
+  public final int segmentFilterCacheMaxRamMB;
+
+  /**
+   * If true, faceting on multi-valued fields without docValues uninverts them segment by segment
+   * instead of building a top-level UnInvertedField, so that only new segments are uninverted after
+   * a commit.
+   */
+  public final boolean uninvertPerSegment;
+
   // IndexConfig settings
   public final SolrIndexConfig indexConfig;
 
@@ -977,6 +998,12 @@ public class SolrConfig implements MapSerializable {
     m.put("queryResultWindowSize", queryResultWindowSize);
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
+    if (segmentFilterCacheSize > 0) {
+      m.put(
+          "segmentFilterCache",
+          Map.of("size", segmentFilterCacheSize, "maxRamMB", segmentFilterCacheMaxRamMB));
+    }
+    m.put("uninvertPerSegment", uninvertPerSegment);
     m.put("maxBooleanClauses", booleanQueryMaxClauseCount);
     m.put(MIN_PREFIX_QUERY_TERM_LENGTH, prefixQueryMinPrefixLength);
 
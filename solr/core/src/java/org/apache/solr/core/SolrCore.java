@@ -73,6 +73,7 @@ import org.apache.lucene.index.IndexDeletionPolicy;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
@@ -209,6 +210,8 @@ public class SolrCore implements SolrInfoBean, Closeable {
   public final UUID uniqueId = UUID.randomUUID();
 
   private final CancellableQueryTracker cancellableQueryTracker = new CancellableQueryTracker();
+  // per-segment filter matches, shared by all the searchers of this core; maybe null
+  private final LRUQueryCache segmentFilterCache;
 
   private boolean isReloaded = false;
 
@@ -1073,6 +1076,7 @@ public class SolrCore implements SolrInfoBean, Closeable {
       this.coreProvider = new Provider(coreContainer, getName(), uniqueId);
 
       this.solrConfig = configSet.getSolrConfig();
+      this.segmentFilterCache = initSegmentFilterCache(solrConfig);
       this.resourceLoader = configSet.getSolrConfig().getResourceLoader();
       this.resourceLoader.setSolrCore(this);
       IndexSchema schema = configSet.getIndexSchema();
@@ -1109,7 +1113,7 @@ public class SolrCore implements SolrInfoBean, Closeable {
       // init pluggable circuit breakers, after metrics because some circuit breakers use metrics
       initPlugins(null, CircuitBreaker.class);
 
-      SolrFieldCacheBean solrFieldCacheBean = new SolrFieldCacheBean();
+      SolrFieldCacheBean solrFieldCacheBean = new SolrFieldCacheBean(this);
       // this is registered at the CONTAINER level because it's not core-specific - for now we
       // also register it here for back-compat
       solrFieldCacheBean.initializeMetrics(solrMetricsContext, "core");
@@ -1353,6 +1357,33 @@ public class SolrCore implements SolrInfoBean, Closeable {
           Category.CORE.toString());
     }
 
+    if (segmentFilterCache != null) {
+      parentContext.gauge(
+          segmentFilterCache::getHitCount,
+          true,
+          "hits",
+          Category.CACHE.toString(),
+          "segmentFilterCache");
+      parentContext.gauge(
+          segmentFilterCache::getMissCount,
+          true,
+          "misses",
+          Category.CACHE.toString(),
+          "segmentFilterCache");
+      parentContext.gauge(
+          segmentFilterCache::getCacheSize,
+          true,
+          "size",
+          Category.CACHE.toString(),
+          "segmentFilterCache");
+      parentContext.gauge(
+          segmentFilterCache::ramBytesUsed,
+          true,
+          "ramBytesUsed",
+          Category.CACHE.toString(),
+          "segmentFilterCache");
+    }
+
     // initialize disk total / free metrics
     Path dataDirPath = Path.of(dataDir);
     parentContext.gauge(
@@ -1838,6 +1869,10 @@ public class SolrCore implements SolrInfoBean, Closeable {
       }
     }
 
+    if (segmentFilterCache != null) {
+      segmentFilterCache.clear();
+    }
+
     if (coreStateClosed) {
       try {
         cleanupOldIndexDirectories(false);
@@ -3583,6 +3618,28 @@ public class SolrCore implements SolrInfoBean, Closeable {
     return cancellableQueryTracker;
   }
 
+  /**
+   * Returns the cache of per-segment filter matches shared by the searchers of this core, or null
+   * if per-segment filter caching is not enabled.
+   *
+   * @see SolrConfig#segmentFilterCacheSize
+   */
+  public LRUQueryCache getSegmentFilterCache() {
+    return segmentFilterCache;
+  }
+
+  private static LRUQueryCache initSegmentFilterCache(SolrConfig config) {
+    if (config.segmentFilterCacheSize <= 0) {
+      return null;
+    }
+    // cache every segment, even small ones: the point is to never recompute unchanged segments
+    return new LRUQueryCache(
+        config.segmentFilterCacheSize,
+        config.segmentFilterCacheMaxRamMB * 1024L * 1024L,
+        leaf -> true,
+        10f);
+  }
+
   /**
    * Run an arbitrary task in its own thread. This is an expert option and is a method you should
    * use with great care. It would be bad to run something that never stopped or run something that
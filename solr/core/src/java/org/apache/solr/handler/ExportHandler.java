@@ -23,12 +23,16 @@ import java.lang.invoke.MethodHandles;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import org.apache.solr.client.solrj.io.ModelCache;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.MapSolrParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.core.CloseHook;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.handler.admin.api.ReplicationAPIBase;
@@ -53,6 +57,8 @@ public class ExportHandler extends SearchHandler {
   private SolrClientCache solrClientCache;
   private StreamContext initialStreamContext;
   private String writerMetricsPath;
+  // runs the exports with more than one thread, see ExportWriter.EXPORT_THREADS_PARAM
+  private ExecutorService exportWorkerExecutor;
 
   public static class ExportHandlerStreamFactory extends SolrDefaultStreamFactory {
     static final String[] forbiddenStreams =
@@ -115,6 +121,18 @@ public class ExportHandler extends SearchHandler {
     initialStreamContext.setObjectCache(objectCache);
     initialStreamContext.put("core", this.coreName);
     initialStreamContext.put("solr-core", core);
+
+    // threads are only started by the exports that use them
+    exportWorkerExecutor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            ExportWriter.MAX_EXPORT_THREADS, new SolrNamedThreadFactory("ExportWorkers"));
+    core.addCloseHook(
+        new CloseHook() {
+          @Override
+          public void preClose(SolrCore core) {
+            ExecutorUtil.shutdownAndAwaitTermination(exportWorkerExecutor);
+          }
+        });
   }
 
   @Override
@@ -131,6 +149,12 @@ public class ExportHandler extends SearchHandler {
     rsp.add(
         ReplicationAPIBase.FILE_STREAM,
         new ExportWriter(
-            req, rsp, wt, initialStreamContext, solrMetricsContext, writerMetricsPath));
+            req,
+            rsp,
+            wt,
+            initialStreamContext,
+            solrMetricsContext,
+            writerMetricsPath,
+            exportWorkerExecutor));
   }
 }
@@ -33,6 +33,7 @@ import org.apache.solr.client.solrj.io.ModelCache;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleBatch;
 import org.apache.solr.client.solrj.io.stream.DaemonStream;
 import org.apache.solr.client.solrj.io.stream.ExceptionStream;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
@@ -251,7 +252,13 @@ public class StreamHandler extends RequestHandlerBase
           StreamParams.RESULT_SET,
           new DaemonResponseStream("Daemon:" + daemonStream.getId() + " started on " + coreName));
     } else {
-      rsp.add(StreamParams.RESULT_SET, new TimerStream(new ExceptionStream(tupleStream)));
+      MapWriter resultSet = new TimerStream(new ExceptionStream(tupleStream));
+      if (CommonParams.JAVABIN.equals(params.get(CommonParams.WT))
+          && params.getBool(ColumnarTupleBatch.COLUMNAR_PARAM, false)) {
+        resultSet =
+            ColumnarTupleBatch.columnarDocs(resultSet, ColumnarTupleBatch.DEFAULT_BATCH_SIZE);
+      }
+      rsp.add(StreamParams.RESULT_SET, resultSet);
     }
   }
 
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +36,7 @@ import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.apache.solr.client.solrj.impl.LBHttp2SolrClient;
 import org.apache.solr.client.solrj.impl.LBSolrClient;
 import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.routing.AdaptiveReplicaListTransformer;
 import org.apache.solr.client.solrj.routing.NoOpReplicaListTransformer;
 import org.apache.solr.client.solrj.routing.ReplicaListTransformer;
 import org.apache.solr.cloud.CloudDescriptor;
@@ -114,6 +116,9 @@ public class HttpShardHandler extends ShardHandler {
   protected AtomicInteger pending;
 
   private final Map<String, List<String>> shardToURLs;
+
+  // the collection the response times of the shard requests are tracked for
+  private String collection;
   protected LBHttp2SolrClient<Http2SolrClient> lbClient;
 
   public HttpShardHandler(HttpShardHandlerFactory httpShardHandlerFactory) {
@@ -281,8 +286,9 @@ public class HttpShardHandler extends ShardHandler {
       SimpleSolrResponse ssr,
       ShardResponse srsp,
       long startTimeNS) {
-    CompletableFuture<LBSolrClient.Rsp> future = this.lbClient.requestAsync(lbReq);
-    future.whenComplete(new ShardRequestCallback(ssr, srsp, startTimeNS, sreq, shard, params));
+    CompletableFuture<LBSolrClient.Rsp> future = requestAsync(lbReq);
+    future.whenComplete(
+        new ShardRequestCallback(ssr, srsp, startTimeNS, sreq, shard, params, lbReq));
     synchronized (FUTURE_MAP_LOCK) {
       // we want to ensure that there is a future in flight before incrementing
       // pending. If anything fails such that a request/future is not created there is
@@ -293,6 +299,15 @@ public class HttpShardHandler extends ShardHandler {
     }
   }
 
+  /** Sends the request, and hedges it if the factory is configured to. */
+  protected CompletableFuture<LBSolrClient.Rsp> requestAsync(LBSolrClient.Req lbReq) {
+    ShardRequestHedger hedger = httpShardHandlerFactory.getShardRequestHedger();
+    if (hedger == null) {
+      return lbClient.requestAsync(lbReq);
+    }
+    return hedger.requestAsync(lbClient, lbReq, collection, httpShardHandlerFactory.commExecutor);
+  }
+
   /** Subclasses could modify the request based on the shard */
   @SuppressWarnings("unused")
   protected QueryRequest createQueryRequest(
@@ -375,6 +390,8 @@ public class HttpShardHandler extends ShardHandler {
     CoreDescriptor coreDescriptor = req.getCore().getCoreDescriptor();
     CloudDescriptor cloudDescriptor = req.getCloudDescriptor();
     ZkController zkController = req.getCoreContainer().getZkController();
+    collection =
+        cloudDescriptor != null ? cloudDescriptor.getCollectionName() : coreDescriptor.getName();
 
     final ReplicaListTransformer replicaListTransformer =
         httpShardHandlerFactory.getReplicaListTransformer(req);
@@ -509,24 +526,36 @@ public class HttpShardHandler extends ShardHandler {
     private final ShardRequest sreq;
     private final String shard;
     private final ModifiableSolrParams params;
+    private final AdaptiveReplicaListTransformer adaptiveRouting;
+    private final String url;
 
+    /** Must be created right before sending the request. */
     public ShardRequestCallback(
         SimpleSolrResponse ssr,
         ShardResponse srsp,
         long startTimeNS,
         ShardRequest sreq,
         String shard,
-        ModifiableSolrParams params) {
+        ModifiableSolrParams params,
+        LBSolrClient.Req lbReq) {
       this.ssr = ssr;
       this.srsp = srsp;
       this.startTimeNS = startTimeNS;
       this.sreq = sreq;
       this.shard = shard;
       this.params = params;
+      this.adaptiveRouting = httpShardHandlerFactory.getAdaptiveReplicaListTransformer();
+      this.url = lbReq.getEndpoints().get(0).getUrl();
+      if (adaptiveRouting != null) {
+        adaptiveRouting.onRequest(url);
+      }
     }
 
     @Override
     public void accept(LBSolrClient.Rsp rsp, Throwable throwable) {
+      if (adaptiveRouting != null) {
+        onResponse(rsp, throwable);
+      }
       if (rsp != null) {
         ssr.nl = rsp.getResponse();
         srsp.setShardAddress(rsp.getServer());
@@ -547,5 +576,27 @@ public class HttpShardHandler extends ShardHandler {
         }
       }
     }
+
+    private void onResponse(LBSolrClient.Rsp rsp, Throwable throwable) {
+      long elapsedNanos = System.nanoTime() - startTimeNS;
+      if (rsp != null) {
+        long serviceNanos = -1;
+        if (rsp.getResponse() != null
+            && rsp.getResponse().get("responseHeader") instanceof NamedList<?> header
+            && header.get("QTime") instanceof Number qTime) {
+          serviceNanos = TimeUnit.MILLISECONDS.toNanos(qTime.longValue());
+        }
+        if (url.equals(rsp.getServer())) {
+          adaptiveRouting.onResponse(url, elapsedNanos, serviceNanos, false);
+        } else {
+          // another replica answered first, the first one failed or was too slow
+          adaptiveRouting.onResponse(url, elapsedNanos, -1, false);
+        }
+      } else if (throwable instanceof CancellationException) {
+        adaptiveRouting.onResponse(url, -1, -1, false);
+      } else {
+        adaptiveRouting.onResponse(url, elapsedNanos, -1, true);
+      }
+    }
   }
 }
@@ -32,9 +32,11 @@ import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
+import org.apache.solr.client.solrj.impl.JavaBinResponseParser;
 import org.apache.solr.client.solrj.impl.LBHttp2SolrClient;
 import org.apache.solr.client.solrj.impl.LBSolrClient;
 import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.routing.AdaptiveReplicaListTransformer;
 import org.apache.solr.client.solrj.routing.AffinityReplicaListTransformerFactory;
 import org.apache.solr.client.solrj.routing.ReplicaListTransformer;
 import org.apache.solr.client.solrj.routing.ReplicaListTransformerFactory;
@@ -54,6 +56,7 @@ import org.apache.solr.common.util.URLUtil;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
 import org.apache.solr.metrics.SolrMetricsContext;
@@ -104,6 +107,16 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   private RequestReplicaListTransformerGenerator requestReplicaListTransformerGenerator =
       new RequestReplicaListTransformerGenerator();
 
+  // tracks the latency of the nodes if the "adaptive" replica routing is configured
+  private AdaptiveReplicaListTransformer adaptiveReplicaListTransformer;
+
+  // null unless hedging is configured
+  private ShardRequestHedger shardRequestHedger;
+  float hedgingPercentile = 0;
+  float hedgingBudget = 0.05f;
+  int hedgingMinDelay = 10;
+  boolean lazyDocuments = false;
+
   // URL scheme to be used in distributed search.
   static final String INIT_URL_SCHEME = "urlScheme";
 
@@ -128,6 +141,18 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   // Configure if the threadpool favours fairness over throughput
   static final String INIT_FAIRNESS_POLICY = "fairnessPolicy";
 
+  // The percentile of the response times after which a shard request is hedged, 0 to disable
+  static final String HEDGING_PERCENTILE = "hedgingPercentile";
+
+  // The maximum fraction of the shard requests of a collection that may be hedged
+  static final String HEDGING_BUDGET = "hedgingBudget";
+
+  // The shortest time to wait before hedging a shard request, in milliseconds
+  static final String HEDGING_MIN_DELAY = "hedgingMinDelay";
+
+  // Decode the fields of the documents of the shard responses only when they are read
+  static final String LAZY_DOCUMENTS = "lazyDocuments";
+
   /** Get {@link ShardHandler} that uses the default http client. */
   @Override
   public ShardHandler getShardHandler() {
@@ -179,6 +204,11 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             defaultRouting = checkDefaultReplicaListTransformer(c, key, defaultRouting);
             stableRltFactory = new AffinityReplicaListTransformerFactory(c);
             break;
+          case ShardParams.REPLICA_ADAPTIVE:
+            defaultRouting =
+                checkDefaultReplicaListTransformer(getNamedList(e.getValue()), key, defaultRouting);
+            adaptiveReplicaListTransformer = new AdaptiveReplicaListTransformer(r);
+            break;
           default:
             throw new IllegalArgumentException("invalid replica routing spec name: " + key);
         }
@@ -189,6 +219,11 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
     }
     if (ShardParams.REPLICA_STABLE.equals(defaultRouting)) {
       defaultRltFactory = stableRltFactory;
+    } else if (ShardParams.REPLICA_ADAPTIVE.equals(defaultRouting)) {
+      final ReplicaListTransformer adaptive = adaptiveReplicaListTransformer;
+      defaultRltFactory =
+          (String configSpec, SolrParams requestParams, ReplicaListTransformerFactory fallback) ->
+              adaptive;
     } else {
       defaultRltFactory = RequestReplicaListTransformerGenerator.RANDOM_RLTF;
     }
@@ -216,6 +251,14 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
    *       false otherwise
    *   <li>replicaRouting - a NamedList of preferences used to select the order in which replicas
    *       for a shard will be used by created ShardHandlers
+   *   <li>hedgingPercentile - the percentile of the recent response times of a collection after
+   *       which a shard request is sent to another replica too, 0 (the default) to disable
+   *   <li>hedgingBudget - the maximum fraction of the shard requests of a collection that may be
+   *       sent twice, defaults to 0.05
+   *   <li>hedgingMinDelay - the shortest time to wait before sending a shard request twice, in
+   *       milliseconds, defaults to 10
+   *   <li>lazyDocuments - true if the fields of the documents of the shard responses should only
+   *       be decoded when they are read, false (the default) otherwise
    * </ul>
    *
    * @param info configuration for the created factory, typically reflecting the contents of a
@@ -260,6 +303,22 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             permittedLoadBalancerRequestsMaximumFraction,
             sb);
     this.accessPolicy = getParameter(args, INIT_FAIRNESS_POLICY, accessPolicy, sb);
+    this.hedgingPercentile = getParameter(args, HEDGING_PERCENTILE, hedgingPercentile, sb);
+    this.hedgingBudget = getParameter(args, HEDGING_BUDGET, hedgingBudget, sb);
+    this.hedgingMinDelay = getParameter(args, HEDGING_MIN_DELAY, hedgingMinDelay, sb);
+    this.lazyDocuments = getParameter(args, LAZY_DOCUMENTS, lazyDocuments, sb);
+    if (hedgingPercentile > 0) {
+      if (hedgingPercentile >= 100 || hedgingBudget <= 0) {
+        throw new SolrException(
+            ErrorCode.SERVER_ERROR,
+            HEDGING_PERCENTILE
+                + " must be less than 100 and "
+                + HEDGING_BUDGET
+                + " greater than 0 to hedge shard requests");
+      }
+      this.shardRequestHedger =
+          new ShardRequestHedger(hedgingPercentile, hedgingBudget, hedgingMinDelay);
+    }
 
     if (args != null && args.get("shardsWhitelist") != null) {
       log.warn(
@@ -312,6 +371,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             .withIdleTimeout(soTimeout, TimeUnit.MILLISECONDS)
             .withExecutor(commExecutor)
             .withMaxConnectionsPerHost(maxConnectionsPerHost)
+            .withResponseParser(new JavaBinResponseParser().setLazyDocuments(lazyDocuments))
             .build();
     this.defaultClient.addListenerFactory(this.httpListenerFactory);
     this.loadbalancer = new LBHttp2SolrClient.Builder<Http2SolrClient>(defaultClient).build();
@@ -422,6 +482,21 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
     return defaultClient;
   }
 
+  /**
+   * @return the transformer to report the requests sent to the replicas to, or null if the
+   *     "adaptive" replica routing is not configured
+   */
+  AdaptiveReplicaListTransformer getAdaptiveReplicaListTransformer() {
+    return adaptiveReplicaListTransformer;
+  }
+
+  /**
+   * @return the hedger of the shard requests, or null if they are not hedged
+   */
+  ShardRequestHedger getShardRequestHedger() {
+    return shardRequestHedger;
+  }
+
   /**
    * Rebuilds the URL replacing the URL scheme of the passed URL with the configured scheme
    * replacement.If no scheme was configured, the passed URL's scheme is left alone.
@@ -447,5 +522,20 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             null,
             solrMetricsContext.getMetricRegistry(),
             SolrMetricManager.mkName("httpShardExecutor", expandedScope, "threadPool"));
+    if (adaptiveReplicaListTransformer != null) {
+      MetricsMap nodeStats =
+          new MetricsMap(
+              map ->
+                  adaptiveReplicaListTransformer.forEachNode(
+                      (node, stats) ->
+                          stats.forEach((name, value) -> map.putNoEx(node + "." + name, value))));
+      solrMetricsContext.gauge(nodeStats, true, "adaptiveReplicaRouting", expandedScope);
+    }
+    if (shardRequestHedger != null) {
+      solrMetricsContext.gauge(
+          shardRequestHedger::getHedgedRequests, true, "hedgedRequests", expandedScope);
+      solrMetricsContext.gauge(
+          shardRequestHedger::getHedgedRequestsWon, true, "hedgedRequestsWon", expandedScope);
+    }
   }
 }
@@ -88,9 +88,9 @@ public class ParallelHttpShardHandler extends HttpShardHandler {
     final Runnable executeRequestRunnable =
         () -> {
           try {
-            CompletableFuture<LBSolrClient.Rsp> future = this.lbClient.requestAsync(lbReq);
+            CompletableFuture<LBSolrClient.Rsp> future = requestAsync(lbReq);
             future.whenComplete(
-                new ShardRequestCallback(ssr, srsp, startTimeNS, sreq, shard, params));
+                new ShardRequestCallback(ssr, srsp, startTimeNS, sreq, shard, params, lbReq));
             synchronized (FUTURE_MAP_LOCK) {
               // we want to ensure that there is a future in flight before incrementing
               // pending, because there is a risk that the  request will hang forever waiting
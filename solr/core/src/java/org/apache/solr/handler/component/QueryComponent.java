@@ -36,9 +36,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.FieldComparator;
 import org.apache.lucene.search.FuzzyTermsEnum;
@@ -132,6 +134,12 @@ public class QueryComponent extends SearchComponent {
   public static final String COMPONENT_NAME = "query";
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /** Default of {@link ShardParams#DISTRIB_SINGLE_PASS_MAX_DOCS} */
+  public static final int DEFAULT_SINGLE_PASS_MAX_DOCS = 2000;
+
+  /** Default of {@link ShardParams#DISTRIB_SINGLE_PASS_MAX_BYTES} */
+  public static final long DEFAULT_SINGLE_PASS_MAX_BYTES = 4 * 1024 * 1024;
+
   @Override
   public void prepare(ResponseBuilder rb) throws IOException {
     SolrQueryRequest req = rb.req;
@@ -415,6 +423,8 @@ public class QueryComponent extends SearchComponent {
     if (groupingSpec != null) {
       // not supported, silently ignore any segmentTerminateEarly flag
       cmd.setSegmentTerminateEarly(false);
+      // groups are collected from the whole index in a single thread
+      cmd.setMultiThreaded(false);
       try {
         if (params.getBool(GroupParams.GROUP_DISTRIBUTED_FIRST, false)) {
           doProcessGroupedDistributedSearchFirstPhase(rb, cmd);
@@ -778,7 +788,7 @@ public class QueryComponent extends SearchComponent {
     ReturnFields fields = rb.rsp.getReturnFields();
 
     // distrib.singlePass=true forces a one-pass query regardless of requested fields
-    boolean distribSinglePass = rb.req.getParams().getBool(ShardParams.DISTRIB_SINGLE_PASS, false);
+    boolean distribSinglePass = isDistribSinglePass(rb);
 
     if (distribSinglePass
         || (fields != null
@@ -862,6 +872,60 @@ public class QueryComponent extends SearchComponent {
     rb.addRequest(this, sreq);
   }
 
+  /**
+   * Whether the shards should return the requested fields of their top documents right away, which
+   * saves the second round trip to the shards at the cost of fetching fields for documents that
+   * are not kept. {@code distrib.singlePass=auto} chooses it for small result pages: when the
+   * shards return at most {@code distrib.singlePass.maxDocs} documents in total, whose size
+   * estimated from the local index is at most {@code distrib.singlePass.maxBytes}.
+   */
+  protected boolean isDistribSinglePass(ResponseBuilder rb) {
+    SolrParams params = rb.req.getParams();
+    if (!ShardParams.DISTRIB_SINGLE_PASS_AUTO.equals(params.get(ShardParams.DISTRIB_SINGLE_PASS))) {
+      return params.getBool(ShardParams.DISTRIB_SINGLE_PASS, false);
+    }
+    if (rb.shards == null) {
+      return false;
+    }
+    long rowsPerShard =
+        rb.shards_rows > -1
+            ? rb.shards_rows
+            : (long) rb.getSortSpec().getOffset() + rb.getSortSpec().getCount();
+    long docs = rowsPerShard * rb.shards.length;
+    int maxDocs =
+        params.getInt(ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, DEFAULT_SINGLE_PASS_MAX_DOCS);
+    if (rowsPerShard < 0 || docs > maxDocs) {
+      return false;
+    }
+    long maxBytes =
+        params.getLong(ShardParams.DISTRIB_SINGLE_PASS_MAX_BYTES, DEFAULT_SINGLE_PASS_MAX_BYTES);
+    long bytesPerDoc = estimateBytesPerDoc(rb.req.getSearcher());
+    // without local documents to estimate their size, rely on the number of documents only
+    return bytesPerDoc < 0 || docs * bytesPerDoc <= maxBytes;
+  }
+
+  /**
+   * Estimates the size of a document as the size of the index divided by its number of documents,
+   * which overestimates the size of its stored fields.
+   *
+   * @return -1 if the index is empty
+   */
+  private static long estimateBytesPerDoc(SolrIndexSearcher searcher) {
+    long bytes = 0;
+    long docs = 0;
+    for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+      if (FilterLeafReader.unwrap(leaf.reader()) instanceof SegmentReader segmentReader) {
+        try {
+          bytes += segmentReader.getSegmentInfo().sizeInBytes();
+          docs += segmentReader.maxDoc();
+        } catch (IOException e) {
+          log.warn("Could not get the size of segment {}", segmentReader.getSegmentName(), e);
+        }
+      }
+    }
+    return docs == 0 ? -1 : bytes / docs;
+  }
+
   protected boolean addFL(StringBuilder fl, String field, boolean additionalAdded) {
     if (additionalAdded) fl.append(",");
     fl.append(field);
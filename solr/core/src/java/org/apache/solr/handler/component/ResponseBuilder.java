@@ -460,6 +460,9 @@ public class ResponseBuilder {
               SolrQueryResponse.RESPONSE_HEADER_SEGMENT_TERMINATED_EARLY_KEY,
               segmentTerminatedEarly);
     }
+    if (isDebugTimings() && result.getSliceTimings() != null) {
+      addDebugInfo("slices", result.getSliceTimings());
+    }
     if (null != cursorMark) {
       assert null != result.getNextCursorMark() : "using cursor but no next cursor set";
       this.setNextCursorMark(result.getNextCursorMark());
@@ -32,13 +32,18 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.invoke.MethodHandles;
+import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -46,13 +51,20 @@ import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.search.TotalHits;
 import org.apache.solr.client.solrj.SolrRequest.SolrRequestType;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.cloud.CloudDescriptor;
 import org.apache.solr.cloud.ZkController;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.cloud.Aliases;
+import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.common.util.StrUtils;
@@ -70,6 +82,7 @@ import org.apache.solr.pkg.SolrPackageLoader;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.search.CursorMark;
+import org.apache.solr.search.SolrCache;
 import org.apache.solr.search.SortSpec;
 import org.apache.solr.search.facet.FacetModule;
 import org.apache.solr.security.AuthorizationContext;
@@ -118,6 +131,20 @@ public class SearchHandler extends RequestHandlerBase
   private static final boolean DISABLE_REQUEST_ID_DEFAULT =
       Boolean.getBoolean("solr.disableRequestId");
 
+  /**
+   * The name of the user cache, if the core has one, of the merged responses of the distributed
+   * requests this node coordinates. The cache belongs to the searcher of the core, so it is emptied
+   * when the core opens a new searcher, which happens when the collection is committed to.
+   */
+  public static final String DISTRIB_RESULT_CACHE_NAME = "distribResultCache";
+
+  /**
+   * Default, and max, of {@link ShardParams#DISTRIB_RESULT_CACHE_MAX_AGE}: requests may only ask
+   * for fresher responses.
+   */
+  public static final long DEFAULT_DISTRIB_RESULT_CACHE_MAX_AGE =
+      EnvUtils.getPropertyAsLong("solr.distribResultCache.maxAge", 10000L);
+
   private HandlerMetrics metricsShard = HandlerMetrics.NO_OP;
   private final Map<String, Counter> shardPurposes = new ConcurrentHashMap<>();
 
@@ -314,6 +341,160 @@ public class SearchHandler extends RequestHandlerBase
     return isDistrib;
   }
 
+  /**
+   * The key of the merged response of the request in the {@link #DISTRIB_RESULT_CACHE_NAME} cache,
+   * or null if the response must not be cached. It is made of the request parameters, in a stable
+   * order and without the request id, of the user principal, since the response may depend on what
+   * the user is allowed to see, and of the versions of the state of the collections the request is
+   * for, so that a cached response is not used anymore once a shard was split or a replica went
+   * down. The collections of aliases are resolved, and the version of the aliases is part of the
+   * key too, in case an alias is changed.
+   */
+  private static String getDistribResultCacheKey(SolrQueryRequest req, ResponseBuilder rb) {
+    SolrParams params = req.getParams();
+    if (!rb.isDistrib
+        || rb.isDebug()
+        || !params.getBool(ShardParams.DISTRIB_RESULT_CACHE, true)
+        || params.getBool(ShardParams.SHARDS_INFO, false)
+        || req.getSearcher().getCache(DISTRIB_RESULT_CACHE_NAME) == null) {
+      return null;
+    }
+    ModifiableSolrParams sortedParams = new ModifiableSolrParams(new TreeMap<>());
+    sortedParams.add(params);
+    sortedParams.remove(ShardParams.DISTRIB_RESULT_CACHE_MAX_AGE);
+    sortedParams.remove(CommonParams.REQUEST_ID); // unique per request, see tagRequestWithRequestId
+    StringBuilder key = new StringBuilder();
+    key.append(req.getContext().get(PATH)).append(sortedParams.toQueryString());
+    Principal principal = req.getUserPrincipal();
+    if (principal != null) {
+      key.append(" user:").append(principal.getName());
+    }
+
+    CoreContainer cc = req.getCoreContainer();
+    CloudDescriptor cloudDescriptor = req.getCloudDescriptor();
+    if (cc.isZooKeeperAware() && cloudDescriptor != null) {
+      ClusterState clusterState = cc.getZkController().getClusterState();
+      Aliases aliases = cc.getAliases();
+      String names = params.get("collection", cloudDescriptor.getCollectionName());
+      for (String name : StrUtils.splitSmart(names, ",", true)) {
+        if (aliases.hasAlias(name)) {
+          key.append(' ').append(name).append("=aliases:").append(aliases.getZNodeVersion());
+        }
+        for (String collection : aliases.resolveAliases(name)) {
+          DocCollection docCollection = clusterState.getCollectionOrNull(collection);
+          key.append(' ').append(collection).append(':');
+          if (docCollection != null) {
+            key.append(docCollection.getZNodeVersion())
+                .append('.')
+                .append(docCollection.getChildNodesVersion());
+          }
+        }
+      }
+    }
+    return key.toString();
+  }
+
+  /** Adds the cached merged response of the request, if it is not older than allowed. */
+  private static boolean getCachedDistribResult(
+      SolrQueryRequest req, SolrQueryResponse rsp, String key) {
+    @SuppressWarnings("unchecked")
+    SolrCache<String, CachedDistribResult> cache =
+        req.getSearcher().getCache(DISTRIB_RESULT_CACHE_NAME);
+    CachedDistribResult result = cache.get(key);
+    if (result == null) {
+      return false;
+    }
+    long maxAge =
+        Math.min(
+            req.getParams()
+                .getLong(
+                    ShardParams.DISTRIB_RESULT_CACHE_MAX_AGE, DEFAULT_DISTRIB_RESULT_CACHE_MAX_AGE),
+            DEFAULT_DISTRIB_RESULT_CACHE_MAX_AGE);
+    if (System.nanoTime() - result.createdAtNanos > TimeUnit.MILLISECONDS.toNanos(maxAge)) {
+      return false; // replaced once the request is done
+    }
+    result.values.forEach((name, value) -> rsp.add(name, copyValue(value)));
+    return true;
+  }
+
+  /** Caches the merged response of the request, unless it is not complete. */
+  private static void cacheDistribResult(
+      SolrQueryRequest req, SolrQueryResponse rsp, ResponseBuilder rb, String key) {
+    // the request may have been short-circuited to the local core
+    if (!rb.isDistrib
+        || rsp.getException() != null
+        || SolrQueryResponse.isPartialResults(rsp.getResponseHeader())) {
+      return;
+    }
+    NamedList<Object> values = new SimpleOrderedMap<>();
+    rsp.getValues()
+        .forEach(
+            (name, value) -> {
+              if (!SolrQueryResponse.RESPONSE_HEADER_KEY.equals(name)) {
+                values.add(name, copyValue(value));
+              }
+            });
+    @SuppressWarnings("unchecked")
+    SolrCache<String, CachedDistribResult> cache =
+        req.getSearcher().getCache(DISTRIB_RESULT_CACHE_NAME);
+    cache.put(key, new CachedDistribResult(System.nanoTime(), values));
+  }
+
+  /**
+   * Copies a value of a merged response, so that the cached values are never shared with a
+   * response, which may modify them, e.g. when a component or a response writer adds to a
+   * document. Values that are not documents, lists or maps are immutable ones, such as strings or
+   * numbers, and are not copied.
+   */
+  private static Object copyValue(Object value) {
+    if (value instanceof SolrDocumentList docs) {
+      SolrDocumentList copy = new SolrDocumentList();
+      copy.setNumFound(docs.getNumFound());
+      copy.setStart(docs.getStart());
+      copy.setMaxScore(docs.getMaxScore());
+      copy.setNumFoundExact(docs.getNumFoundExact());
+      for (SolrDocument doc : docs) {
+        copy.add((SolrDocument) copyValue(doc));
+      }
+      return copy;
+    } else if (value instanceof SolrDocument doc) {
+      SolrDocument copy = new SolrDocument();
+      doc.forEach((name, fieldValue) -> copy.setField(name, copyValue(fieldValue)));
+      if (doc.hasChildDocuments()) {
+        for (SolrDocument child : doc.getChildDocuments()) {
+          copy.addChildDocument((SolrDocument) copyValue(child));
+        }
+      }
+      return copy;
+    } else if (value instanceof NamedList<?> namedList) {
+      NamedList<Object> copy =
+          namedList instanceof SimpleOrderedMap
+              ? new SimpleOrderedMap<>(namedList.size())
+              : new NamedList<>(namedList.size());
+      namedList.forEach((name, v) -> copy.add(name, copyValue(v)));
+      return copy;
+    } else if (value instanceof Map<?, ?> map) {
+      Map<Object, Object> copy = new LinkedHashMap<>(map.size());
+      map.forEach((k, v) -> copy.put(k, copyValue(v)));
+      return copy;
+    } else if (value instanceof Collection<?> collection) {
+      List<Object> copy = new ArrayList<>(collection.size());
+      collection.forEach(v -> copy.add(copyValue(v)));
+      return copy;
+    }
+    return value;
+  }
+
+  private static final class CachedDistribResult {
+    private final long createdAtNanos;
+    private final NamedList<Object> values;
+
+    private CachedDistribResult(long createdAtNanos, NamedList<Object> values) {
+      this.createdAtNanos = createdAtNanos;
+      this.values = values;
+    }
+  }
+
   public ShardHandler getAndPrepShardHandler(SolrQueryRequest req, ResponseBuilder rb) {
     ShardHandler shardHandler = null;
 
@@ -422,8 +603,17 @@ public class SearchHandler extends RequestHandlerBase
       return; // Circuit breaker tripped, return immediately
     }
 
+    final String resultCacheKey = getDistribResultCacheKey(req, rb);
+    if (resultCacheKey != null && getCachedDistribResult(req, rsp, resultCacheKey)) {
+      return;
+    }
+
     processComponents(req, rsp, rb, timer, components);
 
+    if (resultCacheKey != null) {
+      cacheDistribResult(req, rsp, rb, resultCacheKey);
+    }
+
     // SOLR-5550: still provide shards.info if requested even for a short-circuited distrib request
     if (!rb.isDistrib
         && req.getParams().getBool(ShardParams.SHARDS_INFO, false)
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.client.solrj.impl.LBHttp2SolrClient;
+import org.apache.solr.client.solrj.impl.LBSolrClient;
+
+/**
+ * Sends a second copy of a shard request to another replica of the shard when the first replica
+ * has not answered within a percentile of the recent response times of the collection, as
+ * described in "The Tail at Scale" (Dean and Barroso, 2013). The first response wins, and the other
+ * request is cancelled.
+ *
+ * <p>The extra load is capped per collection: each shard request earns a fraction of a hedged
+ * request, and a request is only hedged when a whole one has been earned. Requests are not hedged
+ * until {@link #MIN_SAMPLES} response times of the collection are known.
+ */
+class ShardRequestHedger {
+
+  static final int MIN_SAMPLES = 100;
+
+  /** How often the hedging delay of a collection is computed again from its response times. */
+  static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /** The number of hedged requests a collection can save up while it is not slow. */
+  static final double MAX_BURST = 10;
+
+  private final double quantile;
+  private final double budget;
+  private final long minDelayNanos;
+
+  private final Map<String, CollectionStats> collections = new ConcurrentHashMap<>();
+  private final LongAdder hedgedRequests = new LongAdder();
+  private final LongAdder hedgedRequestsWon = new LongAdder();
+
+  /**
+   * @param percentile the percentile of the response times after which a request is hedged
+   * @param budget the fraction of the requests of a collection that may be hedged
+   * @param minDelayMillis the shortest time to wait before hedging a request
+   */
+  ShardRequestHedger(double percentile, double budget, long minDelayMillis) {
+    this.quantile = percentile / 100;
+    this.budget = budget;
+    this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+  }
+
+  /**
+   * Sends the request to its first endpoint, and later to the other ones if it is hedged.
+   *
+   * @param collection the collection the response times are tracked for, may be null
+   * @param executor the executor sending the hedged request
+   */
+  CompletableFuture<LBSolrClient.Rsp> requestAsync(
+      LBHttp2SolrClient<?> lbClient, LBSolrClient.Req req, String collection, Executor executor) {
+    CollectionStats stats =
+        collections.computeIfAbsent(
+            collection == null ? "" : collection, k -> new CollectionStats());
+    stats.earn(budget);
+    HedgedRequest hedgedRequest = new HedgedRequest(stats);
+    hedgedRequest.add(lbClient.requestAsync(req));
+
+    long delayNanos = stats.getDelayNanos();
+    List<LBSolrClient.Endpoint> endpoints = req.getEndpoints();
+    if (delayNanos >= 0 && endpoints.size() > 1) {
+      LBSolrClient.Req hedgeReq =
+          new LBSolrClient.Req(
+              req.getRequest(),
+              new ArrayList<>(endpoints.subList(1, endpoints.size())),
+              req.getNumServersToTry());
+      CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, executor)
+          .execute(
+              () -> {
+                if (!hedgedRequest.result.isDone() && stats.spend()) {
+                  hedgedRequests.increment();
+                  hedgedRequest.add(lbClient.requestAsync(hedgeReq));
+                }
+              });
+    }
+    return hedgedRequest.result;
+  }
+
+  /** The number of requests a second copy was sent for. */
+  long getHedgedRequests() {
+    return hedgedRequests.sum();
+  }
+
+  /** The number of hedged requests the second copy answered first. */
+  long getHedgedRequestsWon() {
+    return hedgedRequestsWon.sum();
+  }
+
+  private class HedgedRequest {
+    private final CompletableFuture<LBSolrClient.Rsp> result = new CompletableFuture<>();
+    private final List<CompletableFuture<LBSolrClient.Rsp>> attempts = new ArrayList<>(2);
+    private final CollectionStats stats;
+    private final long startNanos = System.nanoTime();
+    private int pending;
+
+    HedgedRequest(CollectionStats stats) {
+      this.stats = stats;
+      // the shard handler cancels the result when it gives up on the request
+      result.whenComplete(
+          (rsp, throwable) -> {
+            if (result.isCancelled()) {
+              cancel(null);
+            }
+          });
+    }
+
+    void add(CompletableFuture<LBSolrClient.Rsp> attempt) {
+      synchronized (this) {
+        if (!result.isDone()) {
+          attempts.add(attempt);
+          pending++;
+          attempt.whenComplete((rsp, throwable) -> onComplete(attempt, rsp, throwable));
+          return;
+        }
+      }
+      attempt.cancel(true);
+    }
+
+    private void onComplete(
+        CompletableFuture<LBSolrClient.Rsp> attempt, LBSolrClient.Rsp rsp, Throwable throwable) {
+      synchronized (this) {
+        pending--;
+        if (throwable != null) {
+          // the load balancer already tried the other replicas, give up when all attempts failed
+          if (pending == 0) {
+            result.completeExceptionally(throwable);
+          }
+          return;
+        }
+        if (!result.complete(rsp)) {
+          return;
+        }
+        if (attempt != attempts.get(0)) {
+          hedgedRequestsWon.increment();
+        }
+      }
+      stats.record(System.nanoTime() - startNanos);
+      cancel(attempt);
+    }
+
+    private void cancel(CompletableFuture<LBSolrClient.Rsp> winner) {
+      List<CompletableFuture<LBSolrClient.Rsp>> losers;
+      synchronized (this) {
+        losers = new ArrayList<>(attempts);
+      }
+      for (CompletableFuture<LBSolrClient.Rsp> loser : losers) {
+        if (loser != winner) {
+          loser.cancel(true);
+        }
+      }
+    }
+  }
+
+  private class CollectionStats {
+    private final Histogram responseTimes = new Histogram(new ExponentiallyDecayingReservoir());
+    private volatile long delayNanos = -1;
+    private volatile long refreshedAtNanos;
+    private double tokens;
+
+    void record(long responseNanos) {
+      responseTimes.update(responseNanos);
+    }
+
+    long getDelayNanos() {
+      long now = System.nanoTime();
+      // computed on each request until there are enough samples
+      if (delayNanos < 0 || now - refreshedAtNanos >= REFRESH_NANOS) {
+        refreshedAtNanos = now;
+        delayNanos =
+            responseTimes.getCount() < MIN_SAMPLES
+                ? -1
+                : Math.max(
+                    minDelayNanos, (long) responseTimes.getSnapshot().getValue(quantile));
+      }
+      return delayNanos;
+    }
+
+    synchronized void earn(double amount) {
+      tokens = Math.min(MAX_BURST, tokens + amount);
+    }
+
+    synchronized boolean spend() {
+      if (tokens < 1) {
+        return false;
+      }
+      tokens -= 1;
+      return true;
+    }
+  }
+}
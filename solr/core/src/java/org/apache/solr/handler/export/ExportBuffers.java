@@ -60,6 +60,8 @@ class ExportBuffers {
   Buffer outputBuffer;
   Runnable filler;
   ExecutorService service;
+  // sorts segments ahead and reads field values when exporting with more than one thread
+  ExecutorService workers;
   Throwable error;
   LongAdder outputCounter = new LongAdder();
   volatile boolean shutDown = false;
@@ -96,7 +98,16 @@ class ExportBuffers {
     outputBuffer = bufferTwo;
     SortDoc writerSortDoc = exportWriter.getSortDoc(searcher, sort.getSort());
 
-    MergeIterator mergeIterator = exportWriter.getMergeIterator(leaves, sets, writerSortDoc);
+    if (exportWriter.exportThreads > 1) {
+      workers = new ExportWorkers(exportWriter.workerExecutor);
+    }
+    MergeIterator mergeIterator;
+    try {
+      mergeIterator = exportWriter.getMergeIterator(leaves, sets, writerSortDoc, workers);
+    } catch (IOException | RuntimeException e) {
+      shutdownNow();
+      throw e;
+    }
 
     bufferOne.initialize(writerSortDoc);
     bufferTwo.initialize(writerSortDoc);
@@ -194,12 +205,21 @@ class ExportBuffers {
     return writer;
   }
 
+  // null unless exporting with more than one thread
+  public ExecutorService getWorkers() {
+    return workers;
+  }
+
   public void shutdownNow() {
     if (service != null) {
       log.debug("--- shutting down buffers");
       service.shutdownNow();
       service = null;
     }
+    if (workers != null) {
+      workers.shutdownNow();
+      workers = null;
+    }
     shutDown = true;
   }
 
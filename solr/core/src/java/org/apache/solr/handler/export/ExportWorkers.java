@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.export;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The workers of an export request: runs its tasks on the executor shared by the exports of the
+ * core, see {@link ExportWriter#MAX_EXPORT_THREADS}. Shutting it down only cancels the tasks of
+ * this request.
+ */
+class ExportWorkers extends AbstractExecutorService {
+
+  private final Executor executor;
+  private final Set<RunnableFuture<?>> tasks = ConcurrentHashMap.newKeySet();
+  private volatile boolean shutdown;
+
+  ExportWorkers(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (shutdown) {
+      throw new RejectedExecutionException("The export workers are shut down");
+    }
+    RunnableFuture<?> task =
+        command instanceof RunnableFuture<?> future ? future : new FutureTask<>(command, null);
+    tasks.add(task);
+    if (shutdown) {
+      task.cancel(true); // may have missed it
+    }
+    executor.execute(
+        () -> {
+          try {
+            task.run();
+          } finally {
+            tasks.remove(task);
+          }
+        });
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+  }
+
+  /** Cancels the tasks of this request, interrupting those that are running. */
+  @Override
+  public List<Runnable> shutdownNow() {
+    shutdown = true;
+    for (RunnableFuture<?> task : tasks) {
+      task.cancel(true);
+    }
+    return List.of();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return shutdown && tasks.isEmpty();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!isTerminated()) {
+      if (System.nanoTime() - deadline >= 0) {
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+}
@@ -31,6 +31,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
@@ -41,6 +46,7 @@ import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.client.solrj.impl.JavaBinResponseParser;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleBatch;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
@@ -54,6 +60,7 @@ import org.apache.solr.common.PushWriter;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.params.StreamParams;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.metrics.SolrMetricsContext;
@@ -93,15 +100,29 @@ import org.slf4j.LoggerFactory;
  * that haven't been sent yet and stores them in a Priority Queue. They are then exported (written
  * across the wire) and marked as sent (unset in the bitmap). This process repeats until all
  * matching documents have been sent.
+ *
+ * <p>With {@link #EXPORT_THREADS_PARAM} greater than 1 the passes over the segments run in the
+ * background on a pool of threads, each segment sorting its next batch while the previous one is
+ * merged, and the field values of each batch are read by the same threads in contiguous chunks that
+ * are written out in order. The output is the same as with a single thread. The threads are shared
+ * by the exports of the core, and there are at most {@link #MAX_EXPORT_THREADS} of them.
  */
 public class ExportWriter implements SolrCore.RawWriter, Closeable {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   public static final String BATCH_SIZE_PARAM = "batchSize";
   public static final String QUEUE_SIZE_PARAM = "queueSize";
+  public static final String EXPORT_THREADS_PARAM = "exportThreads";
 
   public static final int DEFAULT_BATCH_SIZE = 30000;
   public static final int DEFAULT_QUEUE_SIZE = 150000;
+  public static final int DEFAULT_EXPORT_THREADS =
+      EnvUtils.getPropertyAsInteger("solr.export.threads", 1);
+
+  /** The max number of threads of the exports of a core, and of each export, together */
+  public static final int MAX_EXPORT_THREADS =
+      EnvUtils.getPropertyAsInteger(
+          "solr.export.maxThreads", Runtime.getRuntime().availableProcessors());
   private static final FieldWriter EMPTY_FIELD_WRITER =
       new FieldWriter() {
         @Override
@@ -119,10 +140,16 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
   final String metricsPath;
   // The batch size for the output writer thread.
   final int batchSize;
+  // The number of threads sorting segments and reading field values, 1 to do it all in the filler
+  // and writer threads.
+  final int exportThreads;
+  // The executor shared by the exports of the core that run the threads above.
+  final ExecutorService workerExecutor;
   // The max combined size of the segment level priority queues.
   private int priorityQueueSize;
   StreamExpression streamExpression;
   StreamContext streamContext;
+  String[] fields;
   List<FieldWriter> fieldWriters;
   int totalHits = 0;
   FixedBitSet[] sets = null;
@@ -135,7 +162,8 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       String wt,
       StreamContext initialStreamContext,
       SolrMetricsContext solrMetricsContext,
-      String metricsPath) {
+      String metricsPath,
+      ExecutorService workerExecutor) {
     this.req = req;
     this.res = res;
     this.wt = wt;
@@ -144,6 +172,12 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     this.metricsPath = metricsPath;
     this.priorityQueueSize = req.getParams().getInt(QUEUE_SIZE_PARAM, DEFAULT_QUEUE_SIZE);
     this.batchSize = DEFAULT_BATCH_SIZE;
+    this.exportThreads =
+        Math.clamp(
+            req.getParams().getInt(EXPORT_THREADS_PARAM, DEFAULT_EXPORT_THREADS),
+            1,
+            MAX_EXPORT_THREADS);
+    this.workerExecutor = workerExecutor;
   }
 
   @Override
@@ -268,8 +302,9 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     }
     SolrParams params = req.getParams();
     String fl = params.get("fl");
-
-    String[] fields = null;
+    // typed columns need the javabin format
+    final boolean columnar =
+        writer instanceof JavaBinCodec && params.getBool(ColumnarTupleBatch.COLUMNAR_PARAM, false);
 
     if (fl == null) {
       writeException(
@@ -341,7 +376,13 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
                 (MapWriter)
                     mw -> {
                       mw.put("numFound", totalHits);
-                      mw.put("docs", (IteratorWriter) iw -> writeDocs(req, os, iw, sort));
+                      IteratorWriter docs = iw -> writeDocs(req, os, iw, sort);
+                      if (columnar) {
+                        docs =
+                            ColumnarTupleBatch.columnarDocs(
+                                docs, ColumnarTupleBatch.DEFAULT_BATCH_SIZE);
+                      }
+                      mw.put("docs", docs);
                     });
           });
     } catch (java.io.EOFException e) {
@@ -434,6 +475,16 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
           });
       tupleStream.close();
     } else {
+      final ParallelDocWriter parallelDocWriter;
+      try {
+        parallelDocWriter =
+            buffers.getWorkers() == null
+                ? null
+                : new ParallelDocWriter(this, req, leaves, buffers.getWorkers(), queueSize);
+      } catch (IOException | RuntimeException e) {
+        buffers.shutdownNow();
+        throw e;
+      }
       buffers.run(
           () -> {
             // get the initial buffer
@@ -446,12 +497,16 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
                 log.debug("--- writer interrupted");
                 break;
               }
-              for (int i = 0; i <= buffer.outDocsIndex; ++i) {
-                // we're using the raw writer here because there's no potential
-                // reduction in the number of output items, unlike when using
-                // streaming expressions
-                final SortDoc currentDoc = buffer.outDocs[i];
-                writer.add((MapWriter) ew -> writeDoc(currentDoc, leaves, ew, fieldWriters));
+              if (parallelDocWriter != null) {
+                parallelDocWriter.write(buffer, writer);
+              } else {
+                for (int i = 0; i <= buffer.outDocsIndex; ++i) {
+                  // we're using the raw writer here because there's no potential
+                  // reduction in the number of output items, unlike when using
+                  // streaming expressions
+                  final SortDoc currentDoc = buffer.outDocs[i];
+                  writer.add((MapWriter) ew -> writeDoc(currentDoc, leaves, ew, fieldWriters));
+                }
               }
               // log.debug("--- writer exchanging from {}", buffer);
               long startExchangeBuffers = System.nanoTime();
@@ -711,6 +766,16 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
 
   public MergeIterator getMergeIterator(
       List<LeafReaderContext> leaves, FixedBitSet[] bits, SortDoc sortDoc) throws IOException {
+    return getMergeIterator(leaves, bits, sortDoc, null);
+  }
+
+  /**
+   * @param executor if not null, each segment sorts its next batch of documents on this executor
+   *     while the current one is merged
+   */
+  public MergeIterator getMergeIterator(
+      List<LeafReaderContext> leaves, FixedBitSet[] bits, SortDoc sortDoc, ExecutorService executor)
+      throws IOException {
     try {
       long totalDocs = 0;
       for (int i = 0; i < leaves.size(); i++) {
@@ -754,7 +819,7 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       for (int i = 0; i < segmentIterators.length; i++) {
         SortQueue sortQueue = new SortQueue(sizes[i], sortDoc.copy());
         segmentIterators[i] =
-            new SegmentIterator(bits[i], leaves.get(i), sortQueue, sortDoc.copy());
+            new SegmentIterator(bits[i], leaves.get(i), sortQueue, sortDoc.copy(), executor);
       }
 
       return new MergeIterator(segmentIterators, sortDoc);
@@ -765,16 +830,27 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
   private static class SegmentIterator {
 
     private final FixedBitSet bits;
-    private final SortQueue queue;
     private final SortDoc sortDoc;
     private final LeafReaderContext context;
-    private final SortDoc[] outDocs;
+    private SortQueue queue;
+    private SortDoc[] outDocs;
+
+    // Only used when sorting ahead: the next batch is sorted into nextQueue and nextOutDocs while
+    // the current one is handed out.
+    private final ExecutorService executor;
+    private SortQueue nextQueue;
+    private SortDoc[] nextOutDocs;
+    private Future<Integer> nextBatch;
 
     private SortDoc nextDoc;
     private int index;
 
     public SegmentIterator(
-        FixedBitSet bits, LeafReaderContext context, SortQueue sortQueue, SortDoc sortDoc)
+        FixedBitSet bits,
+        LeafReaderContext context,
+        SortQueue sortQueue,
+        SortDoc sortDoc,
+        ExecutorService executor)
         throws IOException {
       this.bits = bits;
       this.queue = sortQueue;
@@ -782,7 +858,15 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       this.nextDoc = sortDoc.copy();
       this.context = context;
       this.outDocs = new SortDoc[sortQueue.maxSize];
-      topDocs();
+      this.executor = executor;
+      if (executor == null) {
+        index = topDocs(queue, outDocs);
+      } else {
+        this.nextQueue = new SortQueue(sortQueue.maxSize, sortDoc.copy());
+        this.nextOutDocs = new SortDoc[sortQueue.maxSize];
+        index = -1;
+        sortNextBatch();
+      }
     }
 
     public SortDoc next() throws IOException {
@@ -790,15 +874,22 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       if (index > -1) {
         _sortDoc = outDocs[index--];
       } else {
-        topDocs();
+        if (executor == null) {
+          index = topDocs(queue, outDocs);
+        } else if (nextBatch != null) {
+          swapBatches();
+        }
         if (index > -1) {
           _sortDoc = outDocs[index--];
         }
       }
 
       if (_sortDoc != null) {
-        // Clear the bit so it's not loaded again.
-        bits.clear(_sortDoc.docId);
+        if (executor == null) {
+          // Clear the bit so it's not loaded again. When sorting ahead the whole batch was
+          // cleared before the next one was sorted.
+          bits.clear(_sortDoc.docId);
+        }
 
         // Load the global ordinal (only matters for strings)
         _sortDoc.setGlobalValues(nextDoc);
@@ -812,7 +903,54 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       return nextDoc;
     }
 
-    private void topDocs() throws IOException {
+    private void sortNextBatch() {
+      final SortQueue batchQueue = nextQueue;
+      final SortDoc[] batchDocs = nextOutDocs;
+      nextBatch =
+          executor.submit(
+              () -> {
+                int last = topDocs(batchQueue, batchDocs);
+                for (int i = 0; i <= last; i++) {
+                  bits.clear(batchDocs[i].docId);
+                }
+                return last;
+              });
+    }
+
+    private void swapBatches() throws IOException {
+      int last;
+      try {
+        last = nextBatch.get(ExportBuffers.EXCHANGE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException(e.getCause());
+      } catch (TimeoutException e) {
+        throw new IOException(e);
+      }
+
+      SortQueue doneQueue = queue;
+      SortDoc[] doneDocs = outDocs;
+      queue = nextQueue;
+      outDocs = nextOutDocs;
+      nextQueue = doneQueue;
+      nextOutDocs = doneDocs;
+      index = last;
+
+      // a batch that didn't fill the queue holds all the remaining docs
+      if (last + 1 == queue.maxSize) {
+        sortNextBatch();
+      } else {
+        nextBatch = null;
+      }
+    }
+
+    // Returns the index of the last doc of the batch, -1 if there are no docs left
+    private int topDocs(SortQueue queue, SortDoc[] outDocs) throws IOException {
       try {
         queue.reset();
         SortDoc top = queue.top();
@@ -830,14 +968,15 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
         }
 
         // Pop the queue and load up the array.
-        index = -1;
+        int last = -1;
 
         SortDoc _sortDoc;
         while ((_sortDoc = queue.pop()) != null) {
           if (_sortDoc.docId > -1) {
-            outDocs[++index] = _sortDoc;
+            outDocs[++last] = _sortDoc;
           }
         }
+        return last;
       } catch (Exception e) {
         log.error("Segment Iterator Error:", e);
         throw new IOException(e);
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.export;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.request.SolrQueryRequest;
+
+/**
+ * Reads the field values of a buffer of sorted documents on several threads and writes the
+ * documents out in the order of the buffer.
+ *
+ * <p>The buffer is split in one contiguous chunk per thread. Each chunk is read with its own {@link
+ * FieldWriter}s, as they hold doc values iterators that can't be shared between threads, into
+ * {@link ReadDoc}s that are written as soon as all the chunks before them are.
+ */
+class ParallelDocWriter {
+
+  private final ExportWriter exportWriter;
+  private final List<LeafReaderContext> leaves;
+  private final ExecutorService executor;
+  private final List<List<FieldWriter>> chunkFieldWriters;
+  private final ReadDoc[] docs;
+
+  ParallelDocWriter(
+      ExportWriter exportWriter,
+      SolrQueryRequest req,
+      List<LeafReaderContext> leaves,
+      ExecutorService executor,
+      int bufferSize)
+      throws IOException {
+    this.exportWriter = exportWriter;
+    this.leaves = leaves;
+    this.executor = executor;
+    this.chunkFieldWriters = new ArrayList<>(exportWriter.exportThreads);
+    for (int i = 0; i < exportWriter.exportThreads; i++) {
+      chunkFieldWriters.add(exportWriter.getFieldWriters(exportWriter.fields, req));
+    }
+    this.docs = new ReadDoc[bufferSize];
+    for (int i = 0; i < bufferSize; i++) {
+      docs[i] = new ReadDoc();
+    }
+  }
+
+  void write(ExportBuffers.Buffer buffer, IteratorWriter.ItemWriter writer) throws IOException {
+    final int numDocs = buffer.outDocsIndex + 1;
+    final int chunkSize = Math.ceilDiv(numDocs, chunkFieldWriters.size());
+    List<Future<?>> chunks = new ArrayList<>(chunkFieldWriters.size());
+    for (int start = 0, chunk = 0; start < numDocs; start += chunkSize, chunk++) {
+      final int chunkStart = start;
+      final int chunkEnd = Math.min(numDocs, start + chunkSize);
+      final List<FieldWriter> fieldWriters = chunkFieldWriters.get(chunk);
+      chunks.add(
+          executor.submit(
+              () -> {
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                  docs[i].clear();
+                  exportWriter.writeDoc(buffer.outDocs[i], leaves, docs[i], fieldWriters);
+                }
+                return null;
+              }));
+    }
+
+    for (int chunk = 0; chunk < chunks.size(); chunk++) {
+      await(chunks.get(chunk));
+      int chunkEnd = Math.min(numDocs, (chunk + 1) * chunkSize);
+      for (int i = chunk * chunkSize; i < chunkEnd; i++) {
+        writer.add(docs[i]);
+      }
+    }
+  }
+
+  private static void await(Future<?> chunk) throws IOException {
+    try {
+      chunk.get(ExportBuffers.EXCHANGE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } catch (TimeoutException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * The field values of a document, read ahead of writing. Values that field writers produce
+   * lazily or in reused buffers are copied.
+   */
+  static final class ReadDoc implements MapWriter, MapWriter.EntryWriter {
+    private final List<CharSequence> names = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
+    void clear() {
+      names.clear();
+      values.clear();
+    }
+
+    @Override
+    public MapWriter.EntryWriter put(CharSequence k, Object v) throws IOException {
+      if (v instanceof IteratorWriter) {
+        List<Object> items = new ArrayList<>();
+        ((IteratorWriter) v)
+            .writeIter(
+                new IteratorWriter.ItemWriter() {
+                  @Override
+                  public IteratorWriter.ItemWriter add(Object o) {
+                    items.add(o);
+                    return this;
+                  }
+                });
+        v = items;
+      } else if (v instanceof CharSequence && !(v instanceof String)) {
+        v = v.toString();
+      }
+      names.add(k);
+      values.add(v);
+      return this;
+    }
+
+    @Override
+    public void writeMap(MapWriter.EntryWriter ew) throws IOException {
+      for (int i = 0; i < names.size(); i++) {
+        ew.put(names.get(i), values.get(i));
+      }
+    }
+  }
+}
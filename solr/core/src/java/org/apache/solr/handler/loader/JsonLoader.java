@@ -58,6 +58,7 @@ import org.apache.solr.update.DeleteUpdateCommand;
 import org.apache.solr.update.RollbackUpdateCommand;
 import org.apache.solr.update.processor.UpdateRequestProcessor;
 import org.apache.solr.util.RecordingJSONParser;
+import org.noggit.CharArr;
 import org.noggit.JSONParser;
 import org.noggit.JSONParser.ParseException;
 import org.noggit.ObjectBuilder;
@@ -128,6 +129,9 @@ public class JsonLoader extends ContentStreamLoader {
     protected JSONParser parser;
     protected final int commitWithin;
     protected final boolean overwrite;
+    private final FieldNameCache fieldNames;
+    // the number of fields of the last top level document, to size the next one
+    private int lastDocSize;
 
     SingleThreadedJsonLoader(
         SolrQueryRequest req, SolrQueryResponse rsp, UpdateRequestProcessor processor) {
@@ -137,6 +141,7 @@ public class JsonLoader extends ContentStreamLoader {
 
       commitWithin = req.getParams().getInt(UpdateParams.COMMIT_WITHIN, -1);
       overwrite = req.getParams().getBool(UpdateParams.OVERWRITE, true);
+      fieldNames = new FieldNameCache(req.getSchema());
     }
 
     @Override
@@ -267,7 +272,12 @@ public class JsonLoader extends ContentStreamLoader {
 
             @Override
             public void handle(Map<String, Object> record, String path) {
-              Map<String, Object> copy = getDocMap(record, parser, srcField, mapUniqueKeyOnly);
+              // buildDoc copies the record, which the reader reuses, so it only needs to be copied
+              // here if it is changed
+              Map<String, Object> copy =
+                  echo || srcField != null || mapUniqueKeyOnly
+                      ? getDocMap(record, parser, srcField, mapUniqueKeyOnly)
+                      : record;
 
               if (echo) {
                 if (docs == null) {
@@ -496,7 +506,7 @@ public class JsonLoader extends ContentStreamLoader {
                         + "]");
               }
               ev = assertNextEvent(JSONParser.OBJECT_START);
-              cmd.solrDoc = parseDoc(ev);
+              cmd.solrDoc = parseTopLevelDoc(ev);
             } else if (UpdateRequestHandler.OVERWRITE.equals(key)) {
               cmd.overwrite = parser.getBoolean(); // reads next boolean
             } else if (UpdateRequestHandler.COMMIT_WITHIN.equals(key)) {
@@ -547,7 +557,7 @@ public class JsonLoader extends ContentStreamLoader {
         if (ev == JSONParser.ARRAY_END) break;
 
         assertEvent(ev, JSONParser.OBJECT_START);
-        cmd.solrDoc = parseDoc(ev);
+        cmd.solrDoc = parseTopLevelDoc(ev);
         processor.processAdd(cmd);
       }
     }
@@ -572,16 +582,27 @@ public class JsonLoader extends ContentStreamLoader {
       }
     }
 
+    /** Parses a document, sized for as many fields as the previous one. */
+    private SolrInputDocument parseTopLevelDoc(int ev) throws IOException {
+      SolrInputDocument sdoc =
+          parseDoc(ev, new SolrInputDocument(CollectionUtil.newLinkedHashMap(lastDocSize)));
+      lastDocSize = sdoc.size();
+      return sdoc;
+    }
+
     private SolrInputDocument parseDoc(int ev) throws IOException {
+      return parseDoc(ev, new SolrInputDocument());
+    }
+
+    private SolrInputDocument parseDoc(int ev, SolrInputDocument sdoc) throws IOException {
       assert ev == JSONParser.OBJECT_START;
 
-      SolrInputDocument sdoc = new SolrInputDocument();
       for (; ; ) {
         ev = parser.nextEvent();
         if (ev == JSONParser.OBJECT_END) {
           return sdoc;
         }
-        String fieldName = parser.getString();
+        String fieldName = fieldNames.get(parser.getStringChars());
 
         if (fieldName.equals(JsonLoader.CHILD_DOC_KEY)) { // somewhat legacy
           ev = parser.nextEvent();
@@ -685,6 +706,90 @@ public class JsonLoader extends ContentStreamLoader {
     }
   }
 
+  /**
+   * The field names of the documents of a request. A key that was already seen is looked up from
+   * the characters the parser read, instead of being allocated as a new String for every document.
+   *
+   * <p>The cache starts empty, it is not seeded with the fields of the schema, which may have many
+   * more fields than the documents use. The first time a name is seen, it is looked up in the
+   * schema, and if it is the name of a field, the schema's own String instance is cached.
+   */
+  static final class FieldNameCache {
+    // names beyond this many aren't cached, such as with unique dynamic fields for each document
+    private static final int MAX_SIZE = 1024;
+
+    private final IndexSchema schema;
+    private String[] names = new String[64];
+    private int size;
+
+    FieldNameCache(IndexSchema schema) {
+      this.schema = schema;
+    }
+
+    String get(CharArr chars) {
+      final char[] buf = chars.getArray();
+      final int start = chars.getStart();
+      final int len = chars.size();
+      // same as String.hashCode(), which is cached by the names
+      int hash = 0;
+      for (int i = start; i < start + len; i++) {
+        hash = 31 * hash + buf[i];
+      }
+
+      int mask = names.length - 1;
+      for (int slot = hash & mask; names[slot] != null; slot = (slot + 1) & mask) {
+        String name = names[slot];
+        if (name.hashCode() == hash && equals(name, buf, start, len)) {
+          return name;
+        }
+      }
+
+      String name = new String(buf, start, len);
+      if (size < MAX_SIZE) {
+        SchemaField field = schema == null ? null : schema.getFieldOrNull(name);
+        if (field != null && field.getName().equals(name)) {
+          name = field.getName();
+        }
+        if (++size * 2 > names.length) {
+          grow();
+        }
+        insert(names, name);
+      }
+      return name;
+    }
+
+    private static boolean equals(String name, char[] buf, int start, int len) {
+      if (name.length() != len) {
+        return false;
+      }
+      for (int i = 0; i < len; i++) {
+        if (name.charAt(i) != buf[start + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void grow() {
+      String[] grown = new String[names.length * 2];
+      for (String name : names) {
+        if (name != null) {
+          insert(grown, name);
+        }
+      }
+      names = grown;
+    }
+
+    private static void insert(String[] names, String name) {
+      int mask = names.length - 1;
+      int slot = name.hashCode() & mask;
+      while (names[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      names[slot] = name;
+    }
+  }
+
   private static Object changeChildDoc(Object o) {
     if (o instanceof List) {
       return ((List<?>) o).stream().map(JsonLoader::changeChildDoc).collect(toList());
@@ -40,6 +40,7 @@ import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.DocList;
 import org.apache.solr.search.ReturnFields;
+import org.apache.solr.search.SolrDocumentFetcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -109,7 +110,14 @@ public class JavaBinResponseWriter implements QueryResponseWriter {
 
         SchemaField sf = schema.getFieldOrNull(f.name());
         try {
-          o = DocsStreamer.getValue(sf, f);
+          if (f instanceof SolrDocumentFetcher.LargeLazyField large
+              && sf != null
+              && sf.getType().isUtf8Field()) {
+            // the stored bytes are already what we write
+            o = large.utf8Value();
+          } else {
+            o = DocsStreamer.getValue(sf, f);
+          }
         } catch (Exception e) {
           log.warn("Error reading a field : {}", o, e);
         }
@@ -445,6 +445,12 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.nullPolicy = NullPolicy.fromString(localParams.get("nullPolicy"));
     }
 
+    @Override
+    public boolean supportsConcurrentSlices() {
+      // the group heads are selected across all segments
+      return false;
+    }
+
     @Override
     @SuppressWarnings({"unchecked"})
     public DelegatingCollector getFilterCollector(IndexSearcher indexSearcher) {
@@ -59,6 +59,12 @@ public class FunctionRangeQuery extends ExtendedQueryBase implements PostFilter
     return new FunctionRangeCollector(fcontext, weight);
   }
 
+  @Override
+  public boolean supportsConcurrentSlices() {
+    // each collector gets its own context and only consults per-segment FunctionValues
+    return true;
+  }
+
   class FunctionRangeCollector extends DelegatingCollector {
     final Map<Object, Object> fcontext;
     final Weight weight;
@@ -23,10 +23,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.SimpleCollector;
@@ -34,6 +38,8 @@ import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +56,7 @@ public class MultiThreadedSearcher {
       int len,
       QueryCommand cmd,
       Query query,
+      SolrIndexSearcher.ProcessedFilter pf,
       boolean needTopDocs,
       boolean needMaxScore,
       boolean needDocSet)
@@ -90,7 +97,8 @@ public class MultiThreadedSearcher {
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     CollectorManager<Collector, Object>[] colls = collectors.toArray(new CollectorManager[0]);
-    SolrMultiCollectorManager manager = new SolrMultiCollectorManager(colls);
+    SliceCollectorManager<SolrMultiCollectorManager.Collectors, Object[]> manager =
+        new SliceCollectorManager<>(new SolrMultiCollectorManager(colls), pf.postFilters);
     Object[] ret;
     try {
       ret = searcher.search(query, manager);
@@ -108,14 +116,37 @@ public class MultiThreadedSearcher {
 
     ScoreMode scoreMode = SolrMultiCollectorManager.scoreMode(firstCollectors);
 
-    return new SearchResult(scoreMode, ret);
+    return new SearchResult(scoreMode, ret, manager.sliceTimings);
   }
 
-  static boolean allowMT(DelegatingCollector postFilter, QueryCommand cmd) {
+  static boolean allowMT(SolrIndexSearcher.ProcessedFilter pf, QueryCommand cmd) {
     // TODO: it's unclear if segmentTerminateEarly is truly incompatible but
     //  since it has to appropriately denote partial results this needs to be
     //  investigated/tested before we can remove this check (perhaps for 9.8).
-    return postFilter == null && !cmd.getSegmentTerminateEarly() && cmd.getMultiThreaded();
+    // A RankQuery (e.g. rerank) reranks the top docs of the whole index; a collector per slice
+    // would rerank the top docs of each slice instead.
+    return (pf.postFilter == null || allowMT(pf.postFilters))
+        && !(cmd.getQuery() instanceof RankQuery)
+        && !cmd.getSegmentTerminateEarly()
+        && cmd.getMultiThreaded();
+  }
+
+  /**
+   * Post filters can only be used with concurrent slices if each of them can hand out an
+   * independent collector per slice.
+   *
+   * @see PostFilter#supportsConcurrentSlices()
+   */
+  static boolean allowMT(List<PostFilter> postFilters) {
+    if (postFilters == null) {
+      return false;
+    }
+    for (PostFilter postFilter : postFilters) {
+      if (!postFilter.supportsConcurrentSlices()) {
+        return false;
+      }
+    }
+    return true;
   }
 
   static class MaxScoreResult {
@@ -187,13 +218,103 @@ public class MultiThreadedSearcher {
     }
   }
 
+  /**
+   * Wraps the collector of each slice so that it gets its own chain of post filter collectors (if
+   * any), and records per-slice timings. The post filter chains are completed before the wrapped
+   * collectors are reduced, so the merge sees the same input it would in a single threaded search.
+   */
+  private class SliceCollectorManager<C extends Collector, T>
+      implements CollectorManager<SliceCollector<C>, T> {
+    private final CollectorManager<C, T> in;
+    private final List<PostFilter> postFilters;
+    private final NamedList<Object> sliceTimings = new SimpleOrderedMap<>();
+
+    SliceCollectorManager(CollectorManager<C, T> in, List<PostFilter> postFilters) {
+      this.in = in;
+      this.postFilters = postFilters;
+    }
+
+    @Override
+    public SliceCollector<C> newCollector() throws IOException {
+      C collector = in.newCollector();
+      DelegatingCollector postFilter = null;
+      if (postFilters != null) {
+        postFilter = SolrIndexSearcher.buildPostFilterChain(postFilters, searcher);
+        postFilter.setLastDelegate(collector);
+      }
+      return new SliceCollector<>(collector, postFilter);
+    }
+
+    @Override
+    public T reduce(Collection<SliceCollector<C>> sliceCollectors) throws IOException {
+      List<C> collectors = new ArrayList<>(sliceCollectors.size());
+      int slice = 0;
+      for (SliceCollector<C> sliceCollector : sliceCollectors) {
+        if (sliceCollector.postFilter != null) {
+          sliceCollector.postFilter.complete();
+        }
+        collectors.add(sliceCollector.collector);
+        sliceTimings.add("slice" + slice++, sliceCollector.getTimings());
+      }
+      return in.reduce(collectors);
+    }
+  }
+
+  /** Collects a single slice, recording which leaves were visited and for how long. */
+  private static class SliceCollector<C extends Collector> implements Collector {
+    private final C collector;
+    private final DelegatingCollector postFilter;
+    private final Collector top;
+    private int leaves;
+    private int maxDoc;
+    private long startNanos;
+    private long endNanos;
+
+    SliceCollector(C collector, DelegatingCollector postFilter) {
+      this.collector = collector;
+      this.postFilter = postFilter;
+      this.top = postFilter == null ? collector : postFilter;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+      if (leaves++ == 0) {
+        startNanos = System.nanoTime();
+      }
+      maxDoc += context.reader().maxDoc();
+      endNanos = System.nanoTime();
+      return new FilterLeafCollector(top.getLeafCollector(context)) {
+        @Override
+        public void finish() throws IOException {
+          in.finish();
+          endNanos = System.nanoTime();
+        }
+      };
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+      return top.scoreMode();
+    }
+
+    NamedList<Object> getTimings() {
+      NamedList<Object> timings = new SimpleOrderedMap<>();
+      timings.add("leaves", leaves);
+      timings.add("maxDoc", maxDoc);
+      timings.add("time", TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+      return timings;
+    }
+  }
+
   static class SearchResult {
     final ScoreMode scoreMode;
     private final Object[] result;
+    final NamedList<Object> sliceTimings;
 
-    public SearchResult(ScoreMode scoreMode, Object[] result) {
+    public SearchResult(ScoreMode scoreMode, Object[] result, NamedList<Object> sliceTimings) {
       this.scoreMode = scoreMode;
       this.result = result;
+      this.sliceTimings = sliceTimings;
     }
 
     public TopDocsResult getTopDocsResult() {
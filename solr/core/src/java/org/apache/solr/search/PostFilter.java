@@ -43,4 +43,15 @@ public interface PostFilter extends ExtendedQuery {
    * any sorting or grouping collectors
    */
   public DelegatingCollector getFilterCollector(IndexSearcher searcher);
+
+  /**
+   * Returns true if the collectors returned by {@link #getFilterCollector(IndexSearcher)} are
+   * independent of one another and only look at the segments they are given, such that a separate
+   * collector may be obtained for each slice of a multi-threaded search. Post filters that buffer
+   * documents across segments, or that rely on seeing every segment in order (e.g. collapsing),
+   * must return false, which is the default.
+   */
+  default boolean supportsConcurrentSlices() {
+    return false;
+  }
 }
@@ -16,6 +16,8 @@
  */
 package org.apache.solr.search;
 
+import org.apache.solr.common.util.NamedList;
+
 /** The result of a search. */
 public class QueryResult {
 
@@ -24,6 +26,7 @@ public class QueryResult {
   private Boolean segmentTerminatedEarly;
   private DocListAndSet docListAndSet;
   private CursorMark nextCursorMark;
+  private NamedList<Object> sliceTimings;
 
   public Object groupedResults; // TODO: currently for testing
 
@@ -85,4 +88,16 @@ public class QueryResult {
   public CursorMark getNextCursorMark() {
     return nextCursorMark;
   }
+
+  /**
+   * Per-slice timings of a multi-threaded search, or null if the search was single threaded (or
+   * served from the cache).
+   */
+  public NamedList<Object> getSliceTimings() {
+    return sliceTimings;
+  }
+
+  public void setSliceTimings(NamedList<Object> sliceTimings) {
+    this.sliceTimings = sliceTimings;
+  }
 }
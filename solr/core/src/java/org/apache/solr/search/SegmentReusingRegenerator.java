@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A filterCache regenerator that reuses the matches of the old DocSet for segments that did not
+ * change between the old and the new searcher, and only executes the filter against new or merged
+ * segments. Deletions made to an unchanged segment since the old searcher was opened are applied
+ * to the reused matches.
+ *
+ * <p>Configure it on the filterCache with <code>regenerator="solr.SegmentReusingRegenerator"
+ * </code>. This is only correct for filters whose matches in a segment depend solely on the
+ * documents of that segment; it must not be used when filters such as <code>{!join}</code> or
+ * <code>{!graph}</code> are cached.
+ */
+public class SegmentReusingRegenerator implements CacheRegenerator {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Override
+  public <K, V> boolean regenerateItem(
+      SolrIndexSearcher newSearcher,
+      SolrCache<K, V> newCache,
+      SolrCache<K, V> oldCache,
+      K oldKey,
+      V oldVal)
+      throws IOException {
+    SolrIndexSearcher oldSearcher = newSearcher.getAutowarmSource();
+    if (oldSearcher == null || !(oldVal instanceof DocSet)) {
+      newSearcher.cacheDocSet((Query) oldKey, null, false);
+    } else {
+      DocSet docSet = regenerate(newSearcher, oldSearcher, (Query) oldKey, (DocSet) oldVal);
+      newSearcher.cacheDocSet((Query) oldKey, docSet, true);
+    }
+    return true;
+  }
+
+  /**
+   * Computes the DocSet of a (positive) query against <code>newSearcher</code>, copying the
+   * matches of <code>oldSet</code> for the segments shared with <code>oldSearcher</code>.
+   */
+  static DocSet regenerate(
+      SolrIndexSearcher newSearcher, SolrIndexSearcher oldSearcher, Query query, DocSet oldSet)
+      throws IOException {
+    Map<IndexReader.CacheKey, LeafReaderContext> oldLeaves = new HashMap<>();
+    for (LeafReaderContext oldLeaf : oldSearcher.getTopReaderContext().leaves()) {
+      IndexReader.CacheKey key = coreKey(oldLeaf.reader());
+      if (key != null) {
+        oldLeaves.put(key, oldLeaf);
+      }
+    }
+
+    DocSetCollector collector = new DocSetCollector(newSearcher.maxDoc());
+    Weight weight = null;
+    int reused = 0;
+    for (LeafReaderContext leaf : newSearcher.getTopReaderContext().leaves()) {
+      LeafCollector leafCollector = collector.getLeafCollector(leaf);
+      Bits liveDocs = leaf.reader().getLiveDocs();
+      LeafReaderContext oldLeaf = oldLeaves.get(coreKey(leaf.reader()));
+      if (oldLeaf != null && sameDocValues(oldLeaf.reader(), leaf.reader())) {
+        DocIdSetIterator it = oldSet.iterator(oldLeaf);
+        if (it != null) {
+          for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+              leafCollector.collect(doc);
+            }
+          }
+        }
+        reused++;
+      } else {
+        if (weight == null) {
+          Query rewritten = newSearcher.rewrite(QueryUtils.makeQueryable(query));
+          weight = newSearcher.createWeight(rewritten, ScoreMode.COMPLETE_NO_SCORES, 1f);
+        }
+        BulkScorer scorer = weight.bulkScorer(leaf);
+        if (scorer != null) {
+          scorer.score(leafCollector, liveDocs);
+        }
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "regenerated {} reusing {} of {} segments",
+          query,
+          reused,
+          newSearcher.getTopReaderContext().leaves().size());
+    }
+    return DocSetUtil.getDocSet(collector, newSearcher);
+  }
+
+  private static IndexReader.CacheKey coreKey(LeafReader reader) {
+    IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+    return cacheHelper == null ? null : cacheHelper.getKey();
+  }
+
+  /** True if no docValues updates (including soft deletes) happened between the two readers. */
+  private static boolean sameDocValues(LeafReader oldReader, LeafReader newReader) {
+    LeafReader oldSegment = FilterLeafReader.unwrap(oldReader);
+    LeafReader newSegment = FilterLeafReader.unwrap(newReader);
+    if (oldSegment instanceof SegmentReader oldSegmentReader
+        && newSegment instanceof SegmentReader newSegmentReader) {
+      return oldSegmentReader.getSegmentInfo().getDocValuesGen()
+          == newSegmentReader.getSegmentInfo().getDocValuesGen();
+    }
+    return false;
+  }
+}
@@ -29,9 +29,10 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
@@ -64,9 +65,10 @@ import org.apache.lucene.util.NumericUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentBase;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
+import org.apache.solr.common.util.Utf8CharSequence;
 import org.apache.solr.core.SolrConfig;
 import org.apache.solr.response.DocsStreamer;
-import org.apache.solr.response.ResultContext;
 import org.apache.solr.schema.AbstractEnumField;
 import org.apache.solr.schema.BoolField;
 import org.apache.solr.schema.LatLonPointSpatialField;
@@ -121,6 +123,9 @@ public class SolrDocumentFetcher {
 
   private final StoredFields storedFields;
 
+  /** The frozen type of the stored string fields of each segment's field, shared by all values */
+  private final Map<FieldInfo, FieldType> storedStringTypes;
+
   private SolrDocumentFetcher(SolrDocumentFetcher template, StoredFields storedFields) {
     this.searcher = template.searcher;
     this.nLeaves = template.nLeaves;
@@ -135,6 +140,7 @@ public class SolrDocumentFetcher {
     this.storedHighlightFieldNames = template.indexedFieldNames;
     this.indexedFieldNames = template.indexedFieldNames;
     this.storedFields = storedFields;
+    this.storedStringTypes = template.storedStringTypes;
   }
 
   @Override
@@ -150,6 +156,7 @@ public class SolrDocumentFetcher {
   SolrDocumentFetcher(SolrIndexSearcher searcher, SolrConfig solrConfig, boolean cachingEnabled) {
     this.searcher = searcher;
     this.nLeaves = searcher.getTopReaderContext().leaves().size();
+    this.storedStringTypes = new ConcurrentHashMap<>();
     if (cachingEnabled) {
       documentCache =
           solrConfig.documentCacheConfig == null
@@ -371,17 +378,9 @@ public class SolrDocumentFetcher {
 
     @Override
     public void stringField(FieldInfo fieldInfo, String value) throws IOException {
-      Predicate<String> readAsBytes = ResultContext.READASBYTES.get();
-      if (readAsBytes != null && readAsBytes.test(fieldInfo.name)) {
-        final FieldType ft = new FieldType(TextField.TYPE_STORED);
-        ft.setStoreTermVectors(fieldInfo.hasVectors());
-        ft.setOmitNorms(fieldInfo.omitsNorms());
-        ft.setIndexOptions(fieldInfo.getIndexOptions());
-        Objects.requireNonNull(value, "String value should not be null");
-        doc.add(new StoredField(fieldInfo.name, value, ft));
-      } else {
-        super.stringField(fieldInfo, value);
-      }
+      // same as super, without a new FieldType for every value
+      Objects.requireNonNull(value, "String value should not be null");
+      doc.add(new StoredField(fieldInfo.name, value, storedStringType(fieldInfo)));
     }
 
     @Override
@@ -402,6 +401,19 @@ public class SolrDocumentFetcher {
     }
   }
 
+  private FieldType storedStringType(FieldInfo fieldInfo) {
+    return storedStringTypes.computeIfAbsent(
+        fieldInfo,
+        fi -> {
+          final FieldType ft = new FieldType(TextField.TYPE_STORED);
+          ft.setStoreTermVectors(fi.hasVectors());
+          ft.setOmitNorms(fi.omitsNorms());
+          ft.setIndexOptions(fi.getIndexOptions());
+          ft.freeze();
+          return ft;
+        });
+  }
+
   /** Visit a document's fields using a {@link StoredFieldVisitor}. */
   public void doc(int docId, StoredFieldVisitor visitor) throws IOException {
     if (documentCache != null) {
@@ -461,19 +473,15 @@ public class SolrDocumentFetcher {
     if (bytesRef.offset == 0 && bytesRef.bytes.length == bytesRef.length) {
       return new String(bytesRef.bytes, StandardCharsets.UTF_8);
     } else {
-      return new String(
-          bytesRef.bytes,
-          bytesRef.offset,
-          bytesRef.offset + bytesRef.length,
-          StandardCharsets.UTF_8);
+      return new String(bytesRef.bytes, bytesRef.offset, bytesRef.length, StandardCharsets.UTF_8);
     }
   }
 
   /**
    * Unlike LazyDocument.LazyField, we (a) don't cache large values, and (b) provide access to the
-   * byte[].
+   * byte[]. The javabin response writer writes these bytes as they are, see {@link #utf8Value()}.
    */
-  class LargeLazyField implements IndexableField {
+  public class LargeLazyField implements IndexableField {
 
     final String name;
     final int docId;
@@ -520,6 +528,12 @@ public class SolrDocumentFetcher {
       }
     }
 
+    /** The UTF-8 encoded value, to be written without decoding it to a String first */
+    public synchronized Utf8CharSequence utf8Value() throws IOException {
+      BytesRef bytes = readBytes();
+      return new ByteArrayUtf8CharSequence(bytes.bytes, bytes.offset, bytes.length);
+    }
+
     synchronized BytesRef readBytes() throws IOException {
       if (cachedBytes != null) {
         return cachedBytes;
@@ -16,10 +16,14 @@
  */
 package org.apache.solr.search;
 
+import java.io.IOException;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
 import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.uninverting.UninvertingReader;
+import org.apache.solr.util.RefCounted;
 
 /** A SolrInfoBean that provides introspection of the Solr FieldCache */
 public class SolrFieldCacheBean implements SolrInfoBean {
@@ -28,8 +32,21 @@ public class SolrFieldCacheBean implements SolrInfoBean {
   private boolean disableJmxEntryList =
       Boolean.getBoolean("disableSolrFieldCacheMBeanEntryListJmx");
 
+  private final SolrCore core;
   private SolrMetricsContext solrMetricsContext;
 
+  public SolrFieldCacheBean() {
+    this(null);
+  }
+
+  /**
+   * @param core if not null, the top-level {@link UnInvertedField}s of the core's current searcher
+   *     are reported as well
+   */
+  public SolrFieldCacheBean(SolrCore core) {
+    this.core = core;
+  }
+
   @Override
   public String getName() {
     return this.getClass().getName();
@@ -69,7 +86,29 @@ public class SolrFieldCacheBean implements SolrInfoBean {
               } else {
                 map.put("entries_count", UninvertingReader.getUninvertedStatsSize());
               }
+              if (core != null) {
+                addUnInvertedFieldStats(map);
+              }
             });
     solrMetricsContext.gauge(metricsMap, true, "fieldCache", Category.CACHE.toString(), scope);
   }
+
+  private void addUnInvertedFieldStats(MapWriter.EntryWriter map) throws IOException {
+    if (core.isClosed()) {
+      return;
+    }
+    RefCounted<SolrIndexSearcher> searcher = core.getRegisteredSearcher();
+    if (searcher == null) {
+      return;
+    }
+    try {
+      SolrCache<String, UnInvertedField> fieldValueCache = searcher.get().getFieldValueCache();
+      if (fieldValueCache != null) {
+        map.put("uninvertedField_entries_count", fieldValueCache.size());
+        map.put("uninvertedField_total_size", fieldValueCache.ramBytesUsed());
+      }
+    } finally {
+      searcher.decref();
+    }
+  }
 }
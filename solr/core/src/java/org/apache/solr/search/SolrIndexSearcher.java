@@ -58,16 +58,19 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.CollectionStatistics;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.ScoreMode;
@@ -159,6 +162,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final long openNanoTime = System.nanoTime();
   private Date registerTime;
   private long warmupTime = 0;
+  // the searcher whose caches this one is being autowarmed from; only set during warm()
+  private volatile SolrIndexSearcher autowarmSource;
   private final DirectoryReader reader;
   private final boolean closeReader;
 
@@ -168,6 +173,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
 
   private final boolean cachingEnabled;
   private final SolrCache<Query, DocSet> filterCache;
+  // per-segment matches of filterCache entries, shared with the other searchers; maybe null
+  private final LRUQueryCache segmentFilterCache;
   private final SolrCache<QueryResultKey, DocList> queryResultCache;
   private final SolrCache<String, UnInvertedField> fieldValueCache;
   private final LongAdder fullSortCount = new LongAdder();
@@ -432,6 +439,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       filterCache =
           solrConfig.filterCacheConfig == null ? null : solrConfig.filterCacheConfig.newInstance();
       if (filterCache != null) clist.add(filterCache);
+      segmentFilterCache = filterCache == null ? null : core.getSegmentFilterCache();
       queryResultCache =
           solrConfig.queryResultCacheConfig == null
               ? null
@@ -456,6 +464,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       cacheList = clist.toArray(new SolrCache[0]);
     } else {
       this.filterCache = null;
+      this.segmentFilterCache = null;
       this.queryResultCache = null;
       this.fieldValueCache = null;
       this.cacheMap = NO_GENERIC_CACHES;
@@ -1033,17 +1042,53 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
 
       // Not found in the cache so compute and put in the cache
       if (answer == null) {
-        answer = getDocSetNC(query, null);
+        answer = getDocSetForCache(query);
         filterCache.put(query, answer);
       }
     } else {
-      answer = filterCache.computeIfAbsent(query, q -> getDocSetNC(q, null));
+      answer = filterCache.computeIfAbsent(query, this::getDocSetForCache);
     }
 
     assert !(answer instanceof MutableBitDocSet) : "should not be mutable";
     return answer;
   }
 
+  /** Every filter that gets to the segmentFilterCache was already chosen to be cached. */
+  private static final QueryCachingPolicy SEGMENT_FILTER_CACHING_POLICY =
+      new QueryCachingPolicy() {
+        @Override
+        public void onUse(Query query) {}
+
+        @Override
+        public boolean shouldCache(Query query) {
+          return true;
+        }
+      };
+
+  /**
+   * Computes the DocSet of a query that is about to be put in the filterCache. If per-segment
+   * filter caching is enabled, the matches of each segment are looked up in (or added to) the
+   * segmentFilterCache, so that only segments new to this searcher need to be computed.
+   */
+  private DocSet getDocSetForCache(Query query) throws IOException {
+    if (segmentFilterCache == null || query instanceof DocSetProducer) {
+      return getDocSetNC(query, null);
+    }
+    Weight weight =
+        segmentFilterCache.doCache(
+            createWeight(rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f),
+            SEGMENT_FILTER_CACHING_POLICY);
+    DocSetCollector collector = new DocSetCollector(maxDoc());
+    for (LeafReaderContext leaf : leafContexts) {
+      // weights that are not cacheable on a segment (e.g. joins) just execute against it
+      BulkScorer scorer = weight.bulkScorer(leaf);
+      if (scorer != null) {
+        scorer.score(collector.getLeafCollector(leaf), leaf.reader().getLiveDocs());
+      }
+    }
+    return DocSetUtil.getDocSet(collector, this);
+  }
+
   private static final MatchAllDocsQuery MATCH_ALL_DOCS_QUERY = new MatchAllDocsQuery();
 
   /** Used as a synchronization point to handle the lazy-init of {@link #liveDocs}. */
@@ -1202,6 +1247,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     public DocSet answer;
     public Query filter; // maybe null.  Scoring is irrelevant / unspecified.
     public DelegatingCollector postFilter; // maybe null
+    List<PostFilter> postFilters; // the PostFilters of postFilter, sorted by cost; maybe null
   }
 
   /**
@@ -1337,16 +1383,28 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // Set pf.postFilter
     if (postFilters != null) {
       postFilters.sort(sortByCost);
-      for (int i = postFilters.size() - 1; i >= 0; i--) {
-        DelegatingCollector prev = pf.postFilter;
-        pf.postFilter = postFilters.get(i).getFilterCollector(this);
-        if (prev != null) pf.postFilter.setDelegate(prev);
-      }
+      pf.postFilters = postFilters;
+      pf.postFilter = buildPostFilterChain(postFilters, this);
     }
 
     return pf;
   }
 
+  /**
+   * Chains the collectors of the given post filters, the cheapest first. Each call returns a new,
+   * independent chain.
+   */
+  static DelegatingCollector buildPostFilterChain(
+      List<PostFilter> postFilters, IndexSearcher searcher) {
+    DelegatingCollector chain = null;
+    for (int i = postFilters.size() - 1; i >= 0; i--) {
+      DelegatingCollector prev = chain;
+      chain = postFilters.get(i).getFilterCollector(searcher);
+      if (prev != null) chain.setDelegate(prev);
+    }
+    return chain;
+  }
+
   /**
    * @lucene.internal
    */
@@ -1947,7 +2005,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       }
       final TopDocs topDocs;
       final ScoreMode scoreModeUsed;
-      if (!MultiThreadedSearcher.allowMT(pf.postFilter, cmd)) {
+      if (!MultiThreadedSearcher.allowMT(pf, cmd)) {
         log.trace("SINGLE THREADED search, skipping collector manager in getDocListNC");
         final TopDocsCollector<?> topCollector = buildTopDocsCollector(len, cmd);
         MaxScoreCollector maxScoreCollector = null;
@@ -1970,8 +2028,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         log.trace("MULTI-THREADED search, using CollectorManager int getDocListNC");
         final MultiThreadedSearcher.SearchResult searchResult =
             new MultiThreadedSearcher(this)
-                .searchCollectorManagers(len, cmd, query, true, needScores, false);
+                .searchCollectorManagers(len, cmd, query, pf, true, needScores, false);
         scoreModeUsed = searchResult.scoreMode;
+        qr.setSliceTimings(searchResult.sliceTimings);
 
         MultiThreadedSearcher.TopDocsResult topDocsResult = searchResult.getTopDocsResult();
         totalHits = topDocsResult.totalHits;
@@ -2068,7 +2127,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       qr.setNextCursorMark(cmd.getCursorMark());
     } else {
       final TopDocs topDocs;
-      if (!MultiThreadedSearcher.allowMT(pf.postFilter, cmd)) {
+      if (!MultiThreadedSearcher.allowMT(pf, cmd)) {
         log.trace("SINGLE THREADED search, skipping collector manager in getDocListAndSetNC");
 
         @SuppressWarnings({"rawtypes"})
@@ -2102,7 +2161,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         boolean needMaxScore = needScores;
         MultiThreadedSearcher.SearchResult searchResult =
             new MultiThreadedSearcher(this)
-                .searchCollectorManagers(len, cmd, query, true, needMaxScore, true);
+                .searchCollectorManagers(len, cmd, query, pf, true, needMaxScore, true);
+        qr.setSliceTimings(searchResult.sliceTimings);
         MultiThreadedSearcher.TopDocsResult topDocsResult = searchResult.getTopDocsResult();
         totalHits = topDocsResult.totalHits;
         topDocs = topDocsResult.topDocs;
@@ -2513,42 +2573,56 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // warm the caches in order...
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.add("warming", "true");
-    for (int i = 0; i < cacheList.length; i++) {
-      if (log.isDebugEnabled()) {
-        log.debug("autowarming [{}] from [{}]\n\t{}", this, old, old.cacheList[i]);
-      }
+    autowarmSource = old;
+    try {
+      for (int i = 0; i < cacheList.length; i++) {
+        if (log.isDebugEnabled()) {
+          log.debug("autowarming [{}] from [{}]\n\t{}", this, old, old.cacheList[i]);
+        }
 
-      final SolrQueryRequest req =
-          new LocalSolrQueryRequest(core, params) {
-            @Override
-            public SolrIndexSearcher getSearcher() {
-              return SolrIndexSearcher.this;
-            }
+        final SolrQueryRequest req =
+            new LocalSolrQueryRequest(core, params) {
+              @Override
+              public SolrIndexSearcher getSearcher() {
+                return SolrIndexSearcher.this;
+              }
 
-            @Override
-            public void close() {}
-          };
+              @Override
+              public void close() {}
+            };
 
-      final SolrQueryResponse rsp = new SolrQueryResponse();
-      SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
-      try {
-        cacheList[i].warm(this, old.cacheList[i]);
-      } finally {
+        final SolrQueryResponse rsp = new SolrQueryResponse();
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
         try {
-          req.close();
+          cacheList[i].warm(this, old.cacheList[i]);
         } finally {
-          SolrRequestInfo.clearRequestInfo();
+          try {
+            req.close();
+          } finally {
+            SolrRequestInfo.clearRequestInfo();
+          }
         }
-      }
 
-      if (log.isDebugEnabled()) {
-        log.debug("autowarming result for [{}]\n\t{}", this, cacheList[i]);
+        if (log.isDebugEnabled()) {
+          log.debug("autowarming result for [{}]\n\t{}", this, cacheList[i]);
+        }
       }
+    } finally {
+      autowarmSource = null;
     }
     warmupTime =
         TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
   }
 
+  /**
+   * Returns the searcher whose caches are currently being used to autowarm the caches of this
+   * searcher, or null if this searcher is not being autowarmed. Regenerators may use it to reuse
+   * work done against the old searcher.
+   */
+  SolrIndexSearcher getAutowarmSource() {
+    return autowarmSource;
+  }
+
   /** return the named generic cache */
   @SuppressWarnings({"rawtypes"})
   public SolrCache getCache(String cacheName) {
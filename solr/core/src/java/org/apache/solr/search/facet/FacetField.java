@@ -83,11 +83,16 @@ public class FacetField extends FacetRequestSorted {
     SchemaField sf = fcontext.searcher.getSchema().getField(field);
     FieldType ft = sf.getType();
     boolean multiToken = sf.multiValued() || ft.multiValuedFieldCache();
+    boolean uninvertPerSegment = FieldUtil.isUninvertedPerSegment(fcontext.searcher, sf);
 
     if (fcontext.facetInfo != null) {
       // refinement... we will end up either skipping the entire facet, or doing calculating only
       // specific facet buckets
-      if (multiToken && !sf.hasDocValues() && method != FacetMethod.DV && sf.isUninvertible()) {
+      if (multiToken
+          && !sf.hasDocValues()
+          && method != FacetMethod.DV
+          && sf.isUninvertible()
+          && !uninvertPerSegment) {
         // Match the access method from the first phase.
         // It won't always matter, but does currently for an all-values bucket
         return new FacetFieldProcessorByArrayUIF(fcontext, this, sf);
@@ -159,7 +164,10 @@ public class FacetField extends FacetRequestSorted {
       return new FacetFieldProcessorByHashDV(fcontext, this, sf);
     }
 
-    if (sf.hasDocValues() || method == FacetMethod.DV || !sf.isUninvertible()) {
+    if (sf.hasDocValues()
+        || method == FacetMethod.DV
+        || !sf.isUninvertible()
+        || uninvertPerSegment) {
       // single and multi-valued string docValues
       return new FacetFieldProcessorByArrayDV(fcontext, this, sf);
     }
@@ -75,7 +75,9 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
     List<SimpleOrderedMap<?>> bucketList = (List<SimpleOrderedMap<?>>) facetResult.get("buckets");
     numReturnedPerShard[mcontext.shardNum] = bucketList.size();
     numReturnedBuckets += bucketList.size();
+    trackMaxMissingCount(facetResult, bucketList, mcontext);
     mergeBucketList(bucketList, mcontext);
+    pruneMergedBuckets(mcontext);
 
     if (freq.numBuckets) {
       Object nb = facetResult.get("numBuckets");
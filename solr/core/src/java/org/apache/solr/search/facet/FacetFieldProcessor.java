@@ -815,6 +815,14 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
       }
     }
 
+    @Override
+    public void collect(int[] docs, int[] slots, int count, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      for (SlotAcc acc : subAccs) {
+        acc.collect(docs, slots, count, slotContext);
+      }
+    }
+
     @Override
     public int compare(int slotA, int slotB) {
       throw new UnsupportedOperationException();
@@ -46,6 +46,12 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
   SortedSetDocValues si; // only used for term lookups (for both single and multi-valued)
   OrdinalMap ordinalMap = null; // maps per-segment ords to global ords
 
+  // Documents collected into collectAcc are passed to it a block at a time. This is only done when
+  // there is no allBucketsAcc, since that one collects into collectAcc too, one document at a time.
+  private int[] blockDocs;
+  private int[] blockSlots;
+  private int blockCount;
+
   FacetFieldProcessorByArrayDV(FacetContext fcontext, FacetField freq, SchemaField sf) {
     super(fcontext, freq, sf);
     multiValuedField = sf.multiValued() || sf.getType().multiValuedFieldCache();
@@ -130,6 +136,11 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
     if (freq.perSeg != null)
       accumSeg = canDoPerSeg && freq.perSeg; // internal - override perSeg heuristic
 
+    if (collectAcc != null && allBucketsAcc == null) {
+      blockDocs = new int[SlotAcc.BLOCK_SIZE];
+      blockSlots = new int[SlotAcc.BLOCK_SIZE];
+    }
+
     final int maxSize = others.size() + 1; // others + base
     final List<LeafReaderContext> leaves = fcontext.searcher.getIndexReader().leaves();
     final DocIdSetIterator[] subIterators = new DocIdSetIterator[maxSize];
@@ -332,6 +343,7 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
         collect(doc, segOrd, toGlobal, segCounter, maxIdx, disi.collectBase());
       }
     }
+    flushBlock();
   }
 
   private void collectCounts(SortedDocValues singleDv, SweepDISI disi, LongValues toGlobal)
@@ -376,6 +388,7 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
         }
       }
     }
+    flushBlock();
   }
 
   private void collectCounts(SortedSetDocValues multiDv, SweepDISI disi, LongValues toGlobal)
@@ -411,7 +424,13 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
     if (arrIdx >= 0 && arrIdx < nTerms) {
       segCounter.incrementCount(arrIdx, 1, maxIdx);
       if (collectBase) {
-        if (collectAcc != null) {
+        if (blockDocs != null) {
+          blockDocs[blockCount] = doc;
+          blockSlots[blockCount] = arrIdx;
+          if (++blockCount == blockDocs.length) {
+            flushBlock();
+          }
+        } else if (collectAcc != null) {
           collectAcc.collect(doc, arrIdx, slotContext);
         }
         if (allBucketsAcc != null) {
@@ -420,4 +439,12 @@ class FacetFieldProcessorByArrayDV extends FacetFieldProcessorByArray {
       }
     }
   }
+
+  /** Passes the buffered documents of the current segment to collectAcc */
+  private void flushBlock() throws IOException {
+    if (blockCount > 0) {
+      collectAcc.collect(blockDocs, blockSlots, blockCount, slotContext);
+      blockCount = 0;
+    }
+  }
 }
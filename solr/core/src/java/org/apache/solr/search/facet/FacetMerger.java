@@ -24,7 +24,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import org.apache.solr.common.util.NamedList;
 
 public abstract class FacetMerger {
   public abstract void merge(Object facetResult, Context mcontext);
@@ -69,6 +71,37 @@ public abstract class FacetMerger {
       this.shardNum = shardmap.get(shard);
     }
 
+    // the first phase facet responses, by shard number, known before they are merged
+    private final List<NamedList<?>> shardRoots = new ArrayList<>();
+
+    /**
+     * Records the first phase facet responses of the shards that are merged next, in the order
+     * they are merged, so that mergers can look ahead at them.
+     */
+    public void addShardRoots(Collection<? extends NamedList<?>> roots) {
+      shardRoots.addAll(roots);
+    }
+
+    /** The first phase facet response of a shard, or null if it is not known */
+    public NamedList<?> getShardRoot(int shardNum) {
+      return shardNum < shardRoots.size() ? shardRoots.get(shardNum) : null;
+    }
+
+    /**
+     * The key of the facet result in the response being merged, if it is directly under the root
+     * facet, or null otherwise.
+     */
+    public String getTopLevelKey(Object facetResult) {
+      if (root instanceof NamedList<?> rootFacets) {
+        for (int i = 0; i < rootFacets.size(); i++) {
+          if (rootFacets.getVal(i) == facetResult) {
+            return rootFacets.getName(i);
+          }
+        }
+      }
+      return null;
+    }
+
     public int getNewBucketNumber() {
       return maxBucket++;
     }
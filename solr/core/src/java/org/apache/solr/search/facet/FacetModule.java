@@ -20,6 +20,7 @@ import static org.apache.solr.common.util.Utils.fromJSONString;
 import static org.apache.solr.response.SolrQueryResponse.haveCompleteResults;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -291,6 +292,18 @@ public class FacetModule extends SearchComponent {
     FacetComponentState facetState = getFacetComponentState(rb);
     if (facetState == null) return;
 
+    // the facets of the shards that are merged below, so that mergers can look ahead at them
+    List<NamedList<?>> shardFacets = null;
+    if ((sreq.purpose & PURPOSE_REFINE_JSON_FACETS) == 0) {
+      shardFacets = new ArrayList<>(sreq.responses.size());
+      for (ShardResponse shardRsp : sreq.responses) {
+        NamedList<Object> top = shardRsp.getSolrResponse().getResponse();
+        if (top != null && top.get("facets") != null) {
+          shardFacets.add((NamedList<?>) top.get("facets"));
+        }
+      }
+    }
+
     for (ShardResponse shardRsp : sreq.responses) {
       SolrResponse rsp = shardRsp.getSolrResponse();
       NamedList<Object> top = rsp.getResponse();
@@ -309,6 +322,10 @@ public class FacetModule extends SearchComponent {
         facetState.merger = facetState.facetRequest.createFacetMerger(facet);
         facetState.mcontext = new FacetMerger.Context(sreq.responses.size());
       }
+      if (shardFacets != null) {
+        facetState.mcontext.addShardRoots(shardFacets);
+        shardFacets = null;
+      }
 
       if ((sreq.purpose & PURPOSE_REFINE_JSON_FACETS) != 0) {
         // System.err.println("REFINE FACET RESULT FROM SHARD = " + facet);
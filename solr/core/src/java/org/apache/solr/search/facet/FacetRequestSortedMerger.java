@@ -27,6 +27,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.solr.common.util.CollectionUtil;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 
 // base class for facets that create a list of buckets that can be sorted
@@ -38,6 +39,15 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
   // null, or "true" if we saw a result from this shard and it indicated that there are more results
   BitSet shardHasMoreBuckets;
 
+  // null, or for each shard an upper bound on the count of any bucket it did not return (-1 until
+  // we saw its bucket list). Only tracked when shards return their buckets sorted by count desc.
+  long[] shardMaxMissingCount;
+  // null, or for each shard the count of the first bucket it returned, when we know it before
+  // merging its buckets
+  long[] shardMaxCount;
+  // true once buckets that can't make it into the top buckets have been removed
+  boolean pruned;
+
   Context mcontext; // HACK: this should be passed in getMergedResult as well!
 
   public FacetRequestSortedMerger(FacetRequestT freq) {
@@ -85,6 +95,125 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
     }
   }
 
+  /**
+   * Records an upper bound on the count of the buckets that the current shard did not return, from
+   * its first phase bucket list.
+   */
+  void trackMaxMissingCount(
+      SimpleOrderedMap<?> facetResult, List<SimpleOrderedMap<?>> bucketList, Context mcontext) {
+    if (freq.prelim_sort != null || !FacetRequest.FacetSort.COUNT_DESC.equals(freq.sort)) {
+      return;
+    }
+    if (shardMaxMissingCount == null) {
+      shardMaxMissingCount = new long[mcontext.numShards];
+      Arrays.fill(shardMaxMissingCount, -1);
+      shardMaxCount = getShardMaxCounts(facetResult, mcontext);
+    }
+    if (shardMaxMissingCount[mcontext.shardNum] >= 0) {
+      return; // a refinement response
+    }
+    long maxMissingCount = 0;
+    if (shardHasMoreBuckets != null && shardHasMoreBuckets.get(mcontext.shardNum)) {
+      // buckets are sorted by count, so the last one bounds the count of the ones not returned
+      maxMissingCount =
+          bucketList.isEmpty()
+              ? Long.MAX_VALUE
+              : ((Number) bucketList.get(bucketList.size() - 1).get("count")).longValue();
+    }
+    shardMaxMissingCount[mcontext.shardNum] = maxMissingCount;
+  }
+
+  /**
+   * Returns the count of the first bucket each shard returned for this facet, or null if the
+   * responses of the shards that are not merged yet are not known. They are known for the facets
+   * directly under the root facet, since all the first phase responses are received before they are
+   * merged.
+   */
+  private long[] getShardMaxCounts(SimpleOrderedMap<?> facetResult, Context mcontext) {
+    String key = mcontext.getTopLevelKey(facetResult);
+    if (key == null) {
+      return null;
+    }
+    long[] maxCounts = new long[mcontext.numShards];
+    for (int shard = 0; shard < maxCounts.length; shard++) {
+      NamedList<?> shardRoot = mcontext.getShardRoot(shard);
+      if (shardRoot == null || !(shardRoot.get(key) instanceof SimpleOrderedMap<?> shardResult)) {
+        return null; // we won't hear from this shard
+      }
+      List<?> bucketList = (List<?>) shardResult.get("buckets");
+      if (bucketList != null && !bucketList.isEmpty()) {
+        maxCounts[shard] = ((Number) ((NamedList<?>) bucketList.get(0)).get("count")).longValue();
+      }
+    }
+    return maxCounts;
+  }
+
+  /**
+   * Removes the buckets that can't be among the top buckets while the first phase responses are
+   * merged, so that the coordinator only ever holds a few times the number of buckets it checks,
+   * rather than the buckets of all shards. This is only possible when the counts of the buckets of
+   * the shards that are not merged yet are bounded by {@link #getShardMaxCounts}.
+   */
+  void pruneMergedBuckets(Context mcontext) {
+    if (shardMaxCount == null || freq.limit < 0) {
+      return;
+    }
+    long numBucketsToCheck = getNumBucketsToCheck(freq.sort);
+    // prune again only once the buckets doubled, so that sorting them is amortized
+    if (buckets.size() >= 2 * numBucketsToCheck) {
+      pruneBuckets(numBucketsToCheck, mcontext);
+      sortedBuckets = null; // more buckets are merged after this
+    }
+  }
+
+  /**
+   * Removes the buckets that can't be among the top <code>numBucketsToCheck</code> buckets, even
+   * if the shards that did not return them have them with the highest count possible. This bounds
+   * the coordinator's memory, for the refinement phase and the final result, to the candidate
+   * buckets. Counts only grow while merging, so the count of the last bucket to check is a lower
+   * bound of the count it will finally have.
+   */
+  void pruneBuckets(long numBucketsToCheck, Context mcontext) {
+    if (shardMaxMissingCount == null
+        || numBucketsToCheck <= 0
+        || buckets.size() <= numBucketsToCheck) {
+      return;
+    }
+    for (long maxMissingCount : shardMaxMissingCount) {
+      if (maxMissingCount < 0 && shardMaxCount == null) {
+        return; // we did not hear from this shard, and don't know what it returned
+      }
+    }
+
+    sortBuckets(FacetRequest.FacetSort.COUNT_DESC);
+    final long minCount = sortedBuckets.get((int) numBucketsToCheck - 1).getCount();
+    final List<FacetBucket> candidates = new ArrayList<>((int) numBucketsToCheck);
+    for (FacetBucket bucket : sortedBuckets) {
+      if (bucket.getCount() >= minCount || maxCount(bucket, mcontext) >= minCount) {
+        candidates.add(bucket);
+      } else {
+        buckets.remove(bucket.bucketValue);
+      }
+    }
+    sortedBuckets = candidates;
+  }
+
+  /** An upper bound on the count of the bucket, across all shards */
+  private long maxCount(FacetBucket bucket, Context mcontext) {
+    long maxCount = bucket.getCount();
+    for (int shard = 0; shard < mcontext.numShards; shard++) {
+      if (shardMaxMissingCount[shard] < 0) {
+        maxCount += shardMaxCount[shard]; // not merged yet
+      } else if (!mcontext.getShardFlag(bucket.bucketNumber, shard)) {
+        maxCount += shardMaxMissingCount[shard];
+      }
+      if (maxCount < 0) {
+        return Long.MAX_VALUE; // overflow
+      }
+    }
+    return maxCount;
+  }
+
   @SuppressWarnings({"unchecked"})
   public void sortBuckets(final FacetRequest.FacetSort sort) {
     // NOTE: we *always* re-init from buckets, because it may have been modified post-refinement
@@ -209,40 +338,10 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
       return null;
     }
 
-    long numBucketsToCheck = Integer.MAX_VALUE; // use max-int instead of max-long to avoid overflow
-    if (freq.limit >= 0) {
-      numBucketsToCheck = freq.offset + freq.limit; // effective limit
-      if (-1 == freq.overrefine) { // DEFAULT: use heuristic for overrefinement
-
-        // when we don't have to worry about mincount pruning, there is no need for any
-        // over refinement for these sorts..
-        if (freq.mincount <= 1
-            && ("index".equals(initial_sort.sortVariable)
-                || ("count".equals(initial_sort.sortVariable)
-                    && FacetRequest.SortDirection.desc == initial_sort.sortDirection))) {
-          // No-Op
-        } else if (0 <= freq.overrequest) {
-          // if user asked for an explicit amount of overrequesting,
-          // (but did not provide an explicit amount of overrefinement)
-          // then use the same amount for overrefinement
-          numBucketsToCheck += freq.overrequest;
-        } else {
-          // default: add 10% plus 4
-          numBucketsToCheck = (long) (numBucketsToCheck * 1.1 + 4);
-        }
-
-        // TODO: should we scale our 'overrefine' (heuristic) value based on 'mincount' ?
-        //
-        // If mincount=M > 1 should we be doing something like numBucketsToCheck *= M ?
-        // Perhaps that would make more sense in the 'overrequest' heuristic calc?
-        //
-        // Maybe we should look at how many buckets were fully populated in phase#1 AND
-        // already meet the 'mincount', and use the the difference between that number
-        // and 'limit' to decide a scaling factor for 'overrefine' ?
-
-      } else { // user requested an explicit amount of overrefinement
-        numBucketsToCheck += freq.overrefine;
-      }
+    long numBucketsToCheck = getNumBucketsToCheck(initial_sort);
+    if (!pruned) {
+      pruned = true;
+      pruneBuckets(numBucketsToCheck, mcontext);
     }
     numBucketsToCheck = Math.min(buckets.size(), numBucketsToCheck);
 
@@ -322,6 +421,46 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
     return refinement;
   }
 
+  /** The number of top buckets that are checked for refinement */
+  private long getNumBucketsToCheck(FacetRequest.FacetSort initial_sort) {
+    long numBucketsToCheck = Integer.MAX_VALUE; // use max-int instead of max-long to avoid overflow
+    if (freq.limit >= 0) {
+      numBucketsToCheck = freq.offset + freq.limit; // effective limit
+      if (-1 == freq.overrefine) { // DEFAULT: use heuristic for overrefinement
+
+        // when we don't have to worry about mincount pruning, there is no need for any
+        // over refinement for these sorts..
+        if (freq.mincount <= 1
+            && ("index".equals(initial_sort.sortVariable)
+                || ("count".equals(initial_sort.sortVariable)
+                    && FacetRequest.SortDirection.desc == initial_sort.sortDirection))) {
+          // No-Op
+        } else if (0 <= freq.overrequest) {
+          // if user asked for an explicit amount of overrequesting,
+          // (but did not provide an explicit amount of overrefinement)
+          // then use the same amount for overrefinement
+          numBucketsToCheck += freq.overrequest;
+        } else {
+          // default: add 10% plus 4
+          numBucketsToCheck = (long) (numBucketsToCheck * 1.1 + 4);
+        }
+
+        // TODO: should we scale our 'overrefine' (heuristic) value based on 'mincount' ?
+        //
+        // If mincount=M > 1 should we be doing something like numBucketsToCheck *= M ?
+        // Perhaps that would make more sense in the 'overrequest' heuristic calc?
+        //
+        // Maybe we should look at how many buckets were fully populated in phase#1 AND
+        // already meet the 'mincount', and use the the difference between that number
+        // and 'limit' to decide a scaling factor for 'overrefine' ?
+
+      } else { // user requested an explicit amount of overrefinement
+        numBucketsToCheck += freq.overrefine;
+      }
+    }
+    return numBucketsToCheck;
+  }
+
   // utility method for subclasses to override to finish calculating faceting (special buckets in
   // field facets)... this feels hacky and we should find a better way.
   Map<String, Object> getRefinementSpecial(
@@ -46,6 +46,20 @@ public class FieldUtil {
     return getSortedDocValues(qContext, sf, null);
   }
 
+  /**
+   * Returns true if the field has no docValues and should be accessed through the docValues that
+   * the {@link org.apache.solr.uninverting.UninvertingReader} builds per segment rather than with a
+   * top-level {@link UnInvertedField}, see {@link
+   * org.apache.solr.core.SolrConfig#uninvertPerSegment}. Per-segment structures live as long as
+   * their segment, so only new segments need to be uninverted after a commit.
+   */
+  public static boolean isUninvertedPerSegment(SolrIndexSearcher searcher, SchemaField field) {
+    return !field.hasDocValues()
+        && field.isUninvertible()
+        && !field.getType().isPointField()
+        && searcher.getCore().getSolrConfig().uninvertPerSegment;
+  }
+
   public static SortedDocValues getSortedDocValues(
       QueryContext context, SchemaField field, QParser qparser) throws IOException {
     var reader = context.searcher().getSlowAtomicReader();
@@ -60,7 +60,8 @@ public class HLLAgg extends StrAggValueSource {
     if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
       if (sf.getType().isPointField()) {
         return new SortedNumericAcc(fcontext, getArg(), numSlots);
-      } else if (sf.hasDocValues()) {
+      } else if (sf.hasDocValues()
+          || FieldUtil.isUninvertedPerSegment(fcontext.searcher, sf)) {
         return new UniqueMultiDvSlotAcc(
             fcontext, sf, numSlots, fcontext.isShard() ? factory : null);
       } else {
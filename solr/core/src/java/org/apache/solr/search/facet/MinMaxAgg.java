@@ -263,6 +263,21 @@ public class MinMaxAgg extends SimpleAggValueSource {
       }
     }
 
+    @Override
+    public void collect(int[] docs, int[] slots, int count, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      readBlock(docs, count, true);
+      for (int i = 0; i < count; i++) {
+        double val = blockValues[i];
+        if (val == 0 && !blockExists[i]) continue;
+
+        double currVal = result[slots[i]];
+        if (Double.compare(val, currVal) * minmax < 0 || Double.isNaN(currVal)) {
+          result[slots[i]] = val;
+        }
+      }
+    }
+
     @Override
     public Object getValue(int slot) {
       double val = result[slot];
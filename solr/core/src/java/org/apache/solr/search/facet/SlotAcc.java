@@ -43,6 +43,9 @@ import org.apache.solr.search.SolrIndexSearcher;
  * nominal slot.
  */
 public abstract class SlotAcc implements Closeable {
+  /** The maximum number of documents passed to {@link #collect(int[], int[], int, IntFunction)} */
+  public static final int BLOCK_SIZE = 512;
+
   String key; // todo...
   protected final FacetContext fcontext;
   protected LeafReaderContext currentReaderContext;
@@ -88,9 +91,29 @@ public abstract class SlotAcc implements Closeable {
   public abstract void collect(int doc, int slot, IntFunction<SlotContext> slotContext)
       throws IOException;
 
+  /**
+   * Collects a block of documents of the current segment. The default implementation calls {@link
+   * #collect(int, int, IntFunction)} for each document; accumulators reading a value per document
+   * override it to first read the values of the whole block and then accumulate them.
+   *
+   * @param docs Single Segment docIds, in non-decreasing order (a document is repeated for each
+   *     slot it is collected in)
+   * @param slots The slot number to collect each document in
+   * @param count The number of documents in the block
+   * @param slotContext A callback that can be used for Accumulators that would like additional info
+   *     about a slot
+   * @see #BLOCK_SIZE
+   */
+  public void collect(int[] docs, int[] slots, int count, IntFunction<SlotContext> slotContext)
+      throws IOException {
+    for (int i = 0; i < count; i++) {
+      collect(docs[i], slots[i], slotContext);
+    }
+  }
+
   /**
    * Bulk collection of all documents in a slot. The default implementation calls {@link
-   * #collect(int, int, IntFunction)}
+   * #collect(int[], int[], int, IntFunction)} with blocks of the documents of each segment
    *
    * @param docs (global) Documents to collect
    * @param slot The slot number to collect these documents in
@@ -110,9 +133,17 @@ public abstract class SlotAcc implements Closeable {
     int segBase = 0;
     int segMax;
     int adjustedMax = 0;
+    final int[] blockDocs = new int[Math.min(Math.max(docs.size(), 1), BLOCK_SIZE)];
+    final int[] blockSlots = new int[blockDocs.length];
+    Arrays.fill(blockSlots, slot);
+    int blockCount = 0;
     for (DocIterator docsIt = docs.iterator(); docsIt.hasNext(); ) {
       final int doc = docsIt.nextDoc();
       if (doc >= adjustedMax) {
+        if (blockCount > 0) {
+          collect(blockDocs, blockSlots, blockCount, slotContext);
+          blockCount = 0;
+        }
         do {
           ctx = ctxIt.next();
           if (ctx == null) {
@@ -127,7 +158,14 @@ public abstract class SlotAcc implements Closeable {
         setNextReader(ctx);
       }
       count++;
-      collect(doc - segBase, slot, slotContext); // per-seg collectors
+      blockDocs[blockCount++] = doc - segBase; // per-seg collectors
+      if (blockCount == blockDocs.length) {
+        collect(blockDocs, blockSlots, blockCount, slotContext);
+        blockCount = 0;
+      }
+    }
+    if (blockCount > 0) {
+      collect(blockDocs, blockSlots, blockCount, slotContext);
     }
     return count;
   }
@@ -299,6 +337,9 @@ public abstract class SlotAcc implements Closeable {
   public abstract static class DoubleFuncSlotAcc extends FuncSlotAcc {
     protected double[] result; // TODO: use DoubleArray
     protected double initialValue;
+    // the values of the block being collected, see readBlock
+    protected double[] blockValues;
+    protected boolean[] blockExists;
 
     public DoubleFuncSlotAcc(ValueSource values, FacetContext fcontext, int numSlots) {
       this(values, fcontext, numSlots, 0);
@@ -333,6 +374,32 @@ public abstract class SlotAcc implements Closeable {
     public void resize(Resizer resizer) {
       result = resizer.resize(result, initialValue);
     }
+
+    /**
+     * Reads the values of a block of documents into {@link #blockValues} in a single pass, so they
+     * can then be accumulated without further calls to {@link #values}.
+     *
+     * @param exists whether to also fill {@link #blockExists}
+     */
+    protected void readBlock(int[] docs, int count, boolean exists) throws IOException {
+      if (blockValues == null || blockValues.length < count) {
+        blockValues = new double[Math.max(count, BLOCK_SIZE)];
+        blockExists = new boolean[blockValues.length];
+      }
+      final FunctionValues values = this.values;
+      final double[] blockValues = this.blockValues;
+      if (exists) {
+        final boolean[] blockExists = this.blockExists;
+        for (int i = 0; i < count; i++) {
+          blockValues[i] = values.doubleVal(docs[i]);
+          blockExists[i] = values.exists(docs[i]);
+        }
+      } else {
+        for (int i = 0; i < count; i++) {
+          blockValues[i] = values.doubleVal(docs[i]);
+        }
+      }
+    }
   }
 
   public abstract static class LongFuncSlotAcc extends FuncSlotAcc {
@@ -416,6 +483,15 @@ public abstract class SlotAcc implements Closeable {
       double val = values.doubleVal(doc);
       result[slotNum] += val;
     }
+
+    @Override
+    public void collect(int[] docs, int[] slots, int count, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      readBlock(docs, count, false);
+      for (int i = 0; i < count; i++) {
+        result[slots[i]] += blockValues[i];
+      }
+    }
   }
 
   static class SumsqSlotAcc extends DoubleFuncSlotAcc {
@@ -430,6 +506,16 @@ public abstract class SlotAcc implements Closeable {
       val = val * val;
       result[slotNum] += val;
     }
+
+    @Override
+    public void collect(int[] docs, int[] slots, int count, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      readBlock(docs, count, false);
+      for (int i = 0; i < count; i++) {
+        double val = blockValues[i];
+        result[slots[i]] += val * val;
+      }
+    }
   }
 
   static class AvgSlotAcc extends DoubleFuncSlotAcc {
@@ -458,6 +544,19 @@ public abstract class SlotAcc implements Closeable {
       }
     }
 
+    @Override
+    public void collect(int[] docs, int[] slots, int count, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      readBlock(docs, count, true);
+      for (int i = 0; i < count; i++) {
+        double val = blockValues[i];
+        if (val != 0 || blockExists[i]) {
+          result[slots[i]] += val;
+          counts[slots[i]] += 1;
+        }
+      }
+    }
+
     private double avg(int slot) {
       return AggUtil.avg(result[slot], counts[slot]); // calc once and cache in result?
     }
@@ -543,6 +642,21 @@ public abstract class SlotAcc implements Closeable {
         sum[slot] += val;
       }
     }
+
+    @Override
+    public void collect(int[] docs, int[] slots, int count, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      readBlock(docs, count, true);
+      for (int i = 0; i < count; i++) {
+        if (blockExists[i]) {
+          double val = blockValues[i];
+          int slot = slots[i];
+          counts[slot]++;
+          result[slot] += val * val;
+          sum[slot] += val;
+        }
+      }
+    }
   }
 
   static class StddevSlotAcc extends DoubleFuncSlotAcc {
@@ -602,6 +716,21 @@ public abstract class SlotAcc implements Closeable {
         sum[slot] += val;
       }
     }
+
+    @Override
+    public void collect(int[] docs, int[] slots, int count, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      readBlock(docs, count, true);
+      for (int i = 0; i < count; i++) {
+        if (blockExists[i]) {
+          double val = blockValues[i];
+          int slot = slots[i];
+          counts[slot]++;
+          result[slot] += val * val;
+          sum[slot] += val;
+        }
+      }
+    }
   }
 
   /**
@@ -48,7 +48,8 @@ public class UniqueAgg extends StrAggValueSource {
     if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
       if (sf.getType().isPointField()) {
         return new SortedNumericAcc(fcontext, getArg(), numSlots);
-      } else if (sf.hasDocValues()) {
+      } else if (sf.hasDocValues()
+          || FieldUtil.isUninvertedPerSegment(fcontext.searcher, sf)) {
         return new UniqueMultiDvSlotAcc(fcontext, sf, numSlots, null);
       } else {
         return new UniqueMultivaluedSlotAcc(fcontext, sf, numSlots, null);
@@ -60,6 +60,7 @@ public class AddUpdateCommand extends UpdateCommand {
   private BytesRef indexedId;
   private String indexedIdStr;
   private String selfOrNestedDocIdStr;
+  private Iterable<Document> luceneDocs;
 
   public AddUpdateCommand(SolrQueryRequest req) {
     super(req);
@@ -80,6 +81,7 @@ public class AddUpdateCommand extends UpdateCommand {
     isLastDocInBatch = false;
     version = 0;
     prevVersion = -1;
+    luceneDocs = null;
   }
 
   public SolrInputDocument getSolrInputDocument() {
@@ -203,6 +205,9 @@ public class AddUpdateCommand extends UpdateCommand {
    * in the SolrInputDocument, or future calls to this method.
    */
   Iterable<Document> makeLuceneDocs() {
+    if (luceneDocs != null) {
+      return luceneDocs;
+    }
     // perhaps this should move to UpdateHandler or DocumentBuilder?
     assert !isInPlaceUpdate() : "We don't expect this to happen."; // but should "work"?
     if (!req.getSchema().isUsableForChildDocs()) {
@@ -233,6 +238,17 @@ public class AddUpdateCommand extends UpdateCommand {
         all.stream().map(sdoc -> DocumentBuilder.toDocument(sdoc, req.getSchema())).iterator();
   }
 
+  /**
+   * Makes the changes to the SolrInputDocument that {@link #makeLuceneDocs()} would, so that they
+   * are done now and not while the document is indexed by another thread. The Lucene documents are
+   * still built on iteration.
+   */
+  void prepareLuceneDocs() {
+    if (!isInPlaceUpdate() && req.getSchema().isUsableForChildDocs()) {
+      luceneDocs = makeLuceneDocs();
+    }
+  }
+
   private void addRootField(SolrInputDocument sdoc, String rootId) {
     sdoc.setField(IndexSchema.ROOT_FIELD_NAME, rootId);
   }
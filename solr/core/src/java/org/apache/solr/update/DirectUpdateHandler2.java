@@ -109,6 +109,9 @@ public class DirectUpdateHandler2 extends UpdateHandler
 
   protected boolean commitWithinSoftCommit;
 
+  // slows down updates when merges fall behind, null if not configured
+  protected final IndexingThrottle indexingThrottle;
+
   /**
    * package access for testing
    *
@@ -150,6 +153,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
             true);
 
     commitWithinSoftCommit = updateHandlerInfo.commitWithinSoftCommit;
+    indexingThrottle = IndexingThrottle.create(core, core.getSolrConfig().indexConfig);
 
     ZkController zkController = core.getCoreContainer().getZkController();
     if (zkController != null
@@ -193,6 +197,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
             true);
 
     commitWithinSoftCommit = updateHandlerInfo.commitWithinSoftCommit;
+    indexingThrottle = IndexingThrottle.create(core, core.getSolrConfig().indexConfig);
 
     if (ulog != null) {
       // If we are reusing the existing update log, inform the log that its update handler has
@@ -295,6 +300,59 @@ public class DirectUpdateHandler2 extends UpdateHandler
         solrMetricsContext.meter("cumulativeDeletesByQuery", getCategory().toString(), scope);
     numErrorsCumulative =
         solrMetricsContext.meter("cumulativeErrors", getCategory().toString(), scope);
+
+    if (indexingThrottle != null) {
+      solrMetricsContext.gauge(
+          indexingThrottle::getPressure,
+          true,
+          "pressure",
+          getCategory().toString(),
+          scope,
+          "throttle");
+      solrMetricsContext.gauge(
+          indexingThrottle::getThrottledUpdates,
+          true,
+          "throttledUpdates",
+          getCategory().toString(),
+          scope,
+          "throttle");
+      solrMetricsContext.gauge(
+          indexingThrottle::getDelayMillis,
+          true,
+          "delayMs",
+          getCategory().toString(),
+          scope,
+          "throttle");
+      solrMetricsContext.gauge(
+          indexingThrottle::getSegments,
+          true,
+          "segments",
+          getCategory().toString(),
+          scope,
+          "throttle");
+      solrMetricsContext.gauge(
+          indexingThrottle::getMergingBytes,
+          true,
+          "mergingBytes",
+          getCategory().toString(),
+          scope,
+          "throttle");
+      solrMetricsContext.gauge(
+          indexingThrottle::getFlushingBytes,
+          true,
+          "flushingBytes",
+          getCategory().toString(),
+          scope,
+          "throttle");
+    }
+  }
+
+  /**
+   * Returns the throttle that slows down updates when merges fall behind, null if it is not
+   * configured.
+   */
+  public IndexingThrottle getIndexingThrottle() {
+    return indexingThrottle;
   }
 
   private void deleteAll() throws IOException {
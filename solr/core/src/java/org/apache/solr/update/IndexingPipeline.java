@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.EnvUtils;
+import org.apache.solr.request.SolrQueryRequest;
+
+/**
+ * Indexes the documents of an update request on several threads. Building the Lucene documents and
+ * analyzing them in {@link UpdateHandler#addDoc(AddUpdateCommand)} then uses several cores for a
+ * single request, instead of one. The threads are those of {@link
+ * UpdateHandler#getIndexingExecutor()}, shared by all the requests to the core.
+ *
+ * <p>Documents are spread over one lane per thread by their id, so the updates of a given id are
+ * indexed in the order they were added, with the version they were given. Adds return before the
+ * document is indexed: {@link #await()} waits for all the documents that were added, which must be
+ * done before any other command, such as a delete or a commit, and before anything that reads the
+ * current version of a document, see {@link #awaitPending(SolrQueryRequest)}. The adds are also
+ * registered with the {@link UpdateLocks} of the core until they are indexed, so that the updates
+ * of the same id by other requests, which get newer versions, wait for them, see {@link
+ * UpdateLocks#awaitPendingAdds(BytesRef)}.
+ *
+ * <p>If a document fails to be indexed, the error, which names the document, is thrown by the next
+ * call to {@link #add(AddUpdateCommand)} or {@link #await()}. The documents that were already added
+ * are still indexed. Processors that attribute errors to the document they are adding, such as
+ * {@link org.apache.solr.update.processor.TolerantUpdateProcessor}, and SolrCloud leaders, which
+ * must not forward a document to their replicas before they indexed it, {@link
+ * #disable(SolrQueryRequest) disable} the pipeline.
+ */
+public class IndexingPipeline implements Closeable {
+
+  /** Request parameter for the number of threads to index the documents of the request with */
+  public static final String INDEX_THREADS_PARAM = "update.indexThreads";
+
+  public static final int DEFAULT_INDEX_THREADS =
+      EnvUtils.getPropertyAsInteger("solr.update.indexThreads", 1);
+
+  /** The max number of threads that index the documents of the requests to a core, together */
+  public static final int MAX_INDEX_THREADS =
+      EnvUtils.getPropertyAsInteger(
+          "solr.update.maxIndexThreads", Runtime.getRuntime().availableProcessors());
+
+  // max number of documents that were added but not indexed yet, per thread
+  private static final int MAX_PENDING_PER_THREAD = 64;
+
+  private static final String CONTEXT_KEY = IndexingPipeline.class.getName();
+  private static final String DISABLED_CONTEXT_KEY = CONTEXT_KEY + ".disabled";
+
+  private final UpdateHandler updateHandler;
+  private final UpdateLocks updateLocks;
+  private final ExecutorService executor;
+  private final Lane[] lanes;
+  private final int maxPending;
+
+  // guarded by this
+  private int pending;
+  private int nextLane;
+  private Throwable failure;
+
+  /**
+   * Creates a pipeline for the request if it asks for more than one index thread, with {@link
+   * #INDEX_THREADS_PARAM}, and registers it in the request context. The number of threads is capped
+   * by {@link #MAX_INDEX_THREADS}.
+   *
+   * @return null if the documents of this request are to be indexed by the request thread
+   */
+  public static IndexingPipeline create(SolrQueryRequest req) {
+    int threads =
+        Math.min(
+            req.getParams().getInt(INDEX_THREADS_PARAM, DEFAULT_INDEX_THREADS), MAX_INDEX_THREADS);
+    if (threads <= 1 || isDisabled(req)) {
+      return null;
+    }
+    UpdateHandler updateHandler = req.getCore().getUpdateHandler();
+    IndexingPipeline pipeline =
+        new IndexingPipeline(updateHandler, updateHandler.getIndexingExecutor(), threads);
+    req.getContext().put(CONTEXT_KEY, pipeline);
+    return pipeline;
+  }
+
+  /**
+   * Makes the documents of the request be indexed by the request thread, whatever {@link
+   * #INDEX_THREADS_PARAM} is. For processors that need the error of a document to be thrown by the
+   * call that added it.
+   */
+  public static void disable(SolrQueryRequest req) {
+    req.getContext().put(DISABLED_CONTEXT_KEY, Boolean.TRUE);
+  }
+
+  /** Whether {@link #disable(SolrQueryRequest)} was called, maybe after the pipeline was created */
+  public static boolean isDisabled(SolrQueryRequest req) {
+    return req.getContext().containsKey(DISABLED_CONTEXT_KEY);
+  }
+
+  /**
+   * Waits for the documents that the pipeline of this request, if any, is indexing. Needed before
+   * looking up the current version or value of a document that this request may have added.
+   */
+  public static void awaitPending(SolrQueryRequest req) throws IOException {
+    IndexingPipeline pipeline = (IndexingPipeline) req.getContext().get(CONTEXT_KEY);
+    if (pipeline != null) {
+      pipeline.await();
+    }
+  }
+
+  public IndexingPipeline(UpdateHandler updateHandler, ExecutorService executor, int threads) {
+    this.updateHandler = updateHandler;
+    this.updateLocks =
+        updateHandler.getUpdateLog() == null ? null : updateHandler.getUpdateLog().getLocks();
+    this.executor = executor;
+    this.lanes = new Lane[threads];
+    for (int i = 0; i < threads; i++) {
+      lanes[i] = new Lane();
+    }
+    this.maxPending = threads * MAX_PENDING_PER_THREAD;
+  }
+
+  /**
+   * Adds a document to be indexed. The command is copied, so that the caller may reuse it, and its
+   * document must not be modified anymore.
+   */
+  public void add(AddUpdateCommand cmd) throws IOException {
+    AddUpdateCommand copy = (AddUpdateCommand) cmd.clone();
+    // changes to the SolrInputDocument are made now, as it may be sent to replicas concurrently
+    copy.prepareLuceneDocs();
+    BytesRef id = copy.getIndexedId();
+
+    Lane lane;
+    boolean schedule;
+    synchronized (this) {
+      while (failure == null && pending >= maxPending) {
+        waitForLanes();
+      }
+      throwFailure();
+      if (updateLocks != null) {
+        // the caller holds the lock of the id, the next update of the id will wait for this one
+        updateLocks.addPendingAdd(id);
+      }
+      lane = lanes[Math.floorMod(id == null ? nextLane++ : id.hashCode(), lanes.length)];
+      lane.queue.add(copy);
+      pending++;
+      schedule = !lane.running;
+      lane.running = true;
+    }
+    if (schedule) {
+      try {
+        executor.execute(lane);
+      } catch (RejectedExecutionException e) {
+        lane.run();
+      }
+    }
+  }
+
+  /** Waits for all the documents that were added to be indexed, and throws the first failure. */
+  public synchronized void await() throws IOException {
+    while (pending > 0) {
+      waitForLanes();
+    }
+    throwFailure();
+  }
+
+  /**
+   * Waits for all the documents that were added to be indexed, without throwing their failures,
+   * since they still use the request.
+   */
+  @Override
+  public synchronized void close() {
+    while (pending > 0) {
+      waitForLanes();
+    }
+  }
+
+  private void waitForLanes() {
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Interrupted while indexing documents", e);
+    }
+  }
+
+  /**
+   * Names the document that failed in the error, since it is thrown by the indexing of another
+   * document.
+   */
+  private static Throwable attributeFailure(AddUpdateCommand cmd, Throwable error) {
+    if (error instanceof Error) {
+      return error;
+    }
+    SolrException.ErrorCode code =
+        error instanceof SolrException e
+            ? SolrException.ErrorCode.getErrorCode(e.code())
+            : SolrException.ErrorCode.SERVER_ERROR;
+    return new SolrException(
+        code, "Error indexing document " + cmd.getPrintableId() + ": " + error.getMessage(), error);
+  }
+
+  private void throwFailure() throws IOException {
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, failure);
+    }
+  }
+
+  /** The documents of a subset of the ids, indexed in order by one thread at a time */
+  private final class Lane implements Runnable {
+    // guarded by the pipeline
+    private final ArrayDeque<AddUpdateCommand> queue = new ArrayDeque<>();
+    private boolean running;
+
+    @Override
+    public void run() {
+      while (true) {
+        AddUpdateCommand cmd;
+        synchronized (IndexingPipeline.this) {
+          cmd = queue.poll();
+          if (cmd == null) {
+            running = false;
+            return;
+          }
+        }
+
+        Throwable error = null;
+        try {
+          updateHandler.addDoc(cmd);
+        } catch (Throwable t) {
+          error = t;
+        } finally {
+          if (updateLocks != null) {
+            updateLocks.removePendingAdd(cmd.getIndexedId());
+          }
+        }
+
+        synchronized (IndexingPipeline.this) {
+          pending--;
+          if (error != null && failure == null) {
+            failure = attributeFailure(cmd, error);
+          }
+          IndexingPipeline.this.notifyAll();
+        }
+      }
+    }
+  }
+}
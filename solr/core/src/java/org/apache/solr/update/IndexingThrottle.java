@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.PluginInfo;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.util.RefCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Slows down updates in proportion to the indexing backlog of the {@link IndexWriter}, so that
+ * merges keep up with a heavy ingest and searches don't have to go through an exploding number of
+ * segments. Configured with {@code <indexingThrottle>} in the {@code <indexConfig>} section of
+ * solrconfig.xml.
+ *
+ * <p>The backlog is made of the number of segments of the index, the size of the segments that
+ * are being merged or waiting to be merged, and the size of the buffers that are being flushed. The
+ * pressure of each of them is 0 up to half of its configured maximum, and then grows linearly to 1
+ * at its maximum. Each update is delayed by the highest of these pressures times {@code
+ * maxDelayMs}.
+ *
+ * <p>The writer is sampled at most every {@value #SAMPLE_INTERVAL_MILLIS}ms, so that checking the
+ * throttle is cheap.
+ */
+public class IndexingThrottle {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final long SAMPLE_INTERVAL_MILLIS = 100;
+  private static final long SAMPLE_INTERVAL_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MILLIS);
+
+  public static final int DEFAULT_MAX_SEGMENTS = 200;
+  public static final long DEFAULT_MAX_MERGING_MB = 10240;
+  public static final long DEFAULT_MAX_DELAY_MS = 10;
+
+  private final SolrCore core;
+  private final int maxSegments;
+  private final long maxMergingBytes;
+  private final long maxFlushingBytes;
+  private final long maxDelayNanos;
+
+  private volatile long sampledAtNanos;
+  private volatile double pressure;
+  private volatile int segments;
+  private volatile long mergingBytes;
+  private volatile long flushingBytes;
+
+  private final LongAdder throttledUpdates = new LongAdder();
+  private final LongAdder delayNanos = new LongAdder();
+
+  /**
+   * Creates the throttle configured in the index config of the core.
+   *
+   * @return null if there is no {@code <indexingThrottle>} in the config
+   */
+  public static IndexingThrottle create(SolrCore core, SolrIndexConfig config) {
+    PluginInfo info = config.indexingThrottleInfo;
+    if (info == null) {
+      return null;
+    }
+    NamedList<?> args = info.initArgs;
+    // by default, pressure starts when the buffers being flushed are as big as half the RAM
+    // buffer, Lucene stalls indexing when they are twice as big
+    long defaultMaxFlushingMB =
+        config.ramBufferSizeMB > 0 ? (long) Math.ceil(config.ramBufferSizeMB) : 0;
+    return new IndexingThrottle(
+        core,
+        (int) getLong(args, "maxSegments", DEFAULT_MAX_SEGMENTS),
+        getLong(args, "maxMergingMB", DEFAULT_MAX_MERGING_MB) * 1024 * 1024,
+        getLong(args, "maxFlushingMB", defaultMaxFlushingMB) * 1024 * 1024,
+        TimeUnit.MILLISECONDS.toNanos(getLong(args, "maxDelayMs", DEFAULT_MAX_DELAY_MS)));
+  }
+
+  /** A limit that is 0 or less is not applied. */
+  IndexingThrottle(
+      SolrCore core,
+      int maxSegments,
+      long maxMergingBytes,
+      long maxFlushingBytes,
+      long maxDelayNanos) {
+    this.core = core;
+    this.maxSegments = maxSegments;
+    this.maxMergingBytes = maxMergingBytes;
+    this.maxFlushingBytes = maxFlushingBytes;
+    this.maxDelayNanos = maxDelayNanos;
+    this.sampledAtNanos = System.nanoTime() - SAMPLE_INTERVAL_NANOS;
+  }
+
+  /** Delays the calling thread in proportion to the current indexing backlog. */
+  public void throttle() {
+    long now = System.nanoTime();
+    if (now - sampledAtNanos >= SAMPLE_INTERVAL_NANOS) {
+      sample(now);
+    }
+    long delay = (long) (pressure * maxDelayNanos);
+    if (delay > 0) {
+      throttledUpdates.increment();
+      delayNanos.add(delay);
+      LockSupport.parkNanos(delay);
+    }
+  }
+
+  private synchronized void sample(long now) {
+    if (now - sampledAtNanos < SAMPLE_INTERVAL_NANOS) {
+      // sampled by another thread meanwhile
+      return;
+    }
+    RefCounted<IndexWriter> iw = null;
+    try {
+      iw = core.getSolrCoreState().getIndexWriter(core);
+      IndexWriter writer = iw.get();
+      long merging = 0;
+      for (SegmentCommitInfo info : writer.getMergingSegments()) {
+        merging += info.sizeInBytes();
+      }
+      segments = writer.cloneSegmentInfos().size();
+      mergingBytes = merging;
+      flushingBytes = writer.getFlushingBytes();
+      pressure =
+          Math.max(
+              getPressure(segments, maxSegments),
+              Math.max(
+                  getPressure(mergingBytes, maxMergingBytes),
+                  getPressure(flushingBytes, maxFlushingBytes)));
+    } catch (IOException | SolrException | AlreadyClosedException e) {
+      // the core may be closing, or the writer rolled back, don't throttle on stale numbers
+      log.debug("Could not sample the index writer", e);
+      pressure = 0;
+    } finally {
+      if (iw != null) {
+        iw.decref();
+      }
+      sampledAtNanos = System.nanoTime();
+    }
+  }
+
+  /** 0 up to half of the limit, growing linearly to 1 at the limit. */
+  static double getPressure(long value, long limit) {
+    if (limit <= 0) {
+      return 0;
+    }
+    return Math.min(1, Math.max(0, 2.0 * value / limit - 1));
+  }
+
+  private static long getLong(NamedList<?> args, String name, long def) {
+    Object value = args == null ? null : args.get(name);
+    if (value == null) {
+      return def;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).longValue();
+    }
+    try {
+      return Long.parseLong(value.toString().trim());
+    } catch (NumberFormatException e) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR,
+          "Invalid value for " + name + " in <indexingThrottle>: " + value);
+    }
+  }
+
+  /** The delay applied to updates as a fraction of the max delay, from 0 to 1. */
+  public double getPressure() {
+    return pressure;
+  }
+
+  public int getSegments() {
+    return segments;
+  }
+
+  public long getMergingBytes() {
+    return mergingBytes;
+  }
+
+  public long getFlushingBytes() {
+    return flushingBytes;
+  }
+
+  /** The number of updates that were delayed. */
+  public long getThrottledUpdates() {
+    return throttledUpdates.sum();
+  }
+
+  /** The total time updates were delayed, in milliseconds. */
+  public long getDelayMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(delayNanos.sum());
+  }
+}
@@ -89,6 +89,9 @@ public class SolrIndexConfig implements MapSerializable {
   public final PluginInfo mergeSchedulerInfo;
   public final PluginInfo metricsInfo;
 
+  /** The config of the {@link IndexingThrottle}, null if updates are not throttled. */
+  public final PluginInfo indexingThrottleInfo;
+
   public final PluginInfo mergedSegmentWarmerInfo;
 
   public InfoStream infoStream = InfoStream.NO_OUTPUT;
@@ -108,6 +111,7 @@ public class SolrIndexConfig implements MapSerializable {
     mergedSegmentWarmerInfo = null;
     // enable coarse-grained metrics by default
     metricsInfo = new PluginInfo("metrics", Collections.emptyMap(), null, null);
+    indexingThrottleInfo = null;
   }
 
   private ConfigNode get(String s) {
@@ -160,6 +164,7 @@ public class SolrIndexConfig implements MapSerializable {
     lockType = get("lockType").txt(def.lockType);
 
     metricsInfo = getPluginInfo(get("metrics"), def.metricsInfo);
+    indexingThrottleInfo = getPluginInfo(get("indexingThrottle"), def.indexingThrottleInfo);
     mergeSchedulerInfo = getPluginInfo(get("mergeScheduler"), def.mergeSchedulerInfo);
     mergePolicyFactoryInfo = getPluginInfo(get("mergePolicyFactory"), def.mergePolicyFactoryInfo);
 
@@ -214,6 +219,9 @@ public class SolrIndexConfig implements MapSerializable {
     if (metricsInfo != null) {
       map.put("metrics", metricsInfo);
     }
+    if (indexingThrottleInfo != null) {
+      map.put("indexingThrottle", indexingThrottleInfo);
+    }
     if (mergePolicyFactoryInfo != null) {
       map.put("mergePolicyFactory", mergePolicyFactoryInfo);
     }
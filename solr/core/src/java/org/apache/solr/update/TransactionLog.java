@@ -16,6 +16,7 @@
  */
 package org.apache.solr.update;
 
+import com.codahale.metrics.Timer;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,6 +36,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrException;
@@ -85,6 +87,21 @@ public class TransactionLog implements Closeable {
   protected volatile boolean deleteOnClose = true;
 
   protected AtomicInteger refcount = new AtomicInteger(1);
+  // writes the UpdateLog started outside its lock that haven't finished yet
+  final AtomicInteger pendingWrites = new AtomicInteger();
+
+  // group fsync state, guarded by syncLock: the position up to which the log is known to be on
+  // disk, whether a caller is currently running an fsync for the group, the callers that
+  // asked for an fsync since the last one started, and the number of groups started so far
+  private final Object syncLock = new Object();
+  private long syncedPosition;
+  private boolean syncing;
+  private int syncRequests;
+  private long syncGroups;
+
+  // the records read so far from the end of the log, see getRecentRecords
+  private final Object recentRecordsLock = new Object();
+  private RecentRecords recentRecords;
   protected Map<String, Integer> globalStringMap = new HashMap<>();
   protected List<String> globalStringList = new ArrayList<>();
 
@@ -587,7 +604,15 @@ public class TransactionLog implements Closeable {
   }
 
   public boolean try_incref() {
-    return refcount.incrementAndGet() > 1;
+    // don't touch the count of a closed log, a later decref would close it again
+    int count;
+    do {
+      count = refcount.get();
+      if (count <= 0) {
+        return false;
+      }
+    } while (!refcount.compareAndSet(count, count + 1));
+    return true;
   }
 
   public void decref() {
@@ -628,6 +653,117 @@ public class TransactionLog implements Closeable {
     }
   }
 
+  /**
+   * Makes everything written to the log so far durable, like {@link #finish(UpdateLog.SyncLevel)}
+   * with {@link UpdateLog.SyncLevel#FSYNC}, but lets concurrent callers share a single fsync.
+   *
+   * <p>Callers whose writes were already made durable by another caller's fsync return right away.
+   * Otherwise, if an fsync is running, they wait for it and the next one makes all of them durable
+   * together. The caller running the next fsync first waits up to <code>maxLatencyNanos</code> for
+   * more callers to join, unless <code>maxBytes</code> bytes are already waiting to be synced.
+   *
+   * @param fsyncTimer times the fsyncs, may be null
+   * @return the number of callers made durable by the fsync this call ran, or 0 if another caller's
+   *     fsync made this call's writes durable
+   */
+  public int groupSync(long maxLatencyNanos, long maxBytes, Timer fsyncTimer) {
+    long target;
+    synchronized (this) {
+      try {
+        fos.flush();
+      } catch (IOException e) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+      }
+      target = fos.size();
+    }
+
+    int groupSize;
+    synchronized (syncLock) {
+      if (syncedPosition >= target) {
+        return 0;
+      }
+      syncRequests++;
+      long group = syncGroups;
+      syncLock.notifyAll(); // a caller gathering a group may be waiting for us
+      while (syncing && syncedPosition < target) {
+        if (!waitForSync(0L)) {
+          forgetSyncRequest(group);
+          throw new SolrException(
+              SolrException.ErrorCode.SERVER_ERROR, "Interrupted while waiting for fsync");
+        }
+      }
+      if (syncedPosition >= target) {
+        forgetSyncRequest(group);
+        return 0;
+      }
+      syncing = true;
+
+      // wait for more callers to join the group
+      long deadline = System.nanoTime() + maxLatencyNanos;
+      long remaining = maxLatencyNanos;
+      while (remaining > 0 && position() - syncedPosition < maxBytes && waitForSync(remaining)) {
+        remaining = deadline - System.nanoTime();
+      }
+      groupSize = syncRequests;
+      syncRequests = 0;
+      syncGroups++;
+    }
+
+    boolean synced = false;
+    try {
+      synchronized (this) {
+        fos.flush();
+        target = fos.size();
+      }
+      Timer.Context timer = fsyncTimer == null ? null : fsyncTimer.time();
+      try {
+        channel.force(true);
+      } finally {
+        if (timer != null) {
+          timer.stop();
+        }
+      }
+      synced = true;
+      return groupSize;
+    } catch (IOException e) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+    } finally {
+      synchronized (syncLock) {
+        if (synced) {
+          syncedPosition = Math.max(syncedPosition, target);
+        }
+        syncing = false;
+        syncLock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Removes the request of a caller that returns without running an fsync from the size of the next
+   * group, unless the group that started since it was counted includes it already.
+   */
+  private void forgetSyncRequest(long group) {
+    assert Thread.holdsLock(syncLock);
+    if (syncGroups == group) {
+      syncRequests--;
+    }
+  }
+
+  /** Waits on the sync lock, or forever if nanos is 0. Returns false if interrupted. */
+  private boolean waitForSync(long nanos) {
+    try {
+      if (nanos > 0) {
+        TimeUnit.NANOSECONDS.timedWait(syncLock, nanos);
+      } else {
+        syncLock.wait();
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
   @Override
   public void close() {
     try {
@@ -703,6 +839,123 @@ public class TransactionLog implements Closeable {
     return new FSReverseReader();
   }
 
+  /**
+   * Returns a summary of the last <code>n</code> records of the log, or of all its records if it
+   * has fewer, newest first.
+   *
+   * <p>The records that were read are kept, so that logs that aren't written to anymore are only
+   * decoded once, however many times their recent updates are asked for (e.g. by PeerSync). Reading
+   * more records resumes where the previous read stopped. Anything appended to the log since
+   * starts over from its new end.
+   */
+  public List<RecordSummary> getRecentRecords(int n) throws IOException {
+    if (n <= 0) {
+      return List.of();
+    }
+    synchronized (recentRecordsLock) {
+      long size = position();
+      if (recentRecords != null && recentRecords.logSize != size) {
+        recentRecords = null;
+      }
+      if (recentRecords != null
+          && (recentRecords.records.size() >= n || recentRecords.reachedStart)) {
+        return recentRecords.first(n);
+      }
+
+      FSReverseReader reader =
+          recentRecords == null
+              ? new FSReverseReader()
+              : new FSReverseReader(recentRecords.prevPos, recentRecords.nextLength);
+      try {
+        if (recentRecords == null) {
+          recentRecords = new RecentRecords(reader.logSize);
+        }
+        List<RecordSummary> records = recentRecords.records;
+        while (records.size() < n) {
+          Object o = null;
+          try {
+            o = reader.next();
+            if (o == null) {
+              recentRecords.reachedStart = true;
+              break;
+            }
+            records.add(RecordSummary.of((List<?>) o, reader.position()));
+          } catch (ClassCastException e) {
+            // would be caused by a corrupt transaction log
+            log.warn("Unexpected log entry or corrupt log.  Entry={}", o, e);
+            records.add(RecordSummary.CORRUPT);
+          } catch (Exception e) {
+            log.warn("Exception reverse reading log", e);
+            recentRecords.reachedStart = true;
+            break;
+          }
+        }
+        recentRecords.prevPos = reader.prevPos;
+        recentRecords.nextLength = reader.nextLength;
+        return recentRecords.first(n);
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  /** The operation, version and position of a record, without its document. */
+  public static final class RecordSummary {
+    static final RecordSummary CORRUPT = new RecordSummary(-1, 0, -1, -1, null);
+
+    /** The operation and flags of the record, or -1 if it couldn't be read */
+    public final int flags;
+
+    public final long version;
+    public final long position;
+
+    /** The version an in-place update was applied to, or -1 */
+    public final long previousVersion;
+
+    /** The id of a delete by id */
+    public final byte[] id;
+
+    private RecordSummary(int flags, long version, long position, long prevVersion, byte[] id) {
+      this.flags = flags;
+      this.version = version;
+      this.position = position;
+      this.previousVersion = prevVersion;
+      this.id = id;
+    }
+
+    static RecordSummary of(List<?> entry, long position) {
+      int flags = (Integer) entry.get(UpdateLog.FLAGS_IDX);
+      int oper = flags & UpdateLog.OPERATION_MASK;
+      long version = (Long) entry.get(UpdateLog.VERSION_IDX);
+      long prevVersion = -1;
+      byte[] id = null;
+      if (oper == UpdateLog.UPDATE_INPLACE && entry.size() == 5) {
+        prevVersion = (Long) entry.get(UpdateLog.PREV_VERSION_IDX);
+      } else if (oper == UpdateLog.DELETE) {
+        id = (byte[]) entry.get(2);
+      }
+      return new RecordSummary(flags, version, position, prevVersion, id);
+    }
+  }
+
+  private static final class RecentRecords {
+    final long logSize;
+    final List<RecordSummary> records = new ArrayList<>();
+    // where the reverse reader stopped
+    long prevPos;
+    int nextLength;
+    boolean reachedStart;
+
+    RecentRecords(long logSize) {
+      this.logSize = logSize;
+    }
+
+    List<RecordSummary> first(int n) {
+      // a copy, as later reads add to the records
+      return List.copyOf(records.subList(0, Math.min(n, records.size())));
+    }
+  }
+
   public class LogReader {
     protected ChannelFastInputStream fis;
     private LogCodec codec = new LogCodec(resolver);
@@ -868,6 +1121,8 @@ public class TransactionLog implements Closeable {
     int nextLength;
     // where we started reading from last time (so prevPos - nextLength == start of next record)
     long prevPos;
+    // the size of the log when this reader was opened
+    long logSize;
 
     public FSReverseReader() throws IOException {
       incref();
@@ -879,6 +1134,7 @@ public class TransactionLog implements Closeable {
         assert sz == getLogFileSize();
       }
 
+      logSize = sz;
       fis = channelInputStreamOpener.open(channel, 0);
       if (sz >= 4) {
         // readHeader(fis);  // should not be needed
@@ -888,6 +1144,14 @@ public class TransactionLog implements Closeable {
       }
     }
 
+    /** Resumes reading where another reader of this log stopped */
+    FSReverseReader(long prevPos, int nextLength) throws IOException {
+      incref();
+      this.prevPos = prevPos;
+      this.nextLength = nextLength;
+      fis = channelInputStreamOpener.open(channel, Math.max(0, prevPos));
+    }
+
     /**
      * Returns the next object from the log, or null if none available.
      *
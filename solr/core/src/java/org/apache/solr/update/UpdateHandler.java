@@ -21,6 +21,9 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.core.DirectoryFactory;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
@@ -58,6 +61,9 @@ public abstract class UpdateHandler implements SolrInfoBean {
 
   protected SolrMetricsContext solrMetricsContext;
 
+  // lazily created, guarded by this
+  private ExecutorService indexingExecutor;
+
   private void parseEventListeners() {
     for (PluginInfo info : core.getSolrConfig().getPluginInfos(SolrEventListener.class.getName())) {
       String event = info.attributes.get("event");
@@ -227,6 +233,20 @@ public abstract class UpdateHandler implements SolrInfoBean {
 
   public abstract UpdateLog getUpdateLog();
 
+  /**
+   * The threads that index the documents of the update requests that use an {@link
+   * IndexingPipeline}. They are shared by all these requests, so that there are never more than
+   * {@link IndexingPipeline#MAX_INDEX_THREADS} of them.
+   */
+  public synchronized ExecutorService getIndexingExecutor() {
+    if (indexingExecutor == null) {
+      indexingExecutor =
+          ExecutorUtil.newMDCAwareFixedThreadPool(
+              IndexingPipeline.MAX_INDEX_THREADS, new SolrNamedThreadFactory("IndexingPipeline"));
+    }
+    return indexingExecutor;
+  }
+
   /**
    * NOTE: this function is not thread safe. However, it is safe to call within the <code>
    * inform( SolrCore core )</code> function for <code>SolrCoreAware</code> classes. Outside <code>
@@ -271,4 +291,14 @@ public abstract class UpdateHandler implements SolrInfoBean {
   public SolrMetricsContext getSolrMetricsContext() {
     return solrMetricsContext;
   }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (indexingExecutor != null) {
+        ExecutorUtil.shutdownAndAwaitTermination(indexingExecutor);
+      }
+    }
+    SolrInfoBean.super.close();
+  }
 }
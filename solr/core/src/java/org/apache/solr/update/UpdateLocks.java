@@ -20,7 +20,10 @@ package org.apache.solr.update;
 import com.carrotsearch.hppc.IntObjectHashMap;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -60,6 +63,18 @@ public class UpdateLocks {
   /** A pool of locks to avoid creating & GC'ing them too much. Must synchronize on hashToLock. */
   private final ArrayDeque<LockAndCondition> lockPool = new ArrayDeque<>(16);
 
+  /**
+   * The number of adds of each doc ID that are being indexed by another thread than the one that
+   * held the lock of the ID, see {@link IndexingPipeline}. Synchronize to manipulate.
+   */
+  private final Map<BytesRef, Integer> pendingAdds = new HashMap<>();
+
+  /**
+   * The number of adds being indexed by another thread, including those without an ID, which are
+   * not in {@link #pendingAdds}. Only modified when synchronized on {@link #pendingAdds}.
+   */
+  private final AtomicInteger numPendingAdds = new AtomicInteger();
+
   public UpdateLocks(long docLockTimeoutMs) {
     this.docLockTimeoutMs = docLockTimeoutMs;
   }
@@ -174,6 +189,53 @@ public class UpdateLocks {
     }
   }
 
+  /**
+   * Registers an add that another thread will index, while the lock of its doc ID, if any, is held.
+   * The next updates of the ID, which have newer versions, must wait for it with {@link
+   * #awaitPendingAdds(BytesRef)} before they read the current version of the document or index it,
+   * and {@link #blockUpdates()} waits for it too.
+   */
+  public void addPendingAdd(BytesRef id) {
+    synchronized (pendingAdds) {
+      if (id != null) {
+        pendingAdds.merge(id, 1, Integer::sum);
+      }
+      numPendingAdds.incrementAndGet();
+    }
+  }
+
+  /** Called once an add registered with {@link #addPendingAdd(BytesRef)} was indexed, or failed. */
+  public void removePendingAdd(BytesRef id) {
+    synchronized (pendingAdds) {
+      if (id != null && pendingAdds.merge(id, -1, Integer::sum) == 0) {
+        pendingAdds.remove(id);
+      }
+      numPendingAdds.decrementAndGet();
+      pendingAdds.notifyAll();
+    }
+  }
+
+  /**
+   * Waits until the adds of the doc ID that other threads are indexing are done. Must be called
+   * with the lock of the ID held, so that no other add of the ID is registered meanwhile.
+   */
+  public void awaitPendingAdds(BytesRef id) {
+    if (numPendingAdds.get() == 0) {
+      return; // typical
+    }
+    synchronized (pendingAdds) {
+      while (pendingAdds.containsKey(id)) {
+        try {
+          pendingAdds.wait();
+        } catch (InterruptedException e) {
+          // don't set interrupt status; we're ending the request
+          throw new SolrException(
+              ErrorCode.SERVER_ERROR, "Interrupted while waiting for doc " + id, e);
+        }
+      }
+    }
+  }
+
   public void lockForUpdate() {
     blockUpdatesLock.readLock().lock();
   }
@@ -182,8 +244,30 @@ public class UpdateLocks {
     blockUpdatesLock.readLock().unlock();
   }
 
+  /**
+   * Blocks the updates until {@link #unblockUpdates()}. Returns once the updates that were in
+   * progress are done, including the adds that other threads are still indexing, see {@link
+   * #addPendingAdd(BytesRef)}.
+   */
   public void blockUpdates() {
     blockUpdatesLock.writeLock().lock();
+    if (numPendingAdds.get() == 0) {
+      return; // typical
+    }
+    // no add is registered meanwhile, DistributedUpdateProcessor does it with the read lock held
+    boolean interrupted = false;
+    synchronized (pendingAdds) {
+      while (numPendingAdds.get() > 0) {
+        try {
+          pendingAdds.wait();
+        } catch (InterruptedException e) {
+          interrupted = true; // like the lock above, not interruptible
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   public void unblockUpdates() {
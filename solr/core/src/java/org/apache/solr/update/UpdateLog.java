@@ -22,7 +22,9 @@ import static org.apache.solr.update.processor.DistributingUpdateProcessorFactor
 import com.carrotsearch.hppc.LongHashSet;
 import com.carrotsearch.hppc.LongSet;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -45,6 +47,7 @@ import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import java.util.concurrent.SynchronousQueue;
@@ -203,7 +206,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   protected volatile State state = State.ACTIVE;
 
   protected TransactionLog bufferTlog;
-  protected TransactionLog tlog;
+  protected volatile TransactionLog tlog;
   protected TransactionLog prevTlog;
   protected TransactionLog prevTlogOnPrecommit;
   // list of recent logs, newest first
@@ -211,13 +214,17 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   protected Deque<TransactionLog> newestLogsOnStartup = new ArrayDeque<>();
   protected int numOldRecords; // number of records in the recent logs
 
-  protected Map<BytesRef, LogPtr> map = new HashMap<>();
-  protected Map<BytesRef, LogPtr> prevMap; // used while committing/reopening is happening
-  protected Map<BytesRef, LogPtr> prevMap2; // used while committing/reopening is happening
+  // The id maps are read without locking (real-time get), while updates to them and their
+  // rotation on commit are synchronized on this update log. Each LogPtr knows its own tlog.
+  protected volatile Map<BytesRef, LogPtr> map = new ConcurrentHashMap<>();
+  // used while committing/reopening is happening
+  protected volatile Map<BytesRef, LogPtr> prevMap;
+  // used while committing/reopening is happening
+  protected volatile Map<BytesRef, LogPtr> prevMap2;
   // the transaction log used to look up entries found in prevMap
-  protected TransactionLog prevMapLog;
+  protected volatile TransactionLog prevMapLog;
   // the transaction log used to look up entries found in prevMap2
-  protected TransactionLog prevMapLog2;
+  protected volatile TransactionLog prevMapLog2;
 
   protected final int numDeletesToKeep = 1000;
   protected final int numDeletesByQueryToKeep = 100;
@@ -256,6 +263,10 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   protected VersionInfo versionInfo;
 
   protected SyncLevel defaultSyncLevel = SyncLevel.FLUSH;
+  // with FSYNC, whether concurrent requests share fsyncs, see TransactionLog.groupSync
+  protected boolean groupFsync;
+  protected long groupFsyncMaxLatencyNanos;
+  protected long groupFsyncMaxBytes;
 
   protected volatile UpdateHandler uhandler; // a core reload can change this reference!
   protected volatile boolean cancelApplyBufferUpdate;
@@ -266,6 +277,8 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   protected Meter applyingBufferedOpsMeter;
   protected Meter replayOpsMeter;
   protected Meter copyOverOldUpdatesMeter;
+  protected Timer fsyncTimer;
+  protected Histogram fsyncGroupSize;
   protected SolrMetricsContext solrMetricsContext;
 
   public static class LogPtr {
@@ -273,6 +286,8 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     final long version;
     // used for entries that are in-place updates and need a pointer to a previous update command
     final long previousPointer;
+    // the transaction log the update was written to, null if it wasn't logged
+    final TransactionLog log;
 
     /**
      * Creates an object that contains the position and version of an update. In this constructor,
@@ -292,9 +307,21 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
      *     update depends
      */
     public LogPtr(long pointer, long version, long previousPointer) {
+      this(pointer, version, previousPointer, null);
+    }
+
+    /**
+     * @param pointer Position in the transaction log of an update
+     * @param version Version of the update at the given position
+     * @param previousPointer Position, in the transaction log, of an update on which the current
+     *     update depends
+     * @param log The transaction log the update was written to
+     */
+    public LogPtr(long pointer, long version, long previousPointer, TransactionLog log) {
       this.pointer = pointer;
       this.version = version;
       this.previousPointer = previousPointer;
+      this.log = log;
     }
 
     @Override
@@ -379,6 +406,11 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     dataDir = (String) info.initArgs.get("dir");
     defaultSyncLevel = SyncLevel.getSyncLevel((String) info.initArgs.get("syncLevel"));
 
+    groupFsync = Boolean.parseBoolean(String.valueOf(info.initArgs.get("groupFsync")));
+    groupFsyncMaxLatencyNanos =
+        TimeUnit.MILLISECONDS.toNanos(objToInt(info.initArgs.get("groupFsyncMaxLatencyMs"), 0));
+    groupFsyncMaxBytes = objToInt(info.initArgs.get("groupFsyncMaxBytes"), 1024 * 1024);
+
     numRecordsToKeep = objToInt(info.initArgs.get("numRecordsToKeep"), 100);
     maxNumLogsToKeep = objToInt(info.initArgs.get("maxNumLogsToKeep"), 10);
     if (info.initArgs.get("numVersionBuckets") != null) {
@@ -396,9 +428,10 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     updateLocks = new UpdateLocks(timeoutMs);
 
     log.info(
-        "Initializing UpdateLog: dataDir={} defaultSyncLevel={} numRecordsToKeep={} maxNumLogsToKeep={}",
+        "Initializing UpdateLog: dataDir={} defaultSyncLevel={} groupFsync={} numRecordsToKeep={} maxNumLogsToKeep={}",
         dataDir,
         defaultSyncLevel,
+        groupFsync,
         numRecordsToKeep,
         maxNumLogsToKeep);
   }
@@ -656,6 +689,8 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     applyingBufferedOpsMeter = solrMetricsContext.meter("ops", scope, "applyingBuffered");
     replayOpsMeter = solrMetricsContext.meter("ops", scope, "replay");
     copyOverOldUpdatesMeter = solrMetricsContext.meter("ops", scope, "copyOverOldUpdates");
+    fsyncTimer = solrMetricsContext.timer("fsync", scope);
+    fsyncGroupSize = solrMetricsContext.histogram("groupSize", scope, "fsync");
     solrMetricsContext.gauge(() -> state.getValue(), true, "state", scope);
   }
 
@@ -760,6 +795,9 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     // TODO: we currently need to log to maintain correct versioning, rtg, etc
     // if ((cmd.getFlags() & UpdateCommand.REPLAY) != 0) return;
 
+    TransactionLog writeLog = null;
+    Map<BytesRef, LogPtr> writeMap;
+    long prevPointer;
     synchronized (this) {
       if ((cmd.getFlags() & UpdateCommand.BUFFERING) != 0) {
         ensureBufferTlog();
@@ -767,38 +805,84 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
         return;
       }
 
-      long pos = -1;
-      long prevPointer = getPrevPointerForUpdate(cmd);
+      prevPointer = getPrevPointerForUpdate(cmd);
 
       // don't log if we are replaying from another log
       if (!updateFromOldTlogs(cmd)) {
         ensureLog();
-        pos = tlog.write(cmd, prevPointer);
+        writeLog = startWrite(tlog);
       }
+      writeMap = map;
+    }
 
-      if (!clearCaches) {
-        // TODO: in the future we could support a real position for a REPLAY update.
-        // Only currently would be useful for RTG while in recovery mode though.
-        LogPtr ptr = new LogPtr(pos, cmd.getVersion(), prevPointer);
+    // the document is serialized outside the lock, so that adds can be logged concurrently
+    long pos = -1;
+    if (writeLog != null) {
+      try {
+        pos = writeLog.write(cmd, prevPointer);
+      } finally {
+        endWrite(writeLog);
+      }
+    }
 
-        map.put(cmd.getIndexedId(), ptr);
+    if (!clearCaches) {
+      // TODO: in the future we could support a real position for a REPLAY update.
+      // Only currently would be useful for RTG while in recovery mode though.
+      LogPtr ptr = new LogPtr(pos, cmd.getVersion(), prevPointer, writeLog);
 
-        if (trace) {
-          log.trace(
-              "TLOG: added id {} to {} {} map={}",
-              cmd.getPrintableId(),
-              tlog,
-              ptr,
-              System.identityHashCode(map));
-        }
+      writeMap.put(cmd.getIndexedId(), ptr);
 
-      } else {
-        openRealtimeSearcher();
-        if (log.isTraceEnabled()) {
-          log.trace("TLOG: added id {} to {} clearCaches=true", cmd.getPrintableId(), tlog);
+      if (trace) {
+        log.trace(
+            "TLOG: added id {} to {} {} map={}",
+            cmd.getPrintableId(),
+            writeLog,
+            ptr,
+            System.identityHashCode(writeMap));
+      }
+
+    } else {
+      openRealtimeSearcher();
+      if (log.isTraceEnabled()) {
+        log.trace("TLOG: added id {} to {} clearCaches=true", cmd.getPrintableId(), writeLog);
+      }
+    }
+  }
+
+  /**
+   * Registers a write to the given tlog that will be done outside the lock on this update log. The
+   * tlog is kept open, and its commit isn't written, until {@link #endWrite(TransactionLog)}.
+   */
+  private TransactionLog startWrite(TransactionLog writeLog) {
+    writeLog.incref();
+    writeLog.pendingWrites.incrementAndGet();
+    return writeLog;
+  }
+
+  private void endWrite(TransactionLog writeLog) {
+    if (writeLog.pendingWrites.decrementAndGet() == 0) {
+      synchronized (writeLog.pendingWrites) {
+        writeLog.pendingWrites.notifyAll();
+      }
+    }
+    writeLog.decref();
+  }
+
+  /** Waits for the writes started before the given tlog was rotated out to finish. */
+  private static void awaitWrites(TransactionLog writeLog) {
+    boolean interrupted = false;
+    synchronized (writeLog.pendingWrites) {
+      while (writeLog.pendingWrites.get() > 0) {
+        try {
+          writeLog.pendingWrites.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
         }
       }
     }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   /**
@@ -810,25 +894,37 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
    *     not set, it is not an in-place update at all, and don't bother about the prevPointer value
    *     at all (which is -1 as a dummy value).)
    */
-  private synchronized long getPrevPointerForUpdate(AddUpdateCommand cmd) {
-    // note: sync required to ensure maps aren't changed out form under us
+  private long getPrevPointerForUpdate(AddUpdateCommand cmd) {
     if (cmd.isInPlaceUpdate()) {
-      BytesRef indexedId = cmd.getIndexedId();
-      for (Map<BytesRef, LogPtr> currentMap : Arrays.asList(map, prevMap, prevMap2)) {
-        if (currentMap != null) {
-          LogPtr prevEntry = currentMap.get(indexedId);
-          if (null != prevEntry) {
-            return prevEntry.pointer;
-          }
-        }
+      LogPtr prevEntry = getEntry(cmd.getIndexedId());
+      if (null != prevEntry) {
+        return prevEntry.pointer;
       }
     }
     return -1;
   }
 
+  /** Looks up the latest entry for the id in the maps, newest first, without locking. */
+  private LogPtr getEntry(BytesRef indexedId) {
+    // read each map once, they may be rotated concurrently
+    Map<BytesRef, LogPtr> currentMap = map;
+    Map<BytesRef, LogPtr> currentPrevMap = prevMap;
+    Map<BytesRef, LogPtr> currentPrevMap2 = prevMap2;
+    LogPtr entry = currentMap.get(indexedId);
+    if (entry == null && currentPrevMap != null) {
+      entry = currentPrevMap.get(indexedId);
+    }
+    if (entry == null && currentPrevMap2 != null) {
+      entry = currentPrevMap2.get(indexedId);
+    }
+    return entry;
+  }
+
   public void delete(DeleteUpdateCommand cmd) {
     BytesRef br = cmd.getIndexedId();
 
+    TransactionLog writeLog = null;
+    Map<BytesRef, LogPtr> writeMap;
     synchronized (this) {
       if ((cmd.getFlags() & UpdateCommand.BUFFERING) != 0) {
         ensureBufferTlog();
@@ -836,25 +932,37 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
         return;
       }
 
-      long pos = -1;
       if (!updateFromOldTlogs(cmd)) {
         ensureLog();
-        pos = tlog.writeDelete(cmd);
+        writeLog = startWrite(tlog);
       }
+      writeMap = map;
+    }
 
-      LogPtr ptr = new LogPtr(pos, cmd.version);
-      map.put(br, ptr);
-      oldDeletes.put(br, ptr);
-
-      if (trace) {
-        log.trace(
-            "TLOG: added delete for id {} to {} {} map={}",
-            cmd.id,
-            tlog,
-            ptr,
-            System.identityHashCode(map));
+    long pos = -1;
+    if (writeLog != null) {
+      try {
+        pos = writeLog.writeDelete(cmd);
+      } finally {
+        endWrite(writeLog);
       }
     }
+
+    LogPtr ptr = new LogPtr(pos, cmd.version, -1, writeLog);
+    writeMap.put(br, ptr);
+    synchronized (this) {
+      // only the version is needed here, don't keep the tlog from being collected
+      oldDeletes.put(br, new LogPtr(pos, cmd.version));
+    }
+
+    if (trace) {
+      log.trace(
+          "TLOG: added delete for id {} to {} {} map={}",
+          cmd.id,
+          writeLog,
+          ptr,
+          System.identityHashCode(writeMap));
+    }
   }
 
   public void deleteByQuery(DeleteUpdateCommand cmd) {
@@ -985,7 +1093,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     prevMap = map;
     prevMapLog = tlog;
 
-    map = new HashMap<>();
+    map = new ConcurrentHashMap<>();
   }
 
   private void clearOldMaps() {
@@ -1042,6 +1150,8 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
         // if we made it through the commit, write a commit command to the log
         // TODO: check that this works to cap a tlog we were using to buffer so we don't replay on
         // startup.
+        // updates that started before preCommit may still be writing, they belong before the commit
+        awaitWrites(prevTlog);
         prevTlog.writeCommit(cmd);
 
         addOldLog(prevTlog, true);
@@ -1064,7 +1174,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
       // any added documents will make it into this commit or not.
       // But we do know that any updates already added will definitely
       // show up in the latest reader after the commit succeeds.
-      map = new HashMap<>();
+      map = new ConcurrentHashMap<>();
 
       if (debug) {
         log.debug(
@@ -1113,7 +1223,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
    *     logs were rotated) then the prevPointer is returned.
    */
   @SuppressWarnings({"unchecked"})
-  public synchronized long applyPartialUpdates(
+  public long applyPartialUpdates(
       BytesRef id,
       long prevPointer,
       long prevVersion,
@@ -1198,11 +1308,13 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
    *
    * @return The entry if found, otherwise null
    */
-  private synchronized List<?> getEntryFromTLog(
+  private List<?> getEntryFromTLog(
       long lookupPointer, long lookupVersion, List<TransactionLog> lookupLogs) {
     for (TransactionLog lookupLog : lookupLogs) {
-      if (lookupLog != null && lookupLog.getLogSize() > lookupPointer) {
-        lookupLog.incref();
+      // a log that was closed concurrently no longer has entries that aren't in the index
+      if (lookupLog != null
+          && lookupLog.getLogSize() > lookupPointer
+          && lookupLog.try_incref()) {
         try {
           Object obj = null;
 
@@ -1236,39 +1348,15 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   }
 
   public Object lookup(BytesRef indexedId) {
-    LogPtr entry;
-    TransactionLog lookupLog;
-
-    synchronized (this) {
-      entry = map.get(indexedId);
-      lookupLog = tlog; // something found in "map" will always be in "tlog"
-      // SolrCore.verbose("TLOG: lookup: for id ",indexedId.utf8ToString(),"in
-      // map",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      if (entry == null && prevMap != null) {
-        entry = prevMap.get(indexedId);
-        // something found in prevMap will always be found in prevMapLog (which could be tlog or
-        // prevTlog)
-        lookupLog = prevMapLog;
-        // SolrCore.verbose("TLOG: lookup: for id ",indexedId.utf8ToString(),"in
-        // prevMap",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      }
-      if (entry == null && prevMap2 != null) {
-        entry = prevMap2.get(indexedId);
-        // something found in prevMap2 will always be found in prevMapLog2 (which could be tlog or
-        // prevTlog)
-        lookupLog = prevMapLog2;
-        // SolrCore.verbose("TLOG: lookup: for id ",indexedId.utf8ToString(),"in
-        // prevMap2",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      }
-
-      if (entry == null) {
-        return null;
-      }
-      lookupLog.incref();
+    LogPtr entry = getEntry(indexedId);
+    // something found in the maps will always be found in its tlog, unless the tlog was closed
+    // since, which only happens once its updates are in the index
+    if (entry == null || entry.log == null || !entry.log.try_incref()) {
+      return null;
     }
 
+    TransactionLog lookupLog = entry.log;
     try {
-      // now do the lookup outside of the sync block for concurrency
       return lookupLog.lookup(entry.pointer);
     } finally {
       lookupLog.decref();
@@ -1280,31 +1368,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   // that have already grabbed higher version numbers.  Higher level coordination or
   // synchronization is needed for stronger guarantees (as VersionUpdateProcessor does).
   public Long lookupVersion(BytesRef indexedId) {
-    LogPtr entry;
-    TransactionLog lookupLog;
-
-    synchronized (this) {
-      entry = map.get(indexedId);
-      lookupLog = tlog; // something found in "map" will always be in "tlog"
-      // SolrCore.verbose("TLOG: lookup ver: for id ",indexedId.utf8ToString(),"in
-      // map",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      if (entry == null && prevMap != null) {
-        entry = prevMap.get(indexedId);
-        // something found in prevMap will always be found in prevMapLog (which could be tlog or
-        // prevTlog)
-        lookupLog = prevMapLog;
-        // SolrCore.verbose("TLOG: lookup ver: for id ",indexedId.utf8ToString(),"in
-        // prevMap",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      }
-      if (entry == null && prevMap2 != null) {
-        entry = prevMap2.get(indexedId);
-        // something found in prevMap2 will always be found in prevMapLog2 (which could be tlog or
-        // prevTlog)
-        lookupLog = prevMapLog2;
-        // SolrCore.verbose("TLOG: lookup ver: for id ",indexedId.utf8ToString(),"in
-        // prevMap2",System.identityHashCode(map),"got",entry,"lookupLog=",lookupLog);
-      }
-    }
+    LogPtr entry = getEntry(indexedId);
 
     if (entry != null) {
       return entry.version;
@@ -1347,7 +1411,15 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     }
 
     try {
-      currLog.finish(syncLevel);
+      if (syncLevel == SyncLevel.FSYNC && groupFsync) {
+        int groupSize =
+            currLog.groupSync(groupFsyncMaxLatencyNanos, groupFsyncMaxBytes, fsyncTimer);
+        if (groupSize > 0 && fsyncGroupSize != null) {
+          fsyncGroupSize.update(groupSize);
+        }
+      } else {
+        currLog.finish(syncLevel);
+      }
     } finally {
       currLog.decref();
     }
@@ -1771,23 +1843,18 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
       for (TransactionLog oldLog : logList) {
         List<Update> updatesForLog = new ArrayList<>();
 
-        TransactionLog.ReverseReader reader = null;
         try {
-          reader = oldLog.getReverseReader();
-
-          while (numUpdates < numRecordsToKeep) {
-            Object o = null;
+          // the records of logs that aren't written to anymore are only decoded once
+          for (TransactionLog.RecordSummary record :
+              oldLog.getRecentRecords(numRecordsToKeep - numUpdates)) {
+            if (record.flags < 0) {
+              // a corrupt record, which was already logged
+              numUpdates++;
+              continue;
+            }
             try {
-              o = reader.next();
-              if (o == null) break;
-
-              // should currently be a List<Oper,Ver,Doc/Id>
-              List<?> entry = (List<?>) o;
-
-              // TODO: refactor this out so we get common error handling
-              int opAndFlags = (Integer) entry.get(UpdateLog.FLAGS_IDX);
-              int oper = opAndFlags & UpdateLog.OPERATION_MASK;
-              long version = (Long) entry.get(UpdateLog.VERSION_IDX);
+              int oper = record.flags & UpdateLog.OPERATION_MASK;
+              long version = record.version;
 
               if (oldLog.isBuffer) bufferUpdates.add(version);
 
@@ -1798,13 +1865,11 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
                 case UpdateLog.DELETE_BY_QUERY:
                   Update update = new Update();
                   update.log = oldLog;
-                  update.pointer = reader.position();
+                  update.pointer = record.position;
                   update.version = version;
 
-                  if (oper == UpdateLog.UPDATE_INPLACE) {
-                    if (entry.size() == 5) {
-                      update.previousVersion = (Long) entry.get(UpdateLog.PREV_VERSION_IDX);
-                    }
+                  if (oper == UpdateLog.UPDATE_INPLACE && record.previousVersion != -1) {
+                    update.previousVersion = record.previousVersion;
                   }
                   updatesForLog.add(update);
                   updates.put(version, update);
@@ -1812,7 +1877,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
                   if (oper == UpdateLog.DELETE_BY_QUERY) {
                     deleteByQueryList.add(update);
                   } else if (oper == UpdateLog.DELETE) {
-                    deleteList.add(new DeleteUpdate(version, (byte[]) entry.get(2)));
+                    deleteList.add(new DeleteUpdate(version, record.id));
                   }
 
                   break;
@@ -1823,9 +1888,6 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
                   throw new SolrException(
                       SolrException.ErrorCode.SERVER_ERROR, "Unknown Operation! " + oper);
               }
-            } catch (ClassCastException cl) {
-              log.warn("Unexpected log entry or corrupt log.  Entry={}", o, cl);
-              // would be caused by a corrupt transaction log
             } catch (Exception ex) {
               log.warn("Exception reverse reading log", ex);
               break;
@@ -1838,8 +1900,6 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
           // catch AssertionError to handle certain test failures correctly failure to read a log
           // record isn't fatal
           log.error("Exception reading versions from log", e);
-        } finally {
-          if (reader != null) reader.close();
         }
 
         updateList.add(updatesForLog);
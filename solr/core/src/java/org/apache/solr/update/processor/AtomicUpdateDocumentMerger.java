@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -38,6 +39,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.solr.cloud.CloudDescriptor;
@@ -56,7 +58,10 @@ import org.apache.solr.schema.CopyField;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.NumericValueFieldType;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.DocValuesIteratorCache;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.UpdateLog;
 import org.apache.solr.util.DateMathParser;
 import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
@@ -72,6 +77,12 @@ public class AtomicUpdateDocumentMerger {
   protected final IndexSchema schema;
   protected final SchemaField idField;
 
+  // what getInPlaceUpdatableFields found out about the fields, for the updates of this request
+  private Map<String, Boolean> inPlaceUpdatableFields;
+  private boolean versionFieldSupportsInPlaceUpdate;
+  private String routeField;
+  private Set<String> indexSortFields;
+
   public AtomicUpdateDocumentMerger(SolrQueryRequest queryReq) {
     schema = queryReq.getSchema();
     idField = schema.getUniqueKeyField();
@@ -230,8 +241,72 @@ public class AtomicUpdateDocumentMerger {
    *
    * @return Return a set of fields that can be in-place updated.
    */
-  @SuppressWarnings({"unchecked"})
   public static Set<String> computeInPlaceUpdatableFields(AddUpdateCommand cmd) throws IOException {
+    IndexSchema schema = cmd.getReq().getSchema();
+
+    // if _version_ field is not supported for in-place update, bail out early
+    if (!isVersionFieldSupportedForInPlaceUpdate(schema)) {
+      return Collections.emptySet();
+    }
+
+    Set<String> candidateFields = getInPlaceUpdateCandidates(cmd, getRouteField(cmd));
+    if (candidateFields.isEmpty()) {
+      return Collections.emptySet();
+    }
+
+    Set<String> indexSortFields = getIndexSortFields(cmd.getReq().getCore());
+    for (String fieldName : candidateFields) {
+      if (!isInPlaceUpdatableField(schema, fieldName, indexSortFields)) {
+        return Collections.emptySet();
+      }
+    }
+    return candidateFields;
+  }
+
+  /**
+   * Same as {@link #computeInPlaceUpdatableFields(AddUpdateCommand)}, except that the checks of a
+   * field against the schema and the IndexWriter are only done once for all the updates of the
+   * request, which matters for requests with many in-place updates, such as counters.
+   */
+  public Set<String> getInPlaceUpdatableFields(AddUpdateCommand cmd) throws IOException {
+    if (inPlaceUpdatableFields == null) {
+      inPlaceUpdatableFields = new HashMap<>();
+      versionFieldSupportsInPlaceUpdate = isVersionFieldSupportedForInPlaceUpdate(schema);
+      routeField = getRouteField(cmd);
+    }
+    if (!versionFieldSupportsInPlaceUpdate) {
+      return Collections.emptySet();
+    }
+
+    Set<String> candidateFields = getInPlaceUpdateCandidates(cmd, routeField);
+    for (String fieldName : candidateFields) {
+      Boolean updatable = inPlaceUpdatableFields.get(fieldName);
+      if (updatable == null) {
+        if (indexSortFields == null) {
+          indexSortFields = getIndexSortFields(cmd.getReq().getCore());
+        }
+        updatable = isInPlaceUpdatableField(schema, fieldName, indexSortFields);
+        inPlaceUpdatableFields.put(fieldName, updatable);
+      }
+      if (!updatable) {
+        return Collections.emptySet();
+      }
+    }
+    return candidateFields;
+  }
+
+  private static boolean isVersionFieldSupportedForInPlaceUpdate(IndexSchema schema) {
+    SchemaField versionField = schema.getFieldOrNull(CommonParams.VERSION_FIELD);
+    return versionField != null && isSupportedFieldForInPlaceUpdate(versionField);
+  }
+
+  /**
+   * Returns the fields of the update that are candidates for an in-place update, or an empty set if
+   * some of its fields obviously can't be updated in-place.
+   */
+  @SuppressWarnings({"unchecked"})
+  private static Set<String> getInPlaceUpdateCandidates(
+      AddUpdateCommand cmd, String routeFieldOrNull) {
     SolrInputDocument sdoc = cmd.getSolrInputDocument();
     IndexSchema schema = cmd.getReq().getSchema();
 
@@ -240,13 +315,6 @@ public class AtomicUpdateDocumentMerger {
 
     final Set<String> candidateFields = new HashSet<>();
 
-    // if _version_ field is not supported for in-place update, bail out early
-    SchemaField versionField = schema.getFieldOrNull(CommonParams.VERSION_FIELD);
-    if (versionField == null || !isSupportedFieldForInPlaceUpdate(versionField)) {
-      return Collections.emptySet();
-    }
-
-    String routeFieldOrNull = getRouteField(cmd);
     // first pass, check the things that are virtually free,
     // and bail out early if anything is obviously not a valid in-place update
     for (String fieldName : sdoc.getFieldNames()) {
@@ -290,44 +358,37 @@ public class AtomicUpdateDocumentMerger {
       candidateFields.add(fieldName);
     }
 
-    if (candidateFields.isEmpty()) {
-      return Collections.emptySet();
-    }
+    return candidateFields;
+  }
 
-    // second pass over the candidates for in-place updates
-    // this time more expensive checks involving schema/config settings
-    for (String fieldName : candidateFields) {
-      SchemaField schemaField = schema.getField(fieldName);
+  /** Checks the schema and the IndexWriter config to tell if the field can be updated in-place */
+  private static boolean isInPlaceUpdatableField(
+      IndexSchema schema, String fieldName, Set<String> indexSortFields) {
+    SchemaField schemaField = schema.getField(fieldName);
 
-      if (!isSupportedFieldForInPlaceUpdate(schemaField)) {
-        return Collections.emptySet();
-      }
+    if (!isSupportedFieldForInPlaceUpdate(schemaField)) {
+      return false;
+    }
 
-      // if this field has copy target which is not supported for in place, then empty
-      for (CopyField copyField : schema.getCopyFieldsList(fieldName)) {
-        if (!isSupportedFieldForInPlaceUpdate(copyField.getDestination()))
-          return Collections.emptySet();
+    // if this field has copy target which is not supported for in place, then empty
+    for (CopyField copyField : schema.getCopyFieldsList(fieldName)) {
+      if (!isSupportedFieldForInPlaceUpdate(copyField.getDestination())) {
+        return false;
       }
     }
 
-    // third pass: requiring checks against the actual IndexWriter due to internal DV update
-    // limitations
-    SolrCore core = cmd.getReq().getCore();
+    // if this is used for segment sorting, DV updates can't work
+    return !indexSortFields.contains(fieldName);
+  }
+
+  // requires checks against the actual IndexWriter due to internal DV update limitations
+  private static Set<String> getIndexSortFields(SolrCore core) throws IOException {
     RefCounted<IndexWriter> holder = core.getSolrCoreState().getIndexWriter(core);
-    Set<String> segmentSortingFields = null;
     try {
-      IndexWriter iw = holder.get();
-      segmentSortingFields = iw.getConfig().getIndexSortFields();
+      return holder.get().getConfig().getIndexSortFields();
     } finally {
       holder.decref();
     }
-    for (String fieldName : candidateFields) {
-      if (segmentSortingFields.contains(fieldName)) {
-        return Collections.emptySet(); // if this is used for segment sorting, DV updates can't work
-      }
-    }
-
-    return candidateFields;
   }
 
   private static String getRouteField(AddUpdateCommand cmd) {
@@ -394,13 +455,19 @@ public class AtomicUpdateDocumentMerger {
     updatedFields.add(
         CommonParams.VERSION_FIELD); // add the version field so that it is fetched too
     SolrInputDocument oldDocument =
-        RealTimeGetComponent.getInputDocument(
-            cmd.getReq().getCore(),
-            idBytes,
-            rootIdBytes,
-            null, // don't want the version to be returned
-            updatedFields,
-            RealTimeGetComponent.Resolution.DOC);
+        idBytes.equals(rootIdBytes)
+            ? getInPlaceUpdatableValues(cmd.getReq().getCore(), idBytes, updatedFields)
+            : null;
+    if (oldDocument == null) {
+      oldDocument =
+          RealTimeGetComponent.getInputDocument(
+              cmd.getReq().getCore(),
+              idBytes,
+              rootIdBytes,
+              null, // don't want the version to be returned
+              updatedFields,
+              RealTimeGetComponent.Resolution.DOC);
+    }
 
     if (oldDocument == RealTimeGetComponent.DELETED || oldDocument == null) {
       // This doc was deleted recently. In-place update cannot work, hence a full atomic update
@@ -461,6 +528,50 @@ public class AtomicUpdateDocumentMerger {
     return true;
   }
 
+  /**
+   * Reads the current values of the fields of an in-place update, and its version, from the update
+   * log or from the doc values of the realtime searcher. Unlike {@link
+   * RealTimeGetComponent#getInputDocument}, the rest of the document is never resolved.
+   *
+   * @return {@link RealTimeGetComponent#DELETED} if there is no such document, or null if the
+   *     values can't be read this way, if the update log only has an earlier in-place update of
+   *     other fields.
+   */
+  private SolrInputDocument getInPlaceUpdatableValues(
+      SolrCore core, BytesRef idBytes, Set<String> fields) throws IOException {
+    UpdateLog ulog = core.getUpdateHandler().getUpdateLog();
+    Object o = ulog == null ? null : ulog.lookup(idBytes);
+    if (o != null) {
+      List<?> entry = (List<?>) o;
+      int oper = (Integer) entry.get(0) & UpdateLog.OPERATION_MASK;
+      if (oper == UpdateLog.DELETE) {
+        return RealTimeGetComponent.DELETED;
+      }
+      SolrInputDocument doc = (SolrInputDocument) entry.get(entry.size() - 1);
+      // an added document has all its values, an in-place update only has the fields it updated
+      if (oper == UpdateLog.ADD || doc.keySet().containsAll(fields)) {
+        return doc;
+      }
+      return null;
+    }
+
+    RefCounted<SolrIndexSearcher> searcherHolder = core.getRealtimeSearcher();
+    try {
+      SolrIndexSearcher searcher = searcherHolder.get();
+      int docId = searcher.getFirstMatch(new Term(idField.getName(), idBytes));
+      if (docId < 0) {
+        return RealTimeGetComponent.DELETED;
+      }
+      SolrInputDocument doc = new SolrInputDocument();
+      searcher
+          .getDocFetcher()
+          .decorateDocValueFields(doc, docId, fields, new DocValuesIteratorCache(searcher, false));
+      return doc;
+    } finally {
+      searcherHolder.decref();
+    }
+  }
+
   protected void doSet(SolrInputDocument toDoc, SolrInputField sif, Object fieldVal) {
     String name = sif.getName();
     toDoc.setField(name, getNativeFieldValue(name, fieldVal));
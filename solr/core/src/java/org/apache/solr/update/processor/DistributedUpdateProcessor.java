@@ -53,6 +53,8 @@ import org.apache.solr.schema.SchemaField;
 import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.CommitUpdateCommand;
 import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.DirectUpdateHandler2;
+import org.apache.solr.update.IndexingPipeline;
 import org.apache.solr.update.SolrCmdDistributor;
 import org.apache.solr.update.SolrCmdDistributor.Node;
 import org.apache.solr.update.SolrCmdDistributor.SolrError;
@@ -238,6 +240,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
     boolean dropCmd = false;
     if (!forwardToLeader) {
+      throttleIndexing(cmd);
       dropCmd = versionAdd(cmd);
     }
 
@@ -282,6 +285,20 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     isIndexChanged = true;
   }
 
+  /**
+   * Delays the update if the index of the leader is falling behind on merges, before any lock is
+   * taken. The replicas are slowed down through their leader.
+   */
+  private void throttleIndexing(AddUpdateCommand cmd) {
+    if (!isLeader || (cmd.getFlags() & (UpdateCommand.REPLAY | UpdateCommand.PEER_SYNC)) != 0) {
+      return;
+    }
+    if (req.getCore().getUpdateHandler() instanceof DirectUpdateHandler2 updateHandler
+        && updateHandler.getIndexingThrottle() != null) {
+      updateHandler.getIndexingThrottle().throttle();
+    }
+  }
+
   /**
    * @return whether or not to drop this cmd
    * @throws IOException If there is a low-level I/O error.
@@ -331,6 +348,14 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
         leaderLogicWithVersionIntegrityCheck(isReplayOrPeersync, isLeader, versionOnUpdate);
     boolean forwardedFromCollection = cmd.getReq().getParams().get(DISTRIB_FROM_COLLECTION) != null;
 
+    if (cmd.isInPlaceUpdate()
+        || AtomicUpdateDocumentMerger.isAtomicUpdate(cmd)
+        || (leaderLogic && versionOnUpdate != 0)) {
+      // this update depends on the current version of the document, which this request may still
+      // be indexing
+      IndexingPipeline.awaitPending(req);
+    }
+
     long dependentVersionFound = -1;
     // if this is an in-place update, check and wait if we should be waiting for a previous update
     // (on which this update depends), before entering the synchronized block
@@ -359,6 +384,8 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
               // there may be other reasons in the future for a version on the commands
               condition.signalAll();
 
+              // an older update of the document may still be indexed by another thread
+              getUpdateLocks().awaitPendingAdds(cmd.getIndexedId());
               return doVersionAdd(
                   cmd,
                   finalVersionOnUpdate,
@@ -634,6 +661,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
       boolean isReplayOrPeersync,
       Condition condition,
       TimeOut waitTimeout) {
+    getUpdateLocks().awaitPendingAdds(cmd.getIndexedId());
     Long lookedUpVersion = vinfo.lookupVersion(cmd.getIndexedId());
     long lastFoundVersion = lookedUpVersion == null ? 0L : lookedUpVersion;
 
@@ -658,6 +686,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
           throw new RuntimeException(e);
         }
       }
+      getUpdateLocks().awaitPendingAdds(cmd.getIndexedId());
       lookedUpVersion = vinfo.lookupVersion(cmd.getIndexedId());
       lastFoundVersion = lookedUpVersion == null ? 0L : lookedUpVersion;
     }
@@ -735,8 +764,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     BytesRef rootIdBytes = cmd.getIndexedId(); // root doc; falls back to doc ID if no _route_
     String rootDocIdString = cmd.getIndexedIdStr();
 
-    Set<String> inPlaceUpdatedFields =
-        AtomicUpdateDocumentMerger.computeInPlaceUpdatableFields(cmd);
+    Set<String> inPlaceUpdatedFields = docMerger.getInPlaceUpdatableFields(cmd);
     if (inPlaceUpdatedFields.size() > 0) { // non-empty means this is suitable for in-place updates
       if (docMerger.doInPlaceUpdateMerge(cmd, inPlaceUpdatedFields)) {
         return true;
@@ -1044,14 +1072,17 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     return getUpdateLocks()
         .runWithLock(
             cmd.getIndexedId(),
-            (Condition unused) ->
-                doVersionDelete(
-                    cmd,
-                    finalVersionOnUpdate,
-                    signedVersionOnUpdate,
-                    isReplayOrPeersync,
-                    leaderLogic,
-                    forwardedFromCollection));
+            (Condition unused) -> {
+              // an older add of the document may still be indexed by another thread
+              getUpdateLocks().awaitPendingAdds(cmd.getIndexedId());
+              return doVersionDelete(
+                  cmd,
+                  finalVersionOnUpdate,
+                  signedVersionOnUpdate,
+                  isReplayOrPeersync,
+                  leaderLogic,
+                  forwardedFromCollection);
+            });
   }
 
   private boolean doVersionDelete(
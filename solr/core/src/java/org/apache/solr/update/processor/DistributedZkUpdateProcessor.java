@@ -65,6 +65,7 @@ import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.CommitUpdateCommand;
 import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.IndexingPipeline;
 import org.apache.solr.update.MergeIndexesCommand;
 import org.apache.solr.update.RollbackUpdateCommand;
 import org.apache.solr.update.SolrCmdDistributor;
@@ -270,6 +271,12 @@ public class DistributedZkUpdateProcessor extends DistributedUpdateProcessor {
     // replicationTracker to null if we aren't the leader or subShardLeader
     checkReplicationTracker(cmd);
 
+    if (isLeader || isSubShardLeader) {
+      // documents are forwarded once indexed, so that a document the leader rejects is not indexed
+      // by the replicas, and the error must be thrown for the document that caused it
+      IndexingPipeline.disable(req);
+    }
+
     super.processAdd(cmd);
   }
 
@@ -23,6 +23,7 @@ import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.CommitUpdateCommand;
 import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.IndexingPipeline;
 import org.apache.solr.update.MergeIndexesCommand;
 import org.apache.solr.update.RollbackUpdateCommand;
 import org.apache.solr.update.UpdateHandler;
@@ -33,6 +34,9 @@ import org.apache.solr.update.UpdateHandler;
  * explicitly executing the update commands in an alternative custom <code>
  * UpdateRequestProcessorFactory</code>
  *
+ * <p>With the {@value IndexingPipeline#INDEX_THREADS_PARAM} request parameter, the documents of a
+ * request are indexed on that many threads by an {@link IndexingPipeline}.
+ *
  * @since solr 1.3
  * @see DistributingUpdateProcessorFactory
  */
@@ -55,6 +59,9 @@ public class RunUpdateProcessorFactory extends UpdateRequestProcessorFactory {
   static class RunUpdateProcessor extends UpdateRequestProcessor {
     private final SolrQueryRequest req;
     private final UpdateHandler updateHandler;
+    // created on the first add, once all the processors of the chain are created
+    private IndexingPipeline pipeline;
+    private boolean pipelineCreated;
 
     private boolean changesSinceCommit = false;
 
@@ -73,13 +80,23 @@ public class RunUpdateProcessorFactory extends UpdateRequestProcessorFactory {
             "RunUpdateProcessor has received an AddUpdateCommand containing a document that appears to still contain Atomic document update operations, most likely because DistributedUpdateProcessorFactory was explicitly disabled from this updateRequestProcessorChain");
       }
 
-      updateHandler.addDoc(cmd);
+      if (!pipelineCreated) {
+        pipeline = IndexingPipeline.create(req);
+        pipelineCreated = true;
+      }
+      if (pipeline != null && !cmd.isInPlaceUpdate() && !IndexingPipeline.isDisabled(req)) {
+        pipeline.add(cmd);
+      } else {
+        awaitPipeline();
+        updateHandler.addDoc(cmd);
+      }
       super.processAdd(cmd);
       changesSinceCommit = true;
     }
 
     @Override
     public void processDelete(DeleteUpdateCommand cmd) throws IOException {
+      awaitPipeline();
       if (cmd.isDeleteById()) {
         updateHandler.delete(cmd);
       } else {
@@ -91,12 +108,14 @@ public class RunUpdateProcessorFactory extends UpdateRequestProcessorFactory {
 
     @Override
     public void processMergeIndexes(MergeIndexesCommand cmd) throws IOException {
+      awaitPipeline();
       updateHandler.mergeIndexes(cmd);
       super.processMergeIndexes(cmd);
     }
 
     @Override
     public void processCommit(CommitUpdateCommand cmd) throws IOException {
+      awaitPipeline();
       updateHandler.commit(cmd);
       super.processCommit(cmd);
       if (!cmd.softCommit) {
@@ -110,6 +129,7 @@ public class RunUpdateProcessorFactory extends UpdateRequestProcessorFactory {
      */
     @Override
     public void processRollback(RollbackUpdateCommand cmd) throws IOException {
+      awaitPipeline();
       updateHandler.rollback(cmd);
       super.processRollback(cmd);
       changesSinceCommit = false;
@@ -117,10 +137,24 @@ public class RunUpdateProcessorFactory extends UpdateRequestProcessorFactory {
 
     @Override
     public void finish() throws IOException {
+      awaitPipeline();
       if (changesSinceCommit && updateHandler.getUpdateLog() != null) {
         updateHandler.getUpdateLog().finish(null);
       }
       super.finish();
     }
+
+    @Override
+    protected void doClose() {
+      if (pipeline != null) {
+        pipeline.close();
+      }
+    }
+
+    private void awaitPipeline() throws IOException {
+      if (pipeline != null) {
+        pipeline.await();
+      }
+    }
   }
 }
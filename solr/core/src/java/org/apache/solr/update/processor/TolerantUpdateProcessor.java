@@ -37,6 +37,7 @@ import org.apache.solr.schema.SchemaField;
 import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.CommitUpdateCommand;
 import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.IndexingPipeline;
 import org.apache.solr.update.MergeIndexesCommand;
 import org.apache.solr.update.RollbackUpdateCommand;
 import org.apache.solr.update.SolrCmdDistributor.SolrError;
@@ -128,6 +129,9 @@ public class TolerantUpdateProcessor extends UpdateRequestProcessor {
     this.distribPhase = distribPhase;
     assert !DistribPhase.FROMLEADER.equals(distribPhase);
 
+    // an error must be thrown by the processAdd call of the document that caused it
+    IndexingPipeline.disable(req);
+
     this.zkController = this.req.getCoreContainer().getZkController();
     this.uniqueKeyField = this.req.getCore().getLatestSchema().getUniqueKeyField();
     assert null != uniqueKeyField : "Factory didn't enforce uniqueKey field?";
@@ -170,6 +170,45 @@ public class JsonLoaderTest extends SolrTestCaseJ4 {
     req.close();
   }
 
+  public void testManyFieldNames() throws Exception {
+    // more distinct field names than are cached, and escaped names
+    StringBuilder str = new StringBuilder("[");
+    for (int doc = 0; doc < 3; doc++) {
+      str.append(doc == 0 ? "" : ",").append("{\"id\":\"").append(doc).append('"');
+      str.append(",\"na\\u006De\":\"name").append(doc).append('"');
+      for (int i = 0; i < 700; i++) {
+        str.append(",\"f").append(doc).append('_').append(i).append("_s\":").append(i);
+        str.append(",\"g").append(i).append("_s\":").append(i);
+      }
+      str.append('}');
+    }
+    str.append(']');
+
+    SolrQueryRequest req = req();
+    BufferingRequestProcessor p = new BufferingRequestProcessor(null);
+    JsonLoader loader = new JsonLoader();
+    loader.load(
+        req, new SolrQueryResponse(), new ContentStreamBase.StringStream(str.toString()), p);
+
+    assertEquals(3, p.addCommands.size());
+    for (int doc = 0; doc < 3; doc++) {
+      SolrInputDocument d = p.addCommands.get(doc).solrDoc;
+      assertEquals(1402, d.size());
+      assertEquals(Integer.toString(doc), d.getFieldValue("id"));
+      assertEquals("name" + doc, d.getFieldValue("name"));
+      for (int i = 0; i < 700; i++) {
+        assertEquals((long) i, d.getFieldValue("f" + doc + "_" + i + "_s"));
+        assertEquals((long) i, d.getFieldValue("g" + i + "_s"));
+      }
+    }
+    // the names are the schema's
+    assertSame(
+        req.getSchema().getUniqueKeyField().getName(),
+        p.addCommands.get(2).solrDoc.getField("id").getName());
+
+    req.close();
+  }
+
   @Test
   public void testInvalidJsonProducesBadRequestSolrException() {
     SolrQueryResponse rsp = new SolrQueryResponse();
@@ -432,6 +432,72 @@ public class DistributedQueryComponentOptimizationTest extends SolrCloudTestCase
         rsp, nonDistribRsp); // make sure distrib and distrib.singlePass return the same thing
   }
 
+  @Test
+  public void testDistribSinglePassAuto() throws Exception {
+    // a small page is fetched in a single pass
+    QueryResponse rsp =
+        queryWithTracking(
+            "q",
+            "*:*",
+            "fl",
+            "id,test_sS",
+            "sort",
+            "payload asc",
+            "rows",
+            "5",
+            ShardParams.DISTRIB_SINGLE_PASS,
+            ShardParams.DISTRIB_SINGLE_PASS_AUTO);
+    assertFieldValues(rsp.getResults(), "test_sS", "27", "21", "26", "24", "22");
+    assertNull(getTrack(rsp).get("GET_FIELDS"));
+
+    // a page bigger than the limits is fetched in two passes
+    rsp =
+        queryWithTracking(
+            "q",
+            "*:*",
+            "fl",
+            "id,test_sS",
+            "sort",
+            "payload asc",
+            "rows",
+            "5",
+            ShardParams.DISTRIB_SINGLE_PASS,
+            ShardParams.DISTRIB_SINGLE_PASS_AUTO,
+            ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS,
+            "5");
+    assertFieldValues(rsp.getResults(), "test_sS", "27", "21", "26", "24", "22");
+    assertNotNull(getTrack(rsp).get("GET_FIELDS"));
+
+    rsp =
+        queryWithTracking(
+            "q",
+            "*:*",
+            "fl",
+            "id,test_sS",
+            "sort",
+            "payload asc",
+            "rows",
+            "5",
+            ShardParams.DISTRIB_SINGLE_PASS,
+            ShardParams.DISTRIB_SINGLE_PASS_AUTO,
+            ShardParams.DISTRIB_SINGLE_PASS_MAX_BYTES,
+            "1");
+    assertFieldValues(rsp.getResults(), "test_sS", "27", "21", "26", "24", "22");
+    assertNotNull(getTrack(rsp).get("GET_FIELDS"));
+  }
+
+  private QueryResponse queryWithTracking(String... q) throws Exception {
+    return cluster.getSolrClient().query(COLLECTION, new SolrQuery("debug", "track", q));
+  }
+
+  @SuppressWarnings({"unchecked"})
+  private static SimpleOrderedMap<Object> getTrack(QueryResponse rsp) {
+    SimpleOrderedMap<Object> track = (SimpleOrderedMap<Object>) rsp.getDebugMap().get("track");
+    assertNotNull(track);
+    assertNotNull(track.get("EXECUTE_QUERY"));
+    return track;
+  }
+
   @Test
   public void testOptimizations() throws Exception {
 
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.embedded.JettySolrRunner;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DistributedResultCacheTest extends SolrCloudTestCase {
+
+  private static final String COLLECTION = "distribResultCache";
+
+  private static JettySolrRunner jetty;
+  private static SolrClient client;
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    configureCluster(2).addConfig("conf", configset("cloud-distrib-result-cache")).configure();
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 2, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(COLLECTION, 2, 2);
+
+    // the node coordinating the requests, the cached responses are in its cores
+    jetty =
+        cluster.getJettySolrRunners().stream()
+            .filter(j -> !j.getCoreContainer().getCores().isEmpty())
+            .findFirst()
+            .orElseThrow();
+    client = jetty.newClient();
+  }
+
+  @AfterClass
+  public static void afterClass() throws Exception {
+    if (client != null) {
+      client.close();
+      client = null;
+    }
+    jetty = null;
+  }
+
+  @Before
+  public void indexDocs() throws Exception {
+    UpdateRequest update = new UpdateRequest().deleteByQuery("*:*");
+    for (int i = 0; i < 10; i++) {
+      update.add(sdoc("id", Integer.toString(i), "cat_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    update.commit(cluster.getSolrClient(), COLLECTION);
+  }
+
+  @Test
+  public void testCachesMergedResponse() throws Exception {
+    SolrQuery query = new SolrQuery("cat_s:even");
+    assertEquals(5, client.query(COLLECTION, query).getResults().getNumFound());
+    assertEquals(1, getCacheStat("inserts"));
+    assertEquals(0, getCacheStat("hits"));
+
+    assertEquals(5, client.query(COLLECTION, query).getResults().getNumFound());
+    assertEquals(1, getCacheStat("inserts"));
+    assertEquals(1, getCacheStat("hits"));
+
+    // other parameters are another entry
+    query.setRows(1);
+    assertEquals(1, client.query(COLLECTION, query).getResults().size());
+    assertEquals(2, getCacheStat("inserts"));
+    assertEquals(1, getCacheStat("hits"));
+  }
+
+  @Test
+  public void testRequestIdIsNotPartOfKey() throws Exception {
+    SolrQuery query = new SolrQuery("cat_s:odd");
+    query.set(CommonParams.REQUEST_ID, "request1");
+    assertEquals(5, client.query(COLLECTION, query).getResults().getNumFound());
+    query.set(CommonParams.REQUEST_ID, "request2");
+    assertEquals(5, client.query(COLLECTION, query).getResults().getNumFound());
+    assertEquals(1, getCacheStat("inserts"));
+    assertEquals(1, getCacheStat("hits"));
+  }
+
+  @Test
+  public void testAlias() throws Exception {
+    String alias = COLLECTION + "Alias";
+    CollectionAdminRequest.createAlias(alias, COLLECTION).process(cluster.getSolrClient());
+    cluster.getZkStateReader().aliasesManager.update();
+    try {
+      SolrQuery query = new SolrQuery("cat_s:even");
+      assertEquals(5, client.query(alias, query).getResults().getNumFound());
+      assertEquals(5, client.query(alias, query).getResults().getNumFound());
+      assertEquals(1, getCacheStat("inserts"));
+      assertEquals(1, getCacheStat("hits"));
+    } finally {
+      CollectionAdminRequest.deleteAlias(alias).process(cluster.getSolrClient());
+    }
+  }
+
+  @Test
+  public void testCommitInvalidatesCache() throws Exception {
+    SolrQuery query = new SolrQuery("*:*");
+    assertEquals(10, client.query(COLLECTION, query).getResults().getNumFound());
+    assertEquals(1, getCacheStat("inserts"));
+
+    new UpdateRequest()
+        .add(sdoc("id", "10", "cat_s", "even"))
+        .commit(cluster.getSolrClient(), COLLECTION);
+    assertEquals(0, getCacheStat("inserts"));
+    assertEquals(11, client.query(COLLECTION, query).getResults().getNumFound());
+    assertEquals(0, getCacheStat("hits"));
+  }
+
+  @Test
+  public void testMaxAge() throws Exception {
+    SolrQuery query = new SolrQuery("*:*");
+    client.query(COLLECTION, query);
+    assertEquals(1, getCacheStat("inserts"));
+
+    // the entry is too old and is replaced
+    query.set(ShardParams.DISTRIB_RESULT_CACHE_MAX_AGE, 0);
+    Thread.sleep(1);
+    client.query(COLLECTION, query);
+    assertEquals(2, getCacheStat("inserts"));
+
+    // max age is not part of the key
+    query.remove(ShardParams.DISTRIB_RESULT_CACHE_MAX_AGE);
+    client.query(COLLECTION, query);
+    assertEquals(2, getCacheStat("inserts"));
+    assertEquals(2, getCacheStat("hits"));
+  }
+
+  @Test
+  public void testNotCached() throws Exception {
+    SolrQuery query = new SolrQuery("*:*");
+    query.set(ShardParams.DISTRIB_RESULT_CACHE, false);
+    client.query(COLLECTION, query);
+    query.remove(ShardParams.DISTRIB_RESULT_CACHE);
+
+    query.set(CommonParams.DEBUG_QUERY, true);
+    client.query(COLLECTION, query);
+    query.remove(CommonParams.DEBUG_QUERY);
+
+    query.set(ShardParams.SHARDS_INFO, true);
+    client.query(COLLECTION, query);
+    query.remove(ShardParams.SHARDS_INFO);
+
+    query.set(CommonParams.DISTRIB, false);
+    client.query(COLLECTION, query);
+
+    assertEquals(0, getCacheStat("lookups"));
+    assertEquals(0, getCacheStat("inserts"));
+  }
+
+  /** Sums a statistic of the caches of the cores of the coordinating node. */
+  private static long getCacheStat(String name) {
+    String metricName = "CACHE.searcher." + SearchHandler.DISTRIB_RESULT_CACHE_NAME;
+    long sum = 0;
+    for (SolrCore core : jetty.getCoreContainer().getCores()) {
+      MetricsMap cacheStats =
+          (MetricsMap)
+              ((SolrMetricManager.GaugeWrapper<?>)
+                      core.getCoreMetricManager().getRegistry().getMetrics().get(metricName))
+                  .getGauge();
+      sum += (long) cacheStats.getValue().get(name);
+    }
+    return sum;
+  }
+}
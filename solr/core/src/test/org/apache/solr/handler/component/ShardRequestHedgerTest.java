@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.impl.LBHttp2SolrClient;
+import org.apache.solr.client.solrj.impl.LBSolrClient;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.util.TimeOut;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardRequestHedgerTest extends SolrTestCase {
+
+  private static final List<LBSolrClient.Endpoint> ENDPOINTS =
+      List.of(
+          LBSolrClient.Endpoint.from("http://node1:8983/solr/c1_s1_r1"),
+          LBSolrClient.Endpoint.from("http://node2:8983/solr/c1_s1_r2"));
+
+  private final List<LBSolrClient.Req> requests = new CopyOnWriteArrayList<>();
+  private final List<CompletableFuture<LBSolrClient.Rsp>> futures = new CopyOnWriteArrayList<>();
+  private LBHttp2SolrClient<Http2SolrClient> lbClient;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUpClient() {
+    SolrTestCaseJ4.assumeWorkingMockito();
+    lbClient = mock(LBHttp2SolrClient.class);
+    when(lbClient.requestAsync(any()))
+        .thenAnswer(
+            invocation -> {
+              CompletableFuture<LBSolrClient.Rsp> future = new CompletableFuture<>();
+              requests.add(invocation.getArgument(0));
+              futures.add(future);
+              return future;
+            });
+  }
+
+  @Test
+  public void testHedgesSlowRequest() throws Exception {
+    ShardRequestHedger hedger = new ShardRequestHedger(90, 1, 1);
+    warmUp(hedger);
+
+    CompletableFuture<LBSolrClient.Rsp> result = send(hedger);
+    waitForRequests(ShardRequestHedger.MIN_SAMPLES + 2);
+    assertEquals(1, hedger.getHedgedRequests());
+    LBSolrClient.Req hedgeReq = requests.get(requests.size() - 1);
+    assertEquals(ENDPOINTS.subList(1, 2), hedgeReq.getEndpoints());
+
+    // the hedged request answers first, the first one is cancelled
+    LBSolrClient.Rsp rsp = new LBSolrClient.Rsp();
+    futures.get(futures.size() - 1).complete(rsp);
+    assertSame(rsp, result.get(10, TimeUnit.SECONDS));
+    assertTrue(futures.get(futures.size() - 2).isCancelled());
+    assertEquals(1, hedger.getHedgedRequestsWon());
+  }
+
+  @Test
+  public void testFailsWhenAllAttemptsFail() throws Exception {
+    ShardRequestHedger hedger = new ShardRequestHedger(90, 1, 1);
+    warmUp(hedger);
+
+    CompletableFuture<LBSolrClient.Rsp> result = send(hedger);
+    waitForRequests(ShardRequestHedger.MIN_SAMPLES + 2);
+    futures.get(futures.size() - 2).completeExceptionally(new RuntimeException("first"));
+    assertFalse(result.isDone());
+    futures.get(futures.size() - 1).completeExceptionally(new RuntimeException("second"));
+    assertTrue(result.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testCancelsAllAttempts() throws Exception {
+    ShardRequestHedger hedger = new ShardRequestHedger(90, 1, 1);
+    warmUp(hedger);
+
+    CompletableFuture<LBSolrClient.Rsp> result = send(hedger);
+    waitForRequests(ShardRequestHedger.MIN_SAMPLES + 2);
+    result.cancel(true);
+    assertTrue(futures.get(futures.size() - 2).isCancelled());
+    assertTrue(futures.get(futures.size() - 1).isCancelled());
+  }
+
+  @Test
+  public void testDoesNotHedgeWithoutSamples() throws Exception {
+    ShardRequestHedger hedger = new ShardRequestHedger(90, 1, 1);
+    send(hedger);
+    Thread.sleep(50);
+    assertEquals(1, requests.size());
+    assertEquals(0, hedger.getHedgedRequests());
+  }
+
+  @Test
+  public void testDoesNotHedgeOverBudget() throws Exception {
+    ShardRequestHedger hedger = new ShardRequestHedger(90, 0.001, 1);
+    warmUp(hedger);
+
+    send(hedger);
+    Thread.sleep(50);
+    assertEquals(ShardRequestHedger.MIN_SAMPLES + 1, requests.size());
+    assertEquals(0, hedger.getHedgedRequests());
+  }
+
+  private void warmUp(ShardRequestHedger hedger) throws Exception {
+    for (int i = 0; i < ShardRequestHedger.MIN_SAMPLES; i++) {
+      CompletableFuture<LBSolrClient.Rsp> result = send(hedger);
+      futures.get(futures.size() - 1).complete(new LBSolrClient.Rsp());
+      result.get(10, TimeUnit.SECONDS);
+    }
+    assertEquals(ShardRequestHedger.MIN_SAMPLES, requests.size());
+  }
+
+  private CompletableFuture<LBSolrClient.Rsp> send(ShardRequestHedger hedger) {
+    LBSolrClient.Req req = new LBSolrClient.Req(new QueryRequest(), ENDPOINTS);
+    return hedger.requestAsync(lbClient, req, "c1", Runnable::run);
+  }
+
+  private void waitForRequests(int count) throws Exception {
+    TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, TimeSource.NANO_TIME);
+    timeOut.waitFor("no hedged request", () -> requests.size() >= count);
+  }
+}
@@ -1172,6 +1172,60 @@ public class TestExportWriter extends SolrTestCaseJ4 {
     validateSort(numDocs);
   }
 
+  @Test
+  public void testExportThreads() throws Exception {
+    assertU(delQ("*:*"));
+    assertU(commit());
+    for (int i = 0; i < 5000; i++) {
+      assertU(
+          adoc(
+              "id",
+              String.valueOf(i),
+              "stringdv",
+              "s" + (i % 97),
+              "intdv",
+              String.valueOf(i % 13),
+              "stringdv_m",
+              "a" + (i % 7),
+              "stringdv_m",
+              "b" + (i % 11),
+              "longdv_m",
+              String.valueOf(i),
+              "longdv_m",
+              String.valueOf(-i)));
+      if (i % 1200 == 0) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    for (String sort : new String[] {"stringdv asc,intdv desc", "intdv asc", "id desc"}) {
+      // a small queue size makes every segment sort many batches
+      String expected = export(sort, "1");
+      assertTrue(expected, expected.contains("\"numFound\":5000"));
+      assertEquals(sort, expected, export(sort, "4"));
+      // capped to ExportWriter.MAX_EXPORT_THREADS
+      assertEquals(sort, expected, export(sort, "100000"));
+    }
+  }
+
+  private String export(String sort, String exportThreads) throws Exception {
+    return h.query(
+        req(
+            "q",
+            "*:*",
+            "qt",
+            "/export",
+            "fl",
+            "id,stringdv,intdv,stringdv_m,longdv_m",
+            "sort",
+            sort,
+            "queueSize",
+            "500",
+            ExportWriter.EXPORT_THREADS_PARAM,
+            exportThreads));
+  }
+
   private void createLargeIndex() throws Exception {
     int BATCH_SIZE = 5000;
     int NUM_BATCHES = 20;
@@ -23,15 +23,19 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleBatch;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleStreamParser;
 import org.apache.solr.client.solrj.io.stream.JavabinTupleStreamParser;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.client.solrj.io.stream.TupleStreamParser;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExplanation;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -99,43 +103,7 @@ public class TestJavabinTupleStreamParser extends SolrTestCaseJ4 {
     l.add(Map.of("id", 2, "f", 2.0f, "s", "Some str 2"));
     l.add(Map.of("id", 3, "f", 1.0f, "s", "Some str 3"));
     l.add(Map.of("EOF", true, "RESPONSE_TIME", 206, "sleepMillis", 1000));
-    Iterator<Map<String, Object>> iterator = l.iterator();
-    TupleStream tupleStream =
-        new TupleStream() {
-          @Override
-          public void setStreamContext(StreamContext context) {}
-
-          @Override
-          public List<TupleStream> children() {
-            return null;
-          }
-
-          @Override
-          public void open() {}
-
-          @Override
-          public void close() {}
-
-          @Override
-          public Tuple read() {
-            if (iterator.hasNext()) return new Tuple(iterator.next());
-            else return null;
-          }
-
-          @Override
-          public StreamComparator getStreamSort() {
-            return null;
-          }
-
-          @Override
-          public Explanation toExplanation(StreamFactory factory) {
-            return new StreamExplanation(getStreamNodeId().toString())
-                .withFunctionName("Dummy")
-                .withImplementingClass(this.getClass().getName())
-                .withExpressionType(Explanation.ExpressionType.STREAM_SOURCE)
-                .withExpression("--non-expressible--");
-          }
-        };
+    TupleStream tupleStream = newTupleStream(l.iterator());
 
     byte[] bytes = serialize(tupleStream);
     JavabinTupleStreamParser parser =
@@ -167,6 +135,48 @@ public class TestJavabinTupleStreamParser extends SolrTestCaseJ4 {
     assertEquals(Boolean.TRUE, m.get("EOF"));
   }
 
+  public void testColumnar() throws IOException {
+    List<Map<String, Object>> l = new ArrayList<>();
+    l.add(Map.of("id", 1, "f", 1.5f, "s", "a", "dt", new Date(0L), "l", List.of(1, 2)));
+    l.add(Map.of("id", 2, "s", "b", "l", List.of(3)));
+    l.add(Map.of("id", 3L, "f", 2.5d, "s", "a", "dt", new Date(1000L)));
+    // changes the type of the column within a batch
+    l.add(Map.of("id", "four", "f", 3.5f, "s", "c", "b", true));
+    l.add(Map.of("id", 5, "s", "a"));
+    // null values are kept, a column that starts with nulls takes the type of its first value
+    l.add(Utils.makeMap("id", 6, "s", null, "n", null));
+    l.add(Utils.makeMap("id", 7, "s", "b", "n", 7L));
+    l.add(Map.of("EOF", true, "RESPONSE_TIME", 206));
+
+    List<Map<String, Object>> expected =
+        parseAll(
+            new JavabinTupleStreamParser(
+                new ByteArrayInputStream(serialize(newTupleStream(l.iterator()))), true));
+    byte[] columnar =
+        serialize(ColumnarTupleBatch.columnarDocs(newTupleStream(l.iterator()), 4));
+    assertEquals(
+        expected,
+        parseAll(new ColumnarTupleStreamParser(new ByteArrayInputStream(columnar), true)));
+    assertEquals(l.size(), expected.size());
+    assertTrue(expected.get(5).containsKey("n"));
+    assertNull(expected.get(5).get("n"));
+
+    // the batches are regular javabin, a parser that doesn't know them sees one doc per batch
+    assertEquals(
+        3, parseAll(new JavabinTupleStreamParser(new ByteArrayInputStream(columnar), true)).size());
+  }
+
+  private static List<Map<String, Object>> parseAll(TupleStreamParser parser) throws IOException {
+    List<Map<String, Object>> docs = new ArrayList<>();
+    try (parser) {
+      Map<String, Object> doc;
+      while ((doc = parser.next()) != null) {
+        docs.add(doc);
+      }
+    }
+    return docs;
+  }
+
   @SuppressWarnings({"unchecked", "rawtypes"})
   public void testSolrDocumentList() throws IOException {
     SolrQueryResponse response = new SolrQueryResponse();
@@ -193,6 +203,44 @@ public class TestJavabinTupleStreamParser extends SolrTestCaseJ4 {
     }
   }
 
+  private static TupleStream newTupleStream(Iterator<Map<String, Object>> iterator) {
+    return new TupleStream() {
+      @Override
+      public void setStreamContext(StreamContext context) {}
+
+      @Override
+      public List<TupleStream> children() {
+        return null;
+      }
+
+      @Override
+      public void open() {}
+
+      @Override
+      public void close() {}
+
+      @Override
+      public Tuple read() {
+        if (iterator.hasNext()) return new Tuple(iterator.next());
+        else return null;
+      }
+
+      @Override
+      public StreamComparator getStreamSort() {
+        return null;
+      }
+
+      @Override
+      public Explanation toExplanation(StreamFactory factory) {
+        return new StreamExplanation(getStreamNodeId().toString())
+            .withFunctionName("Dummy")
+            .withImplementingClass(this.getClass().getName())
+            .withExpressionType(Explanation.ExpressionType.STREAM_SOURCE)
+            .withExpression("--non-expressible--");
+      }
+    };
+  }
+
   @SuppressWarnings({"unchecked"})
   public static byte[] serialize(Object o) throws IOException {
     SolrQueryResponse response = new SolrQueryResponse();
@@ -17,6 +17,8 @@
 
 package org.apache.solr.search;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collections;
@@ -25,7 +27,13 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.misc.document.LazyDocument;
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.XML;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.JavaBinResponseWriter;
+import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.schema.IndexSchema;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -115,6 +123,23 @@ public class LargeFieldTest extends SolrTestCaseJ4 {
     assertLazyLoaded(d, BIG_FIELD); // loaded now
 
     assertEquals(bigFieldValue, d.getField(BIG_FIELD).stringValue());
+
+    // javabin writes the UTF-8 bytes of the large field as they are
+    SolrQueryRequest req = req("q", "101", "df", ID_FLD, "fl", ID_FLD + "," + BIG_FIELD);
+    try {
+      SolrQueryResponse rsp = h.queryAndResponse("", req);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new JavaBinResponseWriter().write(out, req, rsp);
+      NamedList<?> response;
+      try (JavaBinCodec codec = new JavaBinCodec()) {
+        response = (NamedList<?>) codec.unmarshal(new ByteArrayInputStream(out.toByteArray()));
+      }
+      SolrDocumentList docs = (SolrDocumentList) response.get("response");
+      assertEquals(1, docs.size());
+      assertEquals(bigFieldValue, docs.get(0).getFieldValue(BIG_FIELD).toString());
+    } finally {
+      req.close();
+    }
   }
 
   private void assertEager(Document d, String fieldName) {
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import static org.apache.solr.common.util.Utils.fromJSONString;
+
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Verify that multi-threaded searches return the same results as single threaded ones */
+public class TestMultiThreadedSearcher extends SolrTestCaseJ4 {
+
+  private static final int NUM_DOCS = 200;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig.xml", "schema.xml");
+    for (int i = 0; i < NUM_DOCS; i++) {
+      assertU(
+          adoc(
+              "id",
+              Integer.toString(i),
+              "foo_i",
+              Integer.toString(i % 73),
+              "cat_s",
+              Integer.toString(i % 7)));
+      if (random().nextInt(NUM_DOCS / 10) == 0) {
+        assertU(commit()); // make multiple segments
+      }
+    }
+    assertU(commit());
+  }
+
+  @Test
+  public void testConcurrentPostFilter() throws Exception {
+    String postFilter = "{!frange l=10 u=60 cache=false cost=200}foo_i";
+    for (boolean facet : new boolean[] {false, true}) {
+      ModifiableSolrParams params =
+          params(
+              "q",
+              "{!cache=false}*:*",
+              "fq",
+              postFilter,
+              "sort",
+              "foo_i desc, id asc",
+              "fl",
+              "id,foo_i",
+              "rows",
+              "25",
+              "facet",
+              Boolean.toString(facet),
+              "facet.field",
+              "foo_i");
+      params.set("multiThreaded", "false");
+      String single = JQ(req(params));
+      params.set("multiThreaded", "true");
+      String multi = JQ(req(params));
+
+      assertEquals(responseOf(single), responseOf(multi));
+      if (facet) {
+        assertEquals(facetsOf(single), facetsOf(multi));
+      }
+    }
+  }
+
+  @Test
+  public void testSliceTimingsInDebug() throws Exception {
+    ModifiableSolrParams params =
+        params(
+            "q",
+            "{!cache=false}*:*",
+            "fq",
+            "{!frange l=0 u=10 cache=false cost=200}foo_i",
+            "sort",
+            "id asc",
+            "debug",
+            "timing",
+            "multiThreaded",
+            "true");
+    Map<?, ?> debug = (Map<?, ?>) ((Map<?, ?>) fromJSONString(JQ(req(params)))).get("debug");
+    Map<?, ?> slices = (Map<?, ?>) debug.get("slices");
+    assertNotNull("missing slice timings: " + debug, slices);
+    assertFalse(slices.isEmpty());
+    long maxDoc = 0;
+    for (Object slice : slices.values()) {
+      Map<?, ?> timings = (Map<?, ?>) slice;
+      assertTrue(((Number) timings.get("time")).longValue() >= 0);
+      maxDoc += ((Number) timings.get("maxDoc")).longValue();
+    }
+    assertEquals(NUM_DOCS, maxDoc);
+
+    params.set("multiThreaded", "false");
+    debug = (Map<?, ?>) ((Map<?, ?>) fromJSONString(JQ(req(params)))).get("debug");
+    assertNull(debug.get("slices"));
+  }
+
+  /** Rerank, collapse and grouping need the whole index; they fall back to a single thread */
+  @Test
+  public void testRerankCollapseAndGroupingAreSingleThreaded() throws Exception {
+    ModifiableSolrParams[] requests = {
+      params(
+          "q",
+          "{!cache=false}*:*",
+          "rq",
+          "{!rerank cache=false reRankQuery=$rrq reRankDocs=20 reRankWeight=5}",
+          "rrq",
+          "foo_i:[0 TO 30]"),
+      params(
+          "q", "{!cache=false}*:*", "fq", "{!collapse field=cat_s}", "sort", "foo_i asc, id asc"),
+      params(
+          "q",
+          "{!cache=false}*:*",
+          "group",
+          "true",
+          "group.field",
+          "cat_s",
+          "sort",
+          "foo_i asc, id asc",
+          "group.sort",
+          "id asc")
+    };
+    for (ModifiableSolrParams params : requests) {
+      params.set("fl", "id,foo_i");
+      params.set("rows", "25");
+      params.set("debug", "timing");
+      params.set("multiThreaded", "false");
+      Map<?, ?> single = (Map<?, ?>) fromJSONString(JQ(req(params)));
+      params.set("multiThreaded", "true");
+      Map<?, ?> multi = (Map<?, ?>) fromJSONString(JQ(req(params)));
+
+      assertNull(params.toString(), ((Map<?, ?>) multi.get("debug")).get("slices"));
+      for (String key : new String[] {"response", "grouped"}) {
+        assertEquals(params.toString(), single.get(key), multi.get(key));
+      }
+    }
+  }
+
+  private static Object responseOf(String json) {
+    return ((Map<?, ?>) fromJSONString(json)).get("response");
+  }
+
+  private static Object facetsOf(String json) {
+    return ((Map<?, ?>) fromJSONString(json)).get("facet_counts");
+  }
+}
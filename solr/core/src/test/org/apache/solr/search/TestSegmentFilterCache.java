@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/** Verify that filters are only computed for segments new to a searcher */
+public class TestSegmentFilterCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.segmentFilterCache.size", "100");
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.segmentFilterCache.size");
+    systemClearPropertySolrTestsMergePolicyFactory();
+  }
+
+  public void testReuseAcrossSearchers() throws Exception {
+    LRUQueryCache segmentFilterCache = h.getCore().getSegmentFilterCache();
+    assertNotNull(segmentFilterCache);
+
+    for (int i = 0; i < 20; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "cat_s:even"), "//*[@numFound='10']");
+    long misses = segmentFilterCache.getMissCount();
+    long hits = segmentFilterCache.getHitCount();
+    int oldSegments = numSegments();
+    assertEquals(oldSegments, misses);
+
+    // a new segment plus a deletion in the old one: only the new segment is computed
+    assertU(delI("0"));
+    for (int i = 20; i < 30; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "cat_s:even"), "//*[@numFound='14']");
+    int newSegments = numSegments() - oldSegments;
+    assertTrue(newSegments > 0);
+    assertEquals(misses + newSegments, segmentFilterCache.getMissCount());
+    assertEquals(hits + oldSegments, segmentFilterCache.getHitCount());
+
+    // non-cached filters don't go through it
+    misses = segmentFilterCache.getMissCount();
+    assertQ(req("q", "*:*", "fq", "{!cache=false}cat_s:odd"), "//*[@numFound='15']");
+    assertEquals(misses, segmentFilterCache.getMissCount());
+  }
+
+  private static int numSegments() throws Exception {
+    return h.getCore().withSearcher(searcher -> searcher.getTopReaderContext().leaves().size());
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FilterWeight;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.apache.solr.util.RefCounted;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+/** Tests that SegmentReusingRegenerator produces the same DocSets as executing the filter */
+public class TestSegmentReusingRegenerator extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    // segments must only change when documents are added
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    initCore("solrconfig-segmentreusingregen.xml", "schema.xml");
+  }
+
+  @Before
+  public void before() {
+    clearIndex();
+    assertU(commit());
+  }
+
+  public void testRegenerate() throws Exception {
+    for (int i = 0; i < 50; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", i % 3 == 0 ? "a" : "b"));
+    }
+    assertU(commit());
+
+    final Query query = new TermQuery(new Term("cat_s", "a"));
+    RefCounted<SolrIndexSearcher> oldRef = h.getCore().getSearcher();
+    try {
+      final SolrIndexSearcher oldSearcher = oldRef.get();
+      final DocSet oldSet = oldSearcher.getDocSet(query);
+      assertEquals(17, oldSet.size());
+
+      // delete from the existing segment and add a new one
+      assertU(delI("3"));
+      assertU(delI("4"));
+      for (int i = 50; i < 80; i++) {
+        assertU(adoc("id", Integer.toString(i), "cat_s", i % 3 == 0 ? "a" : "b"));
+      }
+      assertU(commit());
+
+      h.getCore()
+          .withSearcher(
+              newSearcher -> {
+                assertNotSame(oldSearcher, newSearcher);
+                DocSet regenerated =
+                    SegmentReusingRegenerator.regenerate(newSearcher, oldSearcher, query, oldSet);
+                DocSet expected = DocSetUtil.createDocSetGeneric(newSearcher, query);
+                assertEquals(26, regenerated.size());
+                assertTrue(DocSetUtil.equals(expected, regenerated));
+                return null;
+              });
+    } finally {
+      oldRef.decref();
+    }
+  }
+
+  public void testAutowarm() throws Exception {
+    assertTrue(
+        h.getCore().getSolrConfig().filterCacheConfig.getRegenerator()
+            instanceof SegmentReusingRegenerator);
+
+    for (int i = 0; i < 50; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", i % 3 == 0 ? "a" : "b"));
+    }
+    assertU(commit());
+
+    final RecordingQuery query = new RecordingQuery(new TermQuery(new Term("cat_s", "a")));
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              assertEquals(17, searcher.getDocSet(query).size());
+              return null;
+            });
+
+    // only deletions: the segments are unchanged, so the filter is not executed when warming
+    query.executed.clear();
+    assertU(delI("3"));
+    assertU(commit());
+    final Set<IndexReader.CacheKey> oldSegments =
+        h.getCore()
+            .withSearcher(
+                searcher -> {
+                  assertWarmed(searcher, query, 16);
+                  return segments(searcher);
+                });
+    assertEquals(Set.of(), query.executed);
+
+    // new segments: the filter is only executed against them
+    for (int i = 50; i < 80; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", i % 3 == 0 ? "a" : "b"));
+    }
+    assertU(commit());
+    final Set<IndexReader.CacheKey> newSegments =
+        h.getCore()
+            .withSearcher(
+                searcher -> {
+                  assertWarmed(searcher, query, 26);
+                  return segments(searcher);
+                });
+    newSegments.removeAll(oldSegments);
+    assertFalse(newSegments.isEmpty());
+    assertEquals(newSegments, query.executed);
+  }
+
+  private static void assertWarmed(SolrIndexSearcher searcher, RecordingQuery query, int size)
+      throws IOException {
+    DocSet warmed = searcher.getFilterCache().get(query);
+    assertNotNull("not autowarmed", warmed);
+    assertEquals(size, warmed.size());
+    assertTrue(DocSetUtil.equals(DocSetUtil.createDocSetGeneric(searcher, query.in), warmed));
+  }
+
+  private static Set<IndexReader.CacheKey> segments(SolrIndexSearcher searcher) {
+    Set<IndexReader.CacheKey> segments = new HashSet<>();
+    for (LeafReaderContext leaf : searcher.getTopReaderContext().leaves()) {
+      segments.add(leaf.reader().getCoreCacheHelper().getKey());
+    }
+    return segments;
+  }
+
+  /** Records the segments a query is executed against */
+  private static class RecordingQuery extends Query {
+    final Query in;
+    final Set<IndexReader.CacheKey> executed = ConcurrentHashMap.newKeySet();
+
+    RecordingQuery(Query in) {
+      this.in = in;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+        throws IOException {
+      return new FilterWeight(this, in.createWeight(searcher, scoreMode, boost)) {
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+          executed.add(context.reader().getCoreCacheHelper().getKey());
+          return super.scorer(context);
+        }
+      };
+    }
+
+    @Override
+    public String toString(String field) {
+      return "recording(" + in.toString(field) + ")";
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+      in.visit(visitor);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return sameClassAs(other) && in.equals(((RecordingQuery) other).in);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * classHash() + in.hashCode();
+    }
+  }
+}
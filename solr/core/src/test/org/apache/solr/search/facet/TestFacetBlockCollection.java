@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import static org.apache.solr.common.util.Utils.fromJSONString;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.BeforeClass;
+
+/**
+ * Verify that collecting stats a block of documents at a time gives the same results as collecting
+ * one document at a time.
+ */
+public class TestFacetBlockCollection extends SolrTestCaseJ4 {
+
+  private static final int NUM_DOCS = 3 * SlotAcc.BLOCK_SIZE;
+  private static final String STATS =
+      "sum:'sum(val_dd)', sumsq:'sumsq(val_dd)', avg:'avg(val_dd)', min:'min(val_dd)',"
+          + " max:'max(val_dd)', var:'variance(val_dd)', stddev:'stddev(val_dd)'";
+
+  private static double sum;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema_latest.xml");
+    for (int i = 0; i < NUM_DOCS; i++) {
+      if (i % 4 == 0) {
+        assertU(adoc("id", Integer.toString(i), "cat_s", "c" + (i % 5), "tags_ss", "t" + (i % 3)));
+      } else {
+        double val = i * 0.5 - 100;
+        sum += val;
+        assertU(
+            adoc(
+                "id",
+                Integer.toString(i),
+                "cat_s",
+                "c" + (i % 5),
+                "tags_ss",
+                "t" + (i % 3),
+                "tags_ss",
+                "t" + (i % 7),
+                "val_dd",
+                Double.toString(val)));
+      }
+      if (i == NUM_DOCS / 3) {
+        assertU(commit()); // more than one segment
+      }
+    }
+    assertU(commit());
+  }
+
+  public void testBlocksMatchSingleDocuments() throws Exception {
+    for (String field : new String[] {"cat_s", "tags_ss"}) {
+      // allBuckets makes the processor collect one document at a time
+      Object blocks = buckets(field, false);
+      Object single = buckets(field, true);
+      assertEquals(field, single, blocks);
+    }
+  }
+
+  public void testTopLevelStats() throws Exception {
+    String json =
+        JQ(req("q", "*:*", "rows", "0", "json.facet", "{sum:'sum(val_dd)', n:'countvals(val_dd)'}"));
+    Map<?, ?> facets = (Map<?, ?>) ((Map<?, ?>) fromJSONString(json)).get("facets");
+    assertEquals(sum, ((Number) facets.get("sum")).doubleValue(), 1e-6);
+    assertEquals(NUM_DOCS - NUM_DOCS / 4, ((Number) facets.get("n")).intValue());
+  }
+
+  private static Object buckets(String field, boolean allBuckets) throws Exception {
+    String json =
+        JQ(
+            req(
+                "q",
+                "*:*",
+                "rows",
+                "0",
+                "json.facet",
+                "{f:{type:terms, field:"
+                    + field
+                    + ", method:dv, limit:-1, allBuckets:"
+                    + allBuckets
+                    + ", facet:{"
+                    + STATS
+                    + "}}}"));
+    Map<?, ?> facets = (Map<?, ?>) ((Map<?, ?>) fromJSONString(json)).get("facets");
+    List<?> buckets = (List<?>) ((Map<?, ?>) facets.get("f")).get("buckets");
+    assertFalse(buckets.isEmpty());
+    return buckets;
+  }
+}
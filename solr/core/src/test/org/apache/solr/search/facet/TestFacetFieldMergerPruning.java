@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+/** Tests that the coordinator drops buckets that can't make it into the top buckets */
+public class TestFacetFieldMergerPruning extends SolrTestCase {
+
+  public void testPruneBeforeRefinement() {
+    FacetFieldMerger merger = newMerger();
+    FacetMerger.Context mcontext = new FacetMerger.Context(3);
+    merge(merger, mcontext, "shard0", "A", 10, "B", 8, "C", 2);
+    merge(merger, mcontext, "shard1", "A", 9, "D", 7, "E", 1);
+    merge(merger, mcontext, "shard2", "B", 9, "D", 6, "F", 1);
+
+    // A=19 and B=17 are the top 2, D=13 can get at most 2 more from shard0
+    assertEquals(Map.of("_l", List.of("A")), refinement(merger, mcontext, "shard2"));
+    assertEquals(Set.of("A", "B"), merger.buckets.keySet());
+    assertEquals(Map.of("_l", List.of("B")), refinement(merger, mcontext, "shard1"));
+    assertNull(refinement(merger, mcontext, "shard0"));
+  }
+
+  public void testKeepPossibleCandidates() {
+    FacetFieldMerger merger = newMerger();
+    FacetMerger.Context mcontext = new FacetMerger.Context(3);
+    merge(merger, mcontext, "shard0", "A", 10, "B", 8, "C", 5);
+    merge(merger, mcontext, "shard1", "A", 9, "D", 7, "E", 1);
+    merge(merger, mcontext, "shard2", "B", 9, "D", 6, "F", 1);
+
+    // D=13 could still be 18 with shard0, more than B=17
+    assertEquals(Map.of("_l", List.of("A")), refinement(merger, mcontext, "shard2"));
+    assertEquals(Set.of("A", "B", "D"), merger.buckets.keySet());
+  }
+
+  public void testPruneWhileMerging() {
+    FacetFieldMerger merger = newMerger();
+    FacetMerger.Context mcontext = new FacetMerger.Context(3);
+    List<SimpleOrderedMap<Object>> roots =
+        List.of(
+            root(response("A", 10, "B", 9, "C", 1, "D", 1)),
+            root(response("A", 10, "B", 9, "E", 1, "F", 1)),
+            root(response("A", 10, "B", 9, "G", 1, "H", 1)));
+    mcontext.addShardRoots(roots);
+
+    // C could still get 10 from each of the other shards
+    mergeRoot(merger, mcontext, "shard0", roots.get(0));
+    assertEquals(Set.of("A", "B", "C", "D"), merger.buckets.keySet());
+    // C=1 can get at most 1 from shard1 and 10 from shard2, less than B=18
+    mergeRoot(merger, mcontext, "shard1", roots.get(1));
+    assertEquals(Set.of("A", "B"), merger.buckets.keySet());
+    mergeRoot(merger, mcontext, "shard2", roots.get(2));
+    assertEquals(Set.of("A", "B"), merger.buckets.keySet());
+
+    assertNull(refinement(merger, mcontext, "shard0"));
+    assertEquals(2, merger.buckets.size());
+  }
+
+  public void testNoPruningForIndexSort() {
+    FacetFieldMerger merger = newMerger();
+    merger.freq.sort = FacetRequest.FacetSort.INDEX_ASC;
+    FacetMerger.Context mcontext = new FacetMerger.Context(2);
+    merge(merger, mcontext, "shard0", "A", 10, "B", 8, "C", 2);
+    merge(merger, mcontext, "shard1", "A", 9, "D", 7, "E", 1);
+
+    refinement(merger, mcontext, "shard0");
+    assertEquals(5, merger.buckets.size());
+  }
+
+  private static FacetFieldMerger newMerger() {
+    FacetField freq = new FacetField();
+    freq.field = "cat_s";
+    freq.limit = 2;
+    freq.sort = FacetRequest.FacetSort.COUNT_DESC;
+    freq.refine = FacetRequest.RefineMethod.SIMPLE;
+    return new FacetFieldMerger(freq);
+  }
+
+  private static void merge(
+      FacetFieldMerger merger, FacetMerger.Context mcontext, String shard, Object... valCounts) {
+    mcontext.newShard(shard);
+    merger.merge(response(valCounts), mcontext);
+  }
+
+  private static void mergeRoot(
+      FacetFieldMerger merger,
+      FacetMerger.Context mcontext,
+      String shard,
+      SimpleOrderedMap<Object> root) {
+    mcontext.newShard(shard);
+    mcontext.root = root;
+    merger.merge(root.get("cat"), mcontext);
+  }
+
+  private static SimpleOrderedMap<Object> root(SimpleOrderedMap<Object> response) {
+    SimpleOrderedMap<Object> root = new SimpleOrderedMap<>();
+    root.add("count", 100);
+    root.add("cat", response);
+    return root;
+  }
+
+  private static SimpleOrderedMap<Object> response(Object... valCounts) {
+    List<SimpleOrderedMap<Object>> buckets = new ArrayList<>();
+    for (int i = 0; i < valCounts.length; i += 2) {
+      SimpleOrderedMap<Object> bucket = new SimpleOrderedMap<>();
+      bucket.add("val", valCounts[i]);
+      bucket.add("count", valCounts[i + 1]);
+      buckets.add(bucket);
+    }
+    SimpleOrderedMap<Object> response = new SimpleOrderedMap<>();
+    response.add("buckets", buckets);
+    response.add("more", true);
+    return response;
+  }
+
+  private static Map<String, Object> refinement(
+      FacetFieldMerger merger, FacetMerger.Context mcontext, String shard) {
+    mcontext.setShard(shard);
+    return merger.getRefinement(mcontext);
+  }
+}
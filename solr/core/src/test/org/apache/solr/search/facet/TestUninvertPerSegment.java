@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/** Verify that fields without docValues are faceted per segment when uninvertPerSegment is set */
+public class TestUninvertPerSegment extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.uninvertPerSegment", "true");
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.uninvertPerSegment");
+  }
+
+  public void testFacetAcrossCommits() throws Exception {
+    assertTrue(h.getCore().getSolrConfig().uninvertPerSegment);
+
+    assertU(adoc("id", "1", "tags_mfacet", "a", "tags_mfacet", "b"));
+    assertU(adoc("id", "2", "tags_mfacet", "a"));
+    assertU(commit());
+    assertJQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "json.facet", "{f:{type:terms, field:tags_mfacet}, u:'unique(tags_mfacet)'}"),
+        "facets=={count:2, u:2, f:{buckets:[{val:a, count:2}, {val:b, count:1}]}}");
+
+    // a new segment and a deletion in the old one
+    assertU(delI("2"));
+    assertU(adoc("id", "3", "tags_mfacet", "b", "tags_mfacet", "c"));
+    assertU(adoc("id", "4", "tags_mfacet", "c"));
+    assertU(commit());
+    assertJQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "json.facet", "{f:{type:terms, field:tags_mfacet}, u:'unique(tags_mfacet)'}"),
+        "facets=={count:3, u:3,"
+            + " f:{buckets:[{val:b, count:2}, {val:c, count:2}, {val:a, count:1}]}}");
+
+    // even an explicit uif request doesn't build a top-level UnInvertedField
+    assertJQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "json.facet", "{f:{type:terms, field:tags_mfacet, method:uif, limit:1}}"),
+        "facets=={count:3, f:{buckets:[{val:b, count:2}]}}");
+    int uninvertedFields =
+        h.getCore().withSearcher(searcher -> searcher.getFieldValueCache().size());
+    assertEquals(0, uninvertedFields);
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.common.util.Utils;
+import org.apache.solr.request.SolrQueryRequest;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class IndexingPipelineTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema15.xml");
+  }
+
+  @Before
+  public void before() {
+    clearIndex();
+    assertU(commit());
+  }
+
+  @Test
+  public void testUpdatesOfAnIdAreIndexedInOrder() throws Exception {
+    List<SolrInputDocument> docs = new ArrayList<>();
+    for (int round = 0; round < 5; round++) {
+      for (int id = 0; id < 200; id++) {
+        docs.add(sdoc("id", Integer.toString(id), "val_i", round, "title_s", "title " + id));
+      }
+    }
+    updateJ(
+        jsonAdd(docs.toArray(new SolrInputDocument[0])),
+        params(IndexingPipeline.INDEX_THREADS_PARAM, "4"));
+
+    assertJQ(req("qt", "/get", "id", "17", "fl", "id,val_i"), "=={'doc':{'id':'17','val_i':4}}");
+    assertU(commit());
+    assertJQ(req("q", "*:*", "rows", "0"), "/response/numFound==200");
+    assertJQ(req("q", "val_i:4", "rows", "0"), "/response/numFound==200");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testConcurrentUpdatesOfAnIdAreIndexedInVersionOrder() throws Exception {
+    int numDocs = 300;
+    int numRequests = 4;
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            numRequests, new SolrNamedThreadFactory("testIndexingPipeline"));
+    List<Future<String>> responses = new ArrayList<>();
+    try {
+      for (int r = 0; r < numRequests; r++) {
+        SolrInputDocument[] docs = new SolrInputDocument[numDocs];
+        for (int id = 0; id < numDocs; id++) {
+          docs[id] = sdoc("id", Integer.toString(id), "val_i", r);
+        }
+        responses.add(
+            executor.submit(
+                () ->
+                    updateJ(
+                        jsonAdd(docs),
+                        params(IndexingPipeline.INDEX_THREADS_PARAM, "4", "versions", "true"))));
+      }
+
+      // the request that gave each id its highest version must be the one that is indexed
+      Map<String, Long> maxVersions = new HashMap<>();
+      Map<String, Integer> expectedVals = new HashMap<>();
+      for (int r = 0; r < numRequests; r++) {
+        String json = responses.get(r).get();
+        Map<String, Object> rsp = (Map<String, Object>) Utils.fromJSONString(json);
+        List<Object> adds = (List<Object>) rsp.get("adds");
+        for (int i = 0; i < adds.size(); i += 2) {
+          String id = (String) adds.get(i);
+          long version = ((Number) adds.get(i + 1)).longValue();
+          if (version > maxVersions.getOrDefault(id, 0L)) {
+            maxVersions.put(id, version);
+            expectedVals.put(id, r);
+          }
+        }
+      }
+      assertEquals(numDocs, maxVersions.size());
+
+      for (int id = 0; id < numDocs; id += 7) {
+        String docId = Integer.toString(id);
+        assertJQ(
+            req("qt", "/get", "id", docId, "fl", "val_i,_version_"),
+            "/doc/val_i==" + expectedVals.get(docId),
+            "/doc/_version_==" + maxVersions.get(docId));
+      }
+      assertU(commit());
+      for (int r = 0; r < numRequests; r++) {
+        int val = r;
+        long expected = expectedVals.values().stream().filter(v -> v == val).count();
+        assertJQ(req("q", "val_i:" + val, "rows", "0"), "/response/numFound==" + expected);
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  @Test
+  public void testAtomicUpdateOfDocumentInSameRequest() throws Exception {
+    updateJ(
+        jsonAdd(
+            sdoc("id", "1", "val_is", 1),
+            sdoc("id", "2", "val_is", 10),
+            sdoc("id", "1", "val_is", map("add", 2)),
+            sdoc("id", "2", "val_is", map("add", 20))),
+        params(IndexingPipeline.INDEX_THREADS_PARAM, "4"));
+
+    assertJQ(req("qt", "/get", "id", "1", "fl", "id,val_is"), "=={'doc':{'id':'1','val_is':[1,2]}}");
+    assertJQ(
+        req("qt", "/get", "id", "2", "fl", "id,val_is"), "=={'doc':{'id':'2','val_is':[10,20]}}");
+  }
+
+  @Test
+  public void testFailureIsReported() throws Exception {
+    List<SolrInputDocument> docs = new ArrayList<>();
+    for (int id = 0; id < 50; id++) {
+      docs.add(sdoc("id", Integer.toString(id), "val_i", id == 20 ? "not a number" : id));
+    }
+    SolrException e =
+        expectThrows(
+            SolrException.class,
+            () ->
+                updateJ(
+                    jsonAdd(docs.toArray(new SolrInputDocument[0])),
+                    params(IndexingPipeline.INDEX_THREADS_PARAM, "4")));
+    assertTrue(e.getMessage(), e.getMessage().contains("val_i"));
+    assertTrue(e.getMessage(), e.getMessage().contains("document 20"));
+
+    assertU(commit());
+    assertJQ(req("q", "id:20", "rows", "0"), "/response/numFound==0");
+  }
+
+  @Test
+  public void testDeleteByQueryWaitsForPendingAdds() throws Exception {
+    UpdateHandler updateHandler = h.getCore().getUpdateHandler();
+    VersionInfo versionInfo = updateHandler.getUpdateLog().getVersionInfo();
+    CountDownLatch startIndexing = new CountDownLatch(1);
+    ExecutorService indexingExecutor =
+        ExecutorUtil.newMDCAwareSingleThreadExecutor(new SolrNamedThreadFactory("testIndexing"));
+    ExecutorService deleteExecutor =
+        ExecutorUtil.newMDCAwareSingleThreadExecutor(new SolrNamedThreadFactory("testDelete"));
+    try (SolrQueryRequest req = req()) {
+      // the documents are not indexed until the latch is released
+      indexingExecutor.execute(
+          () -> {
+            try {
+              startIndexing.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+      IndexingPipeline pipeline = new IndexingPipeline(updateHandler, indexingExecutor, 2);
+      for (int id = 0; id < 10; id++) {
+        long version = versionInfo.getNewClock();
+        AddUpdateCommand cmd = new AddUpdateCommand(req);
+        cmd.solrDoc = sdoc("id", Integer.toString(id), "_version_", version);
+        cmd.setVersion(version);
+        pipeline.add(cmd);
+      }
+
+      // the delete is newer than the adds, it must wait for them to be indexed and delete them
+      Future<?> delete = deleteExecutor.submit(() -> assertU(delQ("*:*")));
+      expectThrows(TimeoutException.class, () -> delete.get(500, TimeUnit.MILLISECONDS));
+      startIndexing.countDown();
+      delete.get();
+      pipeline.await();
+      pipeline.close();
+    } finally {
+      startIndexing.countDown();
+      ExecutorUtil.shutdownAndAwaitTermination(deleteExecutor);
+      ExecutorUtil.shutdownAndAwaitTermination(indexingExecutor);
+    }
+
+    assertU(commit());
+    assertJQ(req("q", "*:*", "rows", "0"), "/response/numFound==0");
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class IndexingThrottleTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    systemClearPropertySolrTestsMergePolicyFactory();
+  }
+
+  @Before
+  public void before() {
+    clearIndex();
+    assertU(commit());
+  }
+
+  @Test
+  public void testPressure() {
+    assertEquals(0, IndexingThrottle.getPressure(0, 100), 0);
+    assertEquals(0, IndexingThrottle.getPressure(50, 100), 0);
+    assertEquals(0.5, IndexingThrottle.getPressure(75, 100), 0.001);
+    assertEquals(1, IndexingThrottle.getPressure(100, 100), 0);
+    assertEquals(1, IndexingThrottle.getPressure(1000, 100), 0);
+    // no limit
+    assertEquals(0, IndexingThrottle.getPressure(1000, 0), 0);
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    assertNull(IndexingThrottle.create(h.getCore(), h.getCore().getSolrConfig().indexConfig));
+    assertNull(((DirectUpdateHandler2) h.getCore().getUpdateHandler()).getIndexingThrottle());
+  }
+
+  @Test
+  public void testThrottlesWhenSegmentsPileUp() throws Exception {
+    IndexingThrottle throttle =
+        new IndexingThrottle(h.getCore(), 4, 0, 0, TimeUnit.MILLISECONDS.toNanos(1));
+    throttle.throttle();
+    assertEquals(0, throttle.getPressure(), 0);
+    assertEquals(0, throttle.getThrottledUpdates());
+
+    for (int i = 0; i < 4; i++) {
+      assertU(adoc("id", Integer.toString(i)));
+      assertU(commit());
+    }
+    Thread.sleep(IndexingThrottle.SAMPLE_INTERVAL_MILLIS);
+    throttle.throttle();
+    assertEquals(4, throttle.getSegments());
+    assertEquals(1, throttle.getPressure(), 0);
+    assertEquals(1, throttle.getThrottledUpdates());
+  }
+}
@@ -661,6 +661,46 @@ public class TestInPlaceUpdatesStandalone extends SolrTestCaseJ4 {
             + "}}");
   }
 
+  @Test
+  public void testManyIncrementsInOneRequest() throws Exception {
+    addAndGetVersion(
+        sdoc("id", "1", "title_s", "first", "inplace_updatable_float", 0, "inplace_updatable_int", 0),
+        null);
+    addAndGetVersion(sdoc("id", "2", "title_s", "second"), null);
+    assertU(commit("softCommit", "false"));
+    int docid1 = getDocId("1");
+    int docid2 = getDocId("2");
+
+    // the values are read from the index first, then from the in-place updates in the tlog, which
+    // alternate between the fields
+    List<SolrInputDocument> updates = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      updates.add(sdoc("id", "1", "inplace_updatable_int", map("inc", 1)));
+      updates.add(sdoc("id", "1", "inplace_updatable_float", map("inc", 2)));
+      updates.add(sdoc("id", "2", "inplace_updatable_int", map("inc", 3)));
+    }
+    updateJ(
+        jsonAdd(updates.toArray(new SolrInputDocument[0])),
+        params(UpdateParams.REQUIRE_PARTIAL_DOC_UPDATES_INPLACE, "true"));
+
+    assertJQ(
+        req("qt", "/get", "id", "1", "fl", "id,inplace_updatable_float,inplace_updatable_int"),
+        "=={'doc':{'id':'1', 'inplace_updatable_float':100.0,'inplace_updatable_int':50}}");
+    assertJQ(
+        req("qt", "/get", "id", "2", "fl", "id,inplace_updatable_int"),
+        "=={'doc':{'id':'2', 'inplace_updatable_int':150}}");
+
+    assertU(commit("softCommit", "false"));
+    assertQ(
+        req("q", "*:*", "sort", "id asc", "fl", "*,[docid]"),
+        "//*[@numFound='2']",
+        "//result/doc[1]/float[@name='inplace_updatable_float'][.='100.0']",
+        "//result/doc[1]/int[@name='inplace_updatable_int'][.='50']",
+        "//result/doc[1]/int[@name='[docid]'][.='" + docid1 + "']",
+        "//result/doc[2]/int[@name='inplace_updatable_int'][.='150']",
+        "//result/doc[2]/int[@name='[docid]'][.='" + docid2 + "']");
+  }
+
   @Test
   public void testUpdateWithValueNull() throws Exception {
     long doc =
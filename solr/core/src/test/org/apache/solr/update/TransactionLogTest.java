@@ -17,11 +17,16 @@
 
 package org.apache.solr.update;
 
+import com.codahale.metrics.Timer;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.SolrTestCase;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.update.TransactionLog.LogReader;
@@ -71,4 +76,124 @@ public class TransactionLogTest extends SolrTestCase {
       assertEquals(uuid, (UUID) doc.getFieldValue("uuid"));
     }
   }
+
+  @Test
+  public void testGroupSync() throws Exception {
+    String tlogFileName =
+        String.format(Locale.ROOT, UpdateLog.LOG_FILENAME_PATTERN, UpdateLog.TLOG_NAME, 0L);
+    Path logFile = createTempDir().resolve(tlogFileName);
+    final int numThreads = 8;
+    final int docsPerThread = 50;
+    Timer fsyncTimer = new Timer();
+    AtomicInteger grouped = new AtomicInteger();
+    AtomicInteger fsyncs = new AtomicInteger();
+    try (TransactionLog tlog = new TransactionLog(logFile, null)) {
+      tlog.deleteOnClose = false;
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        final int thread = t;
+        threads.add(
+            new Thread(
+                () -> {
+                  for (int i = 0; i < docsPerThread; i++) {
+                    AddUpdateCommand updateCommand = new AddUpdateCommand(null);
+                    updateCommand.solrDoc = new SolrInputDocument("id", thread + "_" + i);
+                    tlog.write(updateCommand);
+                    int groupSize =
+                        tlog.groupSync(TimeUnit.MILLISECONDS.toNanos(1), 1024 * 1024, fsyncTimer);
+                    if (groupSize > 0) {
+                      fsyncs.incrementAndGet();
+                      grouped.addAndGet(groupSize);
+                    }
+                  }
+                }));
+      }
+      for (Thread t : threads) {
+        t.start();
+      }
+      for (Thread t : threads) {
+        t.join();
+      }
+      // nothing was written since, there's nothing left to sync
+      assertEquals(0, tlog.groupSync(0, 1024 * 1024, fsyncTimer));
+    }
+
+    int calls = numThreads * docsPerThread;
+    assertTrue(fsyncs.get() > 0);
+    assertTrue(fsyncs.get() <= calls);
+    assertTrue(grouped.get() <= calls);
+    assertEquals(fsyncs.get(), fsyncTimer.getCount());
+
+    try (TransactionLog tlog = new TransactionLog(logFile, null, true)) {
+      LogReader reader = tlog.getReader(0);
+      int numDocs = 0;
+      while (reader.next() != null) {
+        numDocs++;
+      }
+      assertEquals(calls, numDocs);
+    }
+  }
+
+  @Test
+  public void testGroupSyncSizeCountsSyncedCallersOnly() throws Exception {
+    String tlogFileName =
+        String.format(Locale.ROOT, UpdateLog.LOG_FILENAME_PATTERN, UpdateLog.TLOG_NAME, 0L);
+    Path logFile = createTempDir().resolve(tlogFileName);
+    try (TransactionLog tlog = new TransactionLog(logFile, null)) {
+      AddUpdateCommand add = new AddUpdateCommand(null);
+      add.solrDoc = new SolrInputDocument("id", "1");
+      tlog.write(add);
+      assertEquals(1, tlog.groupSync(0, 1024 * 1024, null));
+      // already durable, not part of the next group
+      assertEquals(0, tlog.groupSync(0, 1024 * 1024, null));
+
+      add.solrDoc = new SolrInputDocument("id", "2");
+      tlog.write(add);
+      assertEquals(1, tlog.groupSync(0, 1024 * 1024, null));
+    }
+  }
+
+  @Test
+  public void testRecentRecords() throws Exception {
+    String tlogFileName =
+        String.format(Locale.ROOT, UpdateLog.LOG_FILENAME_PATTERN, UpdateLog.TLOG_NAME, 0L);
+    Path logFile = createTempDir().resolve(tlogFileName);
+    try (TransactionLog tlog = new TransactionLog(logFile, null)) {
+      for (int i = 1; i <= 10; i++) {
+        AddUpdateCommand add = new AddUpdateCommand(null);
+        add.solrDoc = new SolrInputDocument("id", Integer.toString(i));
+        add.setVersion(i);
+        tlog.write(add);
+      }
+      DeleteUpdateCommand delete = new DeleteUpdateCommand(null);
+      delete.setIndexedId(new BytesRef("3"));
+      delete.setVersion(-11);
+      tlog.writeDelete(delete);
+
+      List<TransactionLog.RecordSummary> records = tlog.getRecentRecords(3);
+      assertEquals(3, records.size());
+      assertEquals(UpdateLog.DELETE, records.get(0).flags & UpdateLog.OPERATION_MASK);
+      assertEquals(-11L, records.get(0).version);
+      assertEquals(new BytesRef("3"), new BytesRef(records.get(0).id));
+      assertEquals(10L, records.get(1).version);
+      assertEquals(9L, records.get(2).version);
+
+      // resumes where the previous read stopped
+      records = tlog.getRecentRecords(100);
+      assertEquals(11, records.size());
+      for (int i = 1; i < records.size(); i++) {
+        TransactionLog.RecordSummary record = records.get(i);
+        assertEquals(11L - i, record.version);
+        assertEquals(record.version, ((List<?>) tlog.lookup(record.position)).get(1));
+      }
+
+      // appending starts over from the new end of the log
+      AddUpdateCommand add = new AddUpdateCommand(null);
+      add.solrDoc = new SolrInputDocument("id", "12");
+      add.setVersion(12);
+      tlog.write(add);
+      assertEquals(12L, tlog.getRecentRecords(1).get(0).version);
+      assertEquals(12, tlog.getRecentRecords(100).size());
+    }
+  }
 }
@@ -19,7 +19,13 @@ package org.apache.solr.update;
 import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
 import static org.hamcrest.core.StringContains.containsString;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.SolrTestCaseJ4;
@@ -218,6 +224,74 @@ public class UpdateLogTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testConcurrentAddsAndLookups() throws Exception {
+    final int numWriters = 4;
+    final int docsPerWriter = 500;
+    final AtomicLong nextVersion = new AtomicLong(1000);
+    final AtomicBoolean done = new AtomicBoolean();
+    final Map<String, Long> added = new ConcurrentHashMap<>();
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+    List<Thread> writers = new ArrayList<>();
+    for (int w = 0; w < numWriters; w++) {
+      final int writer = w;
+      writers.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < docsPerWriter; i++) {
+                  String id = "c" + writer + "_" + i;
+                  long version = nextVersion.incrementAndGet();
+                  ulogAdd(ulog, null, sdoc("id", id, "title_s", id, "_version_", version));
+                  added.put(id, version);
+                }
+              }));
+    }
+    // looks up ids that were added while the maps are rotated by commits
+    Thread reader =
+        new Thread(
+            () -> {
+              try {
+                int commits = 0;
+                while (!done.get()) {
+                  for (Map.Entry<String, Long> e : added.entrySet()) {
+                    BytesRef indexedId = new BytesRef(e.getKey());
+                    Long version = ulog.lookupVersion(indexedId);
+                    if (version != null) {
+                      assertEquals(e.getKey(), e.getValue(), version);
+                    }
+                    List<?> entry = (List<?>) ulog.lookup(indexedId);
+                    if (entry != null) {
+                      assertEquals(e.getKey(), e.getValue(), entry.get(UpdateLog.VERSION_IDX));
+                    }
+                  }
+                  if (++commits % 3 == 0) {
+                    ulogCommit(ulog);
+                  }
+                }
+              } catch (Throwable t) {
+                errors.add(t);
+              }
+            });
+
+    reader.start();
+    for (Thread t : writers) {
+      t.start();
+    }
+    for (Thread t : writers) {
+      t.join();
+    }
+    done.set(true);
+    reader.join();
+    assertTrue(errors.toString(), errors.isEmpty());
+    assertEquals(numWriters * docsPerWriter, added.size());
+
+    // without a commit since, everything added is in the current map
+    String id = "c_last";
+    ulogAdd(ulog, null, sdoc("id", id, "_version_", nextVersion.incrementAndGet()));
+    assertEquals(nextVersion.get(), ulog.lookupVersion(new BytesRef(id)).longValue());
+  }
+
   /** Simulate a commit on a given updateLog */
   private static void ulogCommit(UpdateLog ulog) {
     try (SolrQueryRequest req = req()) {
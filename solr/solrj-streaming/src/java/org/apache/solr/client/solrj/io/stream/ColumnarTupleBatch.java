@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * Collects a batch of tuples into one column per field, so that a whole batch is written as a
+ * handful of typed arrays instead of one map per tuple. This is a columnar variant of the javabin
+ * "docs" of /export and /stream responses, read back by {@link ColumnarTupleStreamParser}.
+ *
+ * <p>A batch is written as a map with:
+ *
+ * <ul>
+ *   <li>{@value #NUM_DOCS}: the number of tuples in the batch
+ *   <li>{@value #FIELDS}: the field names, in the order they were first seen
+ *   <li>{@value #COLUMNS}: one map per field, with the column {@value #TYPE}, its {@value #VALUES}
+ *       and, if some tuples don't have the field, a bitset of the tuples that have it in {@value
+ *       #PRESENT}. If the value of the field is null in some tuples, a bitset of these tuples is in
+ *       {@value #NULLS}.
+ * </ul>
+ *
+ * Integer and long values are written as a <code>long[]</code>, dates as a <code>long[]</code> of
+ * epoch milliseconds, float and double values as a <code>double[]</code>, strings as a dictionary
+ * of the distinct values in {@value #DICTIONARY} with an <code>int[]</code> of indexes, and any
+ * other values as a list.
+ */
+public class ColumnarTupleBatch implements MapWriter, IteratorWriter.ItemWriter {
+
+  /** Request parameter to ask for columnar docs, only honored with the javabin format */
+  public static final String COLUMNAR_PARAM = "columnar";
+
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  static final String NUM_DOCS = "columnarDocs";
+  static final String FIELDS = "fields";
+  static final String COLUMNS = "columns";
+  static final String TYPE = "t";
+  static final String VALUES = "v";
+  static final String PRESENT = "p";
+  static final String NULLS = "n";
+  static final String DICTIONARY = "d";
+
+  static final String LONG = "long";
+  static final String DATE = "date";
+  static final String DOUBLE = "double";
+  static final String STRING = "string";
+  static final String OBJECT = "object";
+
+  private final Map<String, Column> columns = new LinkedHashMap<>();
+  private int numDocs;
+
+  private final EntryWriter docWriter =
+      new EntryWriter() {
+        @Override
+        public EntryWriter put(CharSequence k, Object v) throws IOException {
+          String field = k.toString();
+          Column column = columns.get(field);
+          if (column == null) {
+            column = Column.forValue(v);
+            columns.put(field, column);
+          } else if (v != null && !column.accepts(v)) {
+            column = column.convert(v);
+            columns.put(field, column);
+          }
+          column.set(numDocs - 1, v);
+          return this;
+        }
+      };
+
+  /**
+   * Wraps the "docs" of a response, such as a {@link TupleStream}, so that they are written in
+   * columnar batches of up to <code>batchSize</code> tuples.
+   */
+  public static MapWriter columnarDocs(MapWriter response, int batchSize) {
+    return ew ->
+        response.writeMap(
+            new EntryWriter() {
+              @Override
+              public EntryWriter put(CharSequence k, Object v) throws IOException {
+                if ("docs".contentEquals(k) && v instanceof IteratorWriter) {
+                  v = columnarDocs((IteratorWriter) v, batchSize);
+                }
+                ew.put(k, v);
+                return this;
+              }
+            });
+  }
+
+  /**
+   * Writes the tuples of <code>docs</code> in columnar batches of up to <code>batchSize</code>
+   * tuples. EOF tuples and items that aren't tuples end the current batch and are written as is.
+   */
+  public static IteratorWriter columnarDocs(IteratorWriter docs, int batchSize) {
+    return iw -> {
+      ColumnarTupleBatch batch = new ColumnarTupleBatch();
+      docs.writeIter(
+          new ItemWriter() {
+            @Override
+            public ItemWriter add(Object o) throws IOException {
+              if (o instanceof MapWriter && !(o instanceof Tuple && ((Tuple) o).EOF)) {
+                batch.add(o);
+                if (batch.size() >= batchSize) {
+                  batch.flush(iw);
+                }
+              } else {
+                batch.flush(iw);
+                iw.add(o);
+              }
+              return this;
+            }
+          });
+      batch.flush(iw);
+    };
+  }
+
+  /** Adds a tuple, or any other {@link MapWriter}, to the batch */
+  @Override
+  public ItemWriter add(Object o) throws IOException {
+    numDocs++;
+    ((MapWriter) o).writeMap(docWriter);
+    return this;
+  }
+
+  public int size() {
+    return numDocs;
+  }
+
+  /** Writes the batch, if not empty, and clears it */
+  public void flush(ItemWriter out) throws IOException {
+    if (numDocs > 0) {
+      out.add(this);
+      clear();
+    }
+  }
+
+  public void clear() {
+    columns.clear();
+    numDocs = 0;
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    ew.put(NUM_DOCS, numDocs);
+    ew.put(FIELDS, new ArrayList<>(columns.keySet()));
+    ew.put(
+        COLUMNS,
+        (IteratorWriter)
+            iw -> {
+              for (Column column : columns.values()) {
+                iw.add((MapWriter) cw -> column.write(cw, numDocs));
+              }
+            });
+  }
+
+  private abstract static class Column {
+    final BitSet present = new BitSet();
+    final BitSet nulls = new BitSet();
+    int numValues;
+
+    static Column forValue(Object v) {
+      if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+        return new LongColumn(false);
+      } else if (v instanceof Date) {
+        return new LongColumn(true);
+      } else if (v instanceof Double || v instanceof Float) {
+        return new DoubleColumn();
+      } else if (v instanceof CharSequence) {
+        return new StringColumn();
+      }
+      return new ObjectColumn();
+    }
+
+    /** True if the (non-null) value can be added to this column without converting it */
+    boolean accepts(Object v) {
+      // a column that only has nulls takes the type of its first value
+      return numValues > 0 && acceptsValue(v);
+    }
+
+    abstract boolean acceptsValue(Object v);
+
+    void set(int doc, Object v) throws IOException {
+      if (v == null) {
+        nulls.set(doc);
+      } else {
+        setValue(doc, v);
+        numValues++;
+      }
+      present.set(doc);
+    }
+
+    abstract void setValue(int doc, Object v) throws IOException;
+
+    Object get(int doc) {
+      return nulls.get(doc) ? null : getValue(doc);
+    }
+
+    abstract Object getValue(int doc);
+
+    abstract void writeValues(EntryWriter ew, int numDocs) throws IOException;
+
+    void write(EntryWriter ew, int numDocs) throws IOException {
+      writeValues(ew, numDocs);
+      if (present.cardinality() < numDocs) {
+        ew.put(PRESENT, present.toByteArray());
+      }
+      if (!nulls.isEmpty()) {
+        ew.put(NULLS, nulls.toByteArray());
+      }
+    }
+
+    /** Returns a column that accepts <code>v</code> and has the values of this column */
+    Column convert(Object v) throws IOException {
+      Column column = numValues == 0 ? forValue(v) : new ObjectColumn();
+      for (int doc = present.nextSetBit(0); doc >= 0; doc = present.nextSetBit(doc + 1)) {
+        column.set(doc, get(doc));
+      }
+      return column;
+    }
+  }
+
+  private static final class LongColumn extends Column {
+    private final boolean date;
+    private long[] values = new long[16];
+
+    LongColumn(boolean date) {
+      this.date = date;
+    }
+
+    @Override
+    boolean acceptsValue(Object v) {
+      return date
+          ? v instanceof Date
+          : v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte;
+    }
+
+    @Override
+    void setValue(int doc, Object v) {
+      if (doc >= values.length) {
+        values = Arrays.copyOf(values, Math.max(doc + 1, values.length * 2));
+      }
+      values[doc] = date ? ((Date) v).getTime() : ((Number) v).longValue();
+    }
+
+    @Override
+    Object getValue(int doc) {
+      return date ? new Date(values[doc]) : values[doc];
+    }
+
+    @Override
+    void writeValues(EntryWriter ew, int numDocs) throws IOException {
+      ew.put(TYPE, date ? DATE : LONG);
+      ew.put(VALUES, Arrays.copyOf(values, numDocs));
+    }
+  }
+
+  private static final class DoubleColumn extends Column {
+    private double[] values = new double[16];
+
+    @Override
+    boolean acceptsValue(Object v) {
+      return v instanceof Double || v instanceof Float;
+    }
+
+    @Override
+    void setValue(int doc, Object v) {
+      if (doc >= values.length) {
+        values = Arrays.copyOf(values, Math.max(doc + 1, values.length * 2));
+      }
+      values[doc] = ((Number) v).doubleValue();
+    }
+
+    @Override
+    Object getValue(int doc) {
+      return values[doc];
+    }
+
+    @Override
+    void writeValues(EntryWriter ew, int numDocs) throws IOException {
+      ew.put(TYPE, DOUBLE);
+      ew.put(VALUES, Arrays.copyOf(values, numDocs));
+    }
+  }
+
+  private static final class StringColumn extends Column {
+    private final Map<String, Integer> ords = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private int[] values = new int[16];
+
+    @Override
+    boolean acceptsValue(Object v) {
+      return v instanceof CharSequence;
+    }
+
+    @Override
+    void setValue(int doc, Object v) {
+      if (doc >= values.length) {
+        values = Arrays.copyOf(values, Math.max(doc + 1, values.length * 2));
+      }
+      String s = v.toString();
+      Integer ord = ords.get(s);
+      if (ord == null) {
+        ord = dictionary.size();
+        ords.put(s, ord);
+        dictionary.add(s);
+      }
+      values[doc] = ord;
+    }
+
+    @Override
+    Object getValue(int doc) {
+      return dictionary.get(values[doc]);
+    }
+
+    @Override
+    void writeValues(EntryWriter ew, int numDocs) throws IOException {
+      ew.put(TYPE, STRING);
+      ew.put(DICTIONARY, dictionary);
+      ew.put(VALUES, Arrays.copyOf(values, numDocs));
+    }
+  }
+
+  private static final class ObjectColumn extends Column {
+    private final List<Object> values = new ArrayList<>();
+
+    @Override
+    boolean acceptsValue(Object v) {
+      return true;
+    }
+
+    @Override
+    void setValue(int doc, Object v) throws IOException {
+      if (v instanceof IteratorWriter) {
+        // values such as multi-valued fields may be produced lazily, read them now
+        List<Object> items = new ArrayList<>();
+        ((IteratorWriter) v)
+            .writeIter(
+                new ItemWriter() {
+                  @Override
+                  public ItemWriter add(Object o) {
+                    items.add(o);
+                    return this;
+                  }
+                });
+        v = items;
+      }
+      while (values.size() <= doc) {
+        values.add(null);
+      }
+      values.set(doc, v);
+    }
+
+    @Override
+    Object getValue(int doc) {
+      return values.get(doc);
+    }
+
+    @Override
+    void writeValues(EntryWriter ew, int numDocs) throws IOException {
+      while (values.size() < numDocs) {
+        values.add(null);
+      }
+      ew.put(TYPE, OBJECT);
+      ew.put(VALUES, values);
+    }
+  }
+}
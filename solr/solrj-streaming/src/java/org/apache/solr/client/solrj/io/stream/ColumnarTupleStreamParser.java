@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the javabin "docs" of /export and /stream responses that were requested with {@link
+ * ColumnarTupleBatch#COLUMNAR_PARAM}. Each batch is decoded once into its typed columns and the
+ * tuples are then read row by row. Docs that aren't columnar batches, such as the EOF tuple, are
+ * returned as they are, so this also reads regular javabin responses.
+ */
+public class ColumnarTupleStreamParser implements TupleStreamParser {
+
+  private final JavabinTupleStreamParser parser;
+  private final boolean onlyJsonTypes;
+
+  private int numDocs;
+  private int doc;
+  private String[] fields;
+  private String[] types;
+  private Object[] values;
+  private List<?>[] dictionaries;
+  private BitSet[] present;
+  private BitSet[] nulls;
+
+  /**
+   * @param onlyJsonTypes as for {@link JavabinTupleStreamParser}, returns dates as strings. Columns
+   *     of integers and floats are always returned as longs and doubles.
+   */
+  public ColumnarTupleStreamParser(InputStream is, boolean onlyJsonTypes) throws IOException {
+    this.parser = new JavabinTupleStreamParser(is, onlyJsonTypes);
+    this.onlyJsonTypes = onlyJsonTypes;
+  }
+
+  @Override
+  public Map<String, Object> next() throws IOException {
+    while (doc >= numDocs) {
+      Map<String, Object> next = parser.next();
+      if (next == null || !next.containsKey(ColumnarTupleBatch.NUM_DOCS)) {
+        return next;
+      }
+      readBatch(next);
+    }
+
+    Map<String, Object> tuple = new LinkedHashMap<>();
+    for (int i = 0; i < fields.length; i++) {
+      if (present[i] == null || present[i].get(doc)) {
+        tuple.put(fields[i], nulls[i] != null && nulls[i].get(doc) ? null : value(i, doc));
+      }
+    }
+    doc++;
+    return tuple;
+  }
+
+  private void readBatch(Map<String, Object> batch) {
+    numDocs = ((Number) batch.get(ColumnarTupleBatch.NUM_DOCS)).intValue();
+    doc = 0;
+    fields = ((List<?>) batch.get(ColumnarTupleBatch.FIELDS)).toArray(new String[0]);
+    List<?> columns = (List<?>) batch.get(ColumnarTupleBatch.COLUMNS);
+    types = new String[fields.length];
+    values = new Object[fields.length];
+    dictionaries = new List<?>[fields.length];
+    present = new BitSet[fields.length];
+    nulls = new BitSet[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      Map<?, ?> column = (Map<?, ?>) columns.get(i);
+      types[i] = (String) column.get(ColumnarTupleBatch.TYPE);
+      values[i] = column.get(ColumnarTupleBatch.VALUES);
+      dictionaries[i] = (List<?>) column.get(ColumnarTupleBatch.DICTIONARY);
+      byte[] bits = (byte[]) column.get(ColumnarTupleBatch.PRESENT);
+      present[i] = bits == null ? null : BitSet.valueOf(bits);
+      bits = (byte[]) column.get(ColumnarTupleBatch.NULLS);
+      nulls[i] = bits == null ? null : BitSet.valueOf(bits);
+    }
+  }
+
+  private Object value(int column, int doc) {
+    switch (types[column]) {
+      case ColumnarTupleBatch.LONG:
+        return ((long[]) values[column])[doc];
+      case ColumnarTupleBatch.DATE:
+        long millis = ((long[]) values[column])[doc];
+        return onlyJsonTypes ? Instant.ofEpochMilli(millis).toString() : new Date(millis);
+      case ColumnarTupleBatch.DOUBLE:
+        return ((double[]) values[column])[doc];
+      case ColumnarTupleBatch.STRING:
+        return dictionaries[column].get(((int[]) values[column])[doc]);
+      default:
+        return ((List<?>) values[column]).get(doc);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+}
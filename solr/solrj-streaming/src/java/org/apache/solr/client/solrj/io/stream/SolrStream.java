@@ -334,6 +334,9 @@ public class SolrStream extends TupleStream {
 
     this.closeableHttpResponse = httpResponse;
     if (CommonParams.JAVABIN.equals(wt)) {
+      if (requestParams.getBool(ColumnarTupleBatch.COLUMNAR_PARAM, false)) {
+        return new ColumnarTupleStreamParser(stream, true);
+      }
       return new JavabinTupleStreamParser(stream, true);
     } else {
       InputStreamReader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
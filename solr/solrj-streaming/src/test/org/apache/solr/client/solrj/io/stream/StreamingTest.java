@@ -2815,6 +2815,79 @@ public class StreamingTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testColumnarExport() throws Exception {
+    UpdateRequest update = new UpdateRequest();
+    for (int i = 0; i < 3000; i++) {
+      List<String> fields =
+          new ArrayList<>(
+              List.of(
+                  id,
+                  Integer.toString(i),
+                  "i_sing",
+                  Integer.toString(i % 100),
+                  "l_sing",
+                  Long.toString(i * 1000000000L),
+                  "f_sing",
+                  Float.toString(i / 4f),
+                  "d_sing",
+                  Double.toString(i / 3d),
+                  "dt_sing",
+                  Instant.ofEpochSecond(i).toString(),
+                  "b_sing",
+                  Boolean.toString(i % 2 == 0)));
+      // some docs don't have these fields
+      if (i % 7 != 0) {
+        fields.addAll(List.of("s_sing", "hello" + (i % 10)));
+      }
+      if (i % 3 == 0) {
+        fields.addAll(List.of("s_multi", "a", "s_multi", "b" + i, "i_multi", "1", "i_multi", "2"));
+      }
+      update.add(fields.toArray(new String[0]));
+    }
+    update.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    try {
+      int numTuples = 0;
+      for (String shardUrl : TupleStream.getShards(zkHost, COLLECTIONORALIAS, streamContext)) {
+        ModifiableSolrParams sParams =
+            params(
+                "q",
+                "*:*",
+                "qt",
+                "/export",
+                "fl",
+                "id,i_sing,l_sing,f_sing,d_sing,dt_sing,b_sing,s_sing,s_multi,i_multi",
+                "sort",
+                "id asc",
+                "wt",
+                "javabin");
+        SolrStream rowStream = new SolrStream(shardUrl, sParams);
+        rowStream.setStreamContext(streamContext);
+        List<Tuple> rows = getTuples(rowStream);
+
+        sParams.set(ColumnarTupleBatch.COLUMNAR_PARAM, true);
+        SolrStream columnarStream = new SolrStream(shardUrl, sParams);
+        columnarStream.setStreamContext(streamContext);
+        List<Tuple> columnar = getTuples(columnarStream);
+
+        // the tuples of a shard span several batches
+        assertTrue(rows.size() > ColumnarTupleBatch.DEFAULT_BATCH_SIZE);
+        assertEquals(rows.size(), columnar.size());
+        for (int i = 0; i < rows.size(); i++) {
+          assertEquals(rows.get(i).getFields(), columnar.get(i).getFields());
+        }
+        numTuples += rows.size();
+      }
+      assertEquals(3000, numTuples);
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
   @Test
   public void testTupleStreamGetShardsPreference() throws Exception {
     StreamContext streamContext = new StreamContext();
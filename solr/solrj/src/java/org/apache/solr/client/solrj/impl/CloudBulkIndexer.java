@@ -0,0 +1,473 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.impl;
+
+import static org.apache.solr.common.params.CommonParams.ID;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.ToleratedUpdateError;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes a continuous stream of documents into a collection, for bulk loads.
+ *
+ * <p>Documents are routed on the client with the router of the collection, and are batched per
+ * shard. A full batch is sent asynchronously to the leader of its shard, which is looked up in the
+ * current cluster state when the batch is sent. At most {@link
+ * Builder#withMaxRequestsPerShard(int)} requests are in flight for a shard, {@link
+ * #add(SolrInputDocument)} blocks while a shard has that many.
+ *
+ * <p>A batch whose shard is not active anymore, for instance after a split, is routed again. So is
+ * a batch that fails with a communication error, a 404 or a 503, with a refreshed cluster state, up
+ * to {@link Builder#withMaxRetries(int)} times. The batches that are sent again count against the
+ * requests in flight of their shard too. Documents that can't be indexed are reported one
+ * by one to the {@link Listener}. If the update chain of the collection has a {@code
+ * TolerantUpdateProcessorFactory}, only the documents it rejected are reported, the other
+ * documents of their batch are indexed.
+ *
+ * <pre>
+ *   try (CloudBulkIndexer indexer =
+ *       new CloudBulkIndexer.Builder(cloudClient, "collection1").withListener(listener).build()) {
+ *     for (SolrInputDocument doc : docs) {
+ *       indexer.add(doc);
+ *     }
+ *   }
+ * </pre>
+ *
+ * <p>Instances are thread safe. {@link #close()} sends the remaining documents and waits for all
+ * the requests to complete, it does not close the {@link CloudHttp2SolrClient}.
+ */
+public class CloudBulkIndexer implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final long RETRY_DELAY_MILLIS = 100;
+
+  /** Receives the outcome of the documents sent by a {@link CloudBulkIndexer}. */
+  public interface Listener {
+
+    /** Called with documents that were indexed. */
+    default void onSuccess(List<SolrInputDocument> docs) {}
+
+    /** Called for each document that could not be indexed. */
+    void onFailure(SolrInputDocument doc, Throwable error);
+  }
+
+  private final CloudHttp2SolrClient client;
+  private final String collection;
+  private final int batchSize;
+  private final int maxRequestsPerShard;
+  private final int maxRetries;
+  private final SolrParams params;
+  private final Listener listener;
+  private final Map<String, ShardPipeline> pipelines = new ConcurrentHashMap<>();
+  private int inFlight;
+  private volatile boolean closed;
+
+  protected CloudBulkIndexer(Builder builder) {
+    this.client = builder.client;
+    this.collection = builder.collection;
+    this.batchSize = builder.batchSize;
+    this.maxRequestsPerShard = builder.maxRequestsPerShard;
+    this.maxRetries = builder.maxRetries;
+    this.params = builder.params;
+    this.listener = builder.listener;
+  }
+
+  /**
+   * Adds a document to the batch of its shard, and sends the batch if it is full.
+   *
+   * @throws InterruptedException if interrupted while the shard has too many requests in flight
+   */
+  public void add(SolrInputDocument doc) throws InterruptedException {
+    if (closed) {
+      throw new IllegalStateException("The indexer is closed");
+    }
+    Slice slice;
+    try {
+      slice = getTargetSlice(getDocCollection(false), doc);
+    } catch (RuntimeException e) {
+      listener.onFailure(doc, e);
+      return;
+    }
+    pipelines.computeIfAbsent(slice.getName(), ShardPipeline::new).add(doc);
+  }
+
+  /** Sends the documents that were added, and waits until all the requests complete. */
+  public void flush() throws InterruptedException {
+    for (ShardPipeline pipeline : pipelines.values()) {
+      pipeline.flush();
+    }
+    synchronized (this) {
+      while (inFlight > 0) {
+        wait();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    try {
+      flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while sending the remaining documents", e);
+    }
+  }
+
+  /** Batches the documents of a shard, and bounds the number of its requests in flight. */
+  private class ShardPipeline {
+    private final String shard;
+    private final Semaphore permits = new Semaphore(maxRequestsPerShard);
+    private List<SolrInputDocument> batch;
+
+    ShardPipeline(String shard) {
+      this.shard = shard;
+      this.batch = new ArrayList<>(batchSize);
+    }
+
+    void add(SolrInputDocument doc) throws InterruptedException {
+      List<SolrInputDocument> docs;
+      synchronized (this) {
+        batch.add(doc);
+        if (batch.size() < batchSize) {
+          return;
+        }
+        docs = batch;
+        batch = new ArrayList<>(batchSize);
+      }
+      send(docs);
+    }
+
+    void flush() throws InterruptedException {
+      List<SolrInputDocument> docs;
+      synchronized (this) {
+        if (batch.isEmpty()) {
+          return;
+        }
+        docs = batch;
+        batch = new ArrayList<>(batchSize);
+      }
+      send(docs);
+    }
+
+    private void send(List<SolrInputDocument> docs) throws InterruptedException {
+      permits.acquire();
+      CloudBulkIndexer.this.send(shard, docs, 0, permits::release);
+    }
+
+    /**
+     * Sends documents that are routed again once the shard has a permit. Waits for it without
+     * blocking the thread, which completes requests or routes other documents.
+     */
+    void resend(List<SolrInputDocument> docs, int attempt) {
+      if (permits.tryAcquire()) {
+        CloudBulkIndexer.this.send(shard, docs, attempt, permits::release);
+      } else {
+        schedule(() -> resend(docs, attempt), RETRY_DELAY_MILLIS);
+      }
+    }
+  }
+
+  /**
+   * Sends documents to the leader of a shard.
+   *
+   * @param onComplete called once the request completed, before any retry is sent
+   */
+  private void send(String shard, List<SolrInputDocument> docs, int attempt, Runnable onComplete) {
+    startRequest();
+    CompletableFuture<NamedList<Object>> future;
+    try {
+      future = sendToLeader(shard, docs, attempt);
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    future.whenComplete(
+        (rsp, error) -> {
+          try {
+            onComplete.run();
+            if (error != null) {
+              retryOrFail(docs, attempt, error);
+            } else {
+              onResponse(docs, rsp);
+            }
+          } finally {
+            endRequest();
+          }
+        });
+  }
+
+  private CompletableFuture<NamedList<Object>> sendToLeader(
+      String shard, List<SolrInputDocument> docs, int attempt)
+      throws SolrServerException, IOException {
+    DocCollection col = getDocCollection(attempt > 0);
+    Slice slice = col.getSlice(shard);
+    if (slice == null || slice.getState() != Slice.State.ACTIVE) {
+      // the documents are routed again when retried
+      throw new SolrException(
+          SolrException.ErrorCode.SERVICE_UNAVAILABLE, "Shard " + shard + " is not active");
+    }
+    Replica leader = slice.getLeader();
+    if (leader == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVICE_UNAVAILABLE, "No leader for shard " + shard);
+    }
+
+    UpdateRequest request = new UpdateRequest();
+    request.setParams(new ModifiableSolrParams(params));
+    request.add(docs);
+    return client
+        .getHttpClient()
+        .requestWithBaseUrl(
+            leader.getBaseUrl(), (c) -> c.requestAsync(request, leader.getCoreName()));
+  }
+
+  /** Groups documents by their shard in the current cluster state and sends them. */
+  private void route(List<SolrInputDocument> docs, int attempt) {
+    DocCollection col;
+    try {
+      col = getDocCollection(true);
+    } catch (RuntimeException e) {
+      failAll(docs, e);
+      return;
+    }
+    Map<String, List<SolrInputDocument>> docsByShard = new HashMap<>();
+    for (SolrInputDocument doc : docs) {
+      try {
+        Slice slice = getTargetSlice(col, doc);
+        docsByShard.computeIfAbsent(slice.getName(), k -> new ArrayList<>()).add(doc);
+      } catch (RuntimeException e) {
+        listener.onFailure(doc, e);
+      }
+    }
+    docsByShard.forEach(
+        (shard, shardDocs) ->
+            pipelines.computeIfAbsent(shard, ShardPipeline::new).resend(shardDocs, attempt));
+  }
+
+  private void retryOrFail(List<SolrInputDocument> docs, int attempt, Throwable error) {
+    if (attempt >= maxRetries || !isRetryable(error)) {
+      failAll(docs, error);
+      return;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Routing {} documents again after: {}", docs.size(), error.toString());
+    }
+    schedule(() -> route(docs, attempt + 1), RETRY_DELAY_MILLIS << Math.min(attempt, 6));
+  }
+
+  /** Runs a task after a delay, {@link #flush()} waits for it like for a request. */
+  private void schedule(Runnable task, long delayMillis) {
+    startRequest();
+    CompletableFuture.runAsync(
+        () -> {
+          try {
+            task.run();
+          } finally {
+            endRequest();
+          }
+        },
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+  }
+
+  private void onResponse(List<SolrInputDocument> docs, NamedList<Object> rsp) {
+    NamedList<?> header = (NamedList<?>) rsp.get("responseHeader");
+    @SuppressWarnings("unchecked")
+    List<SimpleOrderedMap<String>> toleratedErrors =
+        header == null ? null : (List<SimpleOrderedMap<String>>) header.get("errors");
+    if (toleratedErrors == null || toleratedErrors.isEmpty()) {
+      listener.onSuccess(docs);
+      return;
+    }
+
+    Map<String, ToleratedUpdateError> errorsById = new HashMap<>();
+    for (SimpleOrderedMap<String> toleratedError : toleratedErrors) {
+      ToleratedUpdateError error = ToleratedUpdateError.parseMap(toleratedError);
+      if (error.getType() == ToleratedUpdateError.CmdType.ADD) {
+        errorsById.put(error.getId(), error);
+      }
+    }
+    List<SolrInputDocument> indexed = new ArrayList<>(docs.size());
+    Set<String> reported = new HashSet<>();
+    for (SolrInputDocument doc : docs) {
+      Object id = doc.getFieldValue(ID);
+      ToleratedUpdateError error = id == null ? null : errorsById.get(id.toString());
+      if (error != null && reported.add(error.getId())) {
+        listener.onFailure(
+            doc, new SolrException(SolrException.ErrorCode.BAD_REQUEST, error.getMessage()));
+      } else {
+        indexed.add(doc);
+      }
+    }
+    if (!indexed.isEmpty()) {
+      listener.onSuccess(indexed);
+    }
+  }
+
+  private void failAll(List<SolrInputDocument> docs, Throwable error) {
+    for (SolrInputDocument doc : docs) {
+      listener.onFailure(doc, error);
+    }
+  }
+
+  private static boolean isRetryable(Throwable error) {
+    Throwable rootCause = SolrException.getRootCause(error);
+    if (rootCause instanceof ConnectException || rootCause instanceof SocketException) {
+      return true;
+    }
+    // 404 if the core moved to another node, 503 if the shard has no leader
+    int code = rootCause instanceof SolrException ? ((SolrException) rootCause).code() : -1;
+    return code == SolrException.ErrorCode.NOT_FOUND.code
+        || code == SolrException.ErrorCode.SERVICE_UNAVAILABLE.code;
+  }
+
+  private DocCollection getDocCollection(boolean refresh) {
+    DocCollection col = client.getDocCollection(collection, null);
+    if (col == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "Collection not found: " + collection);
+    }
+    if (refresh) {
+      // fetches the state again unless the cached state was just refreshed
+      DocCollection refreshed = client.getDocCollection(collection, col.getZNodeVersion() + 1);
+      if (refreshed != null) {
+        col = refreshed;
+      }
+    }
+    return col;
+  }
+
+  private static Slice getTargetSlice(DocCollection col, SolrInputDocument doc) {
+    String routeField = col.getRouter().getRouteField(col);
+    Object id = doc.getFieldValue(routeField == null ? ID : routeField);
+    if (id == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "Document has no " + ID + " to route it with");
+    }
+    Slice slice = col.getRouter().getTargetSlice(id.toString(), doc, null, null, col);
+    if (slice == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "No active shard for the document " + id);
+    }
+    return slice;
+  }
+
+  private synchronized void startRequest() {
+    inFlight++;
+  }
+
+  private synchronized void endRequest() {
+    if (--inFlight == 0) {
+      notifyAll();
+    }
+  }
+
+  /** Constructs {@link CloudBulkIndexer} instances from provided configuration. */
+  public static class Builder {
+    protected CloudHttp2SolrClient client;
+    protected String collection;
+    protected int batchSize = 500;
+    protected int maxRequestsPerShard = 2;
+    protected int maxRetries = 3;
+    protected SolrParams params = new ModifiableSolrParams();
+    protected Listener listener =
+        (doc, error) -> log.error("Failed to index {}", doc.getFieldValue(ID), error);
+
+    /**
+     * @param client the client the cluster state and the HTTP client are taken from. Callers are
+     *     responsible for closing it, after closing the indexer.
+     * @param collection the collection to index into
+     */
+    public Builder(CloudHttp2SolrClient client, String collection) {
+      this.client = client;
+      this.collection = collection;
+    }
+
+    /** The number of documents sent per request to a shard, 500 by default. */
+    public Builder withBatchSize(int batchSize) {
+      if (batchSize <= 0) {
+        throw new IllegalArgumentException("batchSize must be a positive integer.");
+      }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /** The maximum number of requests in flight to the leader of a shard, 2 by default. */
+    public Builder withMaxRequestsPerShard(int maxRequestsPerShard) {
+      if (maxRequestsPerShard <= 0) {
+        throw new IllegalArgumentException("maxRequestsPerShard must be a positive integer.");
+      }
+      this.maxRequestsPerShard = maxRequestsPerShard;
+      return this;
+    }
+
+    /** How many times a batch that failed with a retryable error is sent again, 3 by default. */
+    public Builder withMaxRetries(int maxRetries) {
+      if (maxRetries < 0) {
+        throw new IllegalArgumentException("maxRetries must not be negative.");
+      }
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    /** Parameters added to every update request, for instance an {@code update.chain}. */
+    public Builder withParams(SolrParams params) {
+      this.params = params;
+      return this;
+    }
+
+    /** Receives the outcome of the documents. By default, failures are logged. */
+    public Builder withListener(Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    public CloudBulkIndexer build() {
+      if (client == null || collection == null) {
+        throw new IllegalArgumentException("A client and a collection are required");
+      }
+      return new CloudBulkIndexer(this);
+    }
+  }
+}
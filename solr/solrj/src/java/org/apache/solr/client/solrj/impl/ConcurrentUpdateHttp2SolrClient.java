@@ -21,7 +21,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
@@ -29,6 +31,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -43,6 +46,7 @@ import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.client.util.InputStreamResponseListener;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +64,8 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
   private final ExecutorService scheduler;
   private final Queue<Runner> runners;
   private final int threadCount;
+  private final UpdateFlowControl flowControl;
+  private final Stats stats = new Stats();
 
   private boolean shutdownClient;
   private boolean shutdownExecutor;
@@ -144,6 +150,11 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     this.client = builder.client;
     this.shutdownClient = builder.closeHttp2Client;
     this.threadCount = builder.threadCount;
+    this.flowControl =
+        builder.targetLatencyMillis > 0
+            ? new UpdateFlowControl(
+                threadCount, TimeUnit.MILLISECONDS.toNanos(builder.targetLatencyMillis))
+            : null;
     this.queue = new CustomBlockingQueue<>(builder.queueSize, threadCount, END_UPDATE);
     this.runners = new ArrayDeque<>();
     this.streamDeletes = builder.streamDeletes;
@@ -216,18 +227,39 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     @SuppressWarnings({"unchecked"})
     void sendUpdateStream() throws Exception {
 
+      // the updates of a stream that the server rejected, which are sent again
+      List<Update> retry = null;
+      int retries = 0;
       try {
-        while (!queue.isEmpty()) {
+        while (retry != null || !queue.isEmpty()) {
           InputStream rspBody = null;
           try {
+            List<Update> batch = null;
+            if (flowControl != null) {
+              if (retry == null && hasTooManyRunners()) {
+                break;
+              }
+              flowControl.awaitPause();
+              batch = new ArrayList<>();
+            }
+            Iterator<Update> pending = retry != null ? retry.iterator() : null;
+            retry = null;
+
             Update update;
-            notifyQueueAndRunnersIfEmptyQueue();
-            update = queue.poll(pollQueueTimeMillis, TimeUnit.MILLISECONDS);
+            if (pending != null) {
+              update = pending.next();
+            } else {
+              notifyQueueAndRunnersIfEmptyQueue();
+              update = queue.poll(pollQueueTimeMillis, TimeUnit.MILLISECONDS);
+            }
 
             if (update == null) {
               break;
             }
 
+            stats.streams.increment();
+            int requests = 0;
+            int docs = 0;
             InputStreamResponseListener responseListener = null;
             try (Http2SolrClient.OutStream out =
                 client.initOutStream(basePath, update.getRequest(), update.getCollection())) {
@@ -239,21 +271,64 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
                   queue.add(upd);
                   break;
                 }
-                client.send(out, upd.getRequest(), upd.getCollection());
-                out.flush();
+                client.sendBuffered(out, upd.getRequest(), upd.getCollection());
+                requests++;
+                docs += req.getDocuments() == null ? 0 : req.getDocuments().size();
+
+                if (batch != null) {
+                  batch.add(upd);
+                  if (pending != null) {
+                    upd = pending.hasNext() ? pending.next() : null;
+                    continue;
+                  }
+                  if (batch.size() >= flowControl.getBatchSize()) {
+                    break;
+                  }
+                }
 
+                // updates that are already queued are sent together with this one, only flush
+                // before waiting for more, so that an update is never held back. Other runners
+                // may take the queued updates, so only the poll that fails tells we will wait
                 notifyQueueAndRunnersIfEmptyQueue();
-                upd = queue.poll(pollQueueTimeMillis, TimeUnit.MILLISECONDS);
+                upd = queue.poll();
+                if (upd == null) {
+                  out.flush();
+                  upd = queue.poll(pollQueueTimeMillis, TimeUnit.MILLISECONDS);
+                }
               }
               responseListener = out.getResponseListener();
             }
 
+            long sentNanos = System.nanoTime();
             Response response =
                 responseListener.get(client.getIdleTimeout(), TimeUnit.MILLISECONDS);
             rspBody = responseListener.getInputStream();
+            long latencyNanos = System.nanoTime() - sentNanos;
+            stats.onResponse(latencyNanos);
 
             int statusCode = response.getStatus();
+            if (UpdateFlowControl.isThrottled(statusCode)) {
+              stats.throttledStreams.increment();
+            }
+            if (flowControl != null) {
+              flowControl.onResponse(
+                  statusCode,
+                  latencyNanos,
+                  UpdateFlowControl.parseRetryAfterMillis(
+                      response.getHeaders().get(HttpHeader.RETRY_AFTER)));
+              // a 429 is sent before the request is processed, the updates can be sent again
+              if (statusCode == HttpStatus.TOO_MANY_REQUESTS_429
+                  && retries < UpdateFlowControl.MAX_RETRIES) {
+                retry = batch;
+                retries++;
+                stats.retriedStreams.increment();
+                continue;
+              }
+            }
+            retries = 0;
+
             if (statusCode != HttpStatus.OK_200) {
+              stats.failedStreams.increment();
               StringBuilder msg = new StringBuilder();
               msg.append(response.getReason());
               msg.append("\n\n\n\n");
@@ -287,6 +362,8 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
 
               handleError(solrExc);
             } else {
+              stats.requests.add(requests);
+              stats.docs.add(docs);
               onSuccess(response, rspBody);
             }
 
@@ -301,10 +378,32 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
         }
       } catch (InterruptedException e) {
         log.error("Interrupted on polling from queue", e);
+        if (retry != null) {
+          // the updates the server rejected won't be sent again
+          stats.failedStreams.increment();
+          handleError(
+              new SolrClient.RemoteSolrException(
+                  basePath,
+                  HttpStatus.TOO_MANY_REQUESTS_429,
+                  "Interrupted before sending again "
+                      + retry.size()
+                      + " update requests rejected by the server",
+                  e));
+        }
       }
     }
   }
 
+  private boolean hasTooManyRunners() {
+    synchronized (runners) {
+      return runners.size() > 1 && runners.size() > flowControl.getStreamLimit();
+    }
+  }
+
+  private int getMaxRunners() {
+    return flowControl != null ? flowControl.getStreamLimit() : threadCount;
+  }
+
   private void consumeFully(InputStream is) {
     if (is != null) {
       try (is) {
@@ -410,7 +509,7 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
           // special case: if only using a threadCount of 1 and the queue
           // is filling up, allow 1 additional runner to help process the queue
           if (runners.isEmpty()
-              || (queue.remainingCapacity() < queue.size() && runners.size() < threadCount)) {
+              || (queue.remainingCapacity() < queue.size() && runners.size() < getMaxRunners())) {
             // We need more runners, so start a new one.
             addRunner();
           } else {
@@ -694,6 +793,86 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     }
   }
 
+  /** Returns the statistics of the updates this client sent. */
+  public Stats getStats() {
+    return stats;
+  }
+
+  /**
+   * Returns the number of streams this client may keep open, which is adapted to the server with
+   * {@link Builder#withAdaptiveFlowControl(long, TimeUnit)}.
+   */
+  public int getStreamLimit() {
+    return Math.max(1, getMaxRunners());
+  }
+
+  /**
+   * Returns the number of updates this client sends on a stream before it waits for the response,
+   * or -1 if the number is not limited.
+   */
+  public int getBatchSize() {
+    return flowControl != null ? flowControl.getBatchSize() : -1;
+  }
+
+  /**
+   * Statistics of the updates a {@link ConcurrentUpdateHttp2SolrClient} sent. A stream sends the
+   * queued update requests over a single HTTP request. The throughput of the client is the rate at
+   * which {@link #getRequests()} or {@link #getDocuments()} grows.
+   */
+  public static class Stats {
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder docs = new LongAdder();
+    private final LongAdder streams = new LongAdder();
+    private final LongAdder failedStreams = new LongAdder();
+    private final LongAdder throttledStreams = new LongAdder();
+    private final LongAdder retriedStreams = new LongAdder();
+    private volatile long latencyNanos = -1;
+
+    /** The number of update requests the server accepted. */
+    public long getRequests() {
+      return requests.sum();
+    }
+
+    /** The number of documents in the update requests the server accepted. */
+    public long getDocuments() {
+      return docs.sum();
+    }
+
+    /** The number of streams that were sent. */
+    public long getStreams() {
+      return streams.sum();
+    }
+
+    /** The number of streams the server answered with an error, and that were not sent again. */
+    public long getFailedStreams() {
+      return failedStreams.sum();
+    }
+
+    /** The number of streams the server answered with 429 or 503. */
+    public long getThrottledStreams() {
+      return throttledStreams.sum();
+    }
+
+    /** The number of streams that were sent again after the server answered with 429. */
+    public long getRetriedStreams() {
+      return retriedStreams.sum();
+    }
+
+    /**
+     * The moving average of the time between the end of a stream and the response of the server,
+     * in milliseconds, or -1 before the first response.
+     */
+    public double getResponseLatencyMillis() {
+      long latency = latencyNanos;
+      return latency < 0 ? -1 : latency / 1_000_000.0;
+    }
+
+    private synchronized void onResponse(long latencyNanos) {
+      this.latencyNanos =
+          this.latencyNanos < 0 ? latencyNanos : (this.latencyNanos * 7 + latencyNanos) / 8;
+    }
+  }
+
   /** Constructs {@link ConcurrentUpdateHttp2SolrClient} instances from provided configuration. */
   public static class Builder {
     protected Http2SolrClient client;
@@ -705,6 +884,7 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     protected boolean streamDeletes;
     protected boolean closeHttp2Client;
     private long pollQueueTimeMillis;
+    private long targetLatencyMillis;
 
     /**
      * Initialize a Builder object, based on the provided URL and client.
@@ -827,6 +1007,27 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
       return this;
     }
 
+    /**
+     * Adapts the number of open streams and the number of updates sent on each of them to the
+     * server, instead of streaming whatever is queued on up to {@link #withThreadCount(int)}
+     * streams.
+     *
+     * <p>Both grow while the server answers a stream within the target latency, and are halved
+     * when it answers slower, or with 429 (Too Many Requests) or 503 (Service Unavailable). After
+     * such a response the client pauses for the time of the Retry-After header of the response, or
+     * backs off exponentially if there is none. Updates the server rejected with 429 are sent
+     * again. The thread count is the maximum number of streams.
+     *
+     * @param targetLatency the longest time the server should take to answer once a stream is sent
+     */
+    public Builder withAdaptiveFlowControl(long targetLatency, TimeUnit unit) {
+      if (targetLatency <= 0) {
+        throw new IllegalArgumentException("targetLatency must be a positive number.");
+      }
+      this.targetLatencyMillis = TimeUnit.MILLISECONDS.convert(targetLatency, unit);
+      return this;
+    }
+
     /** Sets a default for core or collection based requests. */
     public Builder withDefaultCollection(String defaultCoreOrCollection) {
       this.defaultCollection = defaultCoreOrCollection;
@@ -16,10 +16,12 @@
  */
 package org.apache.solr.client.solrj.impl;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
 import java.net.ConnectException;
@@ -330,9 +332,13 @@ public class Http2SolrClient extends HttpSolrClientBase {
   }
 
   public static class OutStream implements Closeable {
+    // requests are buffered up to this size, so that a batch of small requests is sent together
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final String origCollection;
     private final SolrParams origParams;
     private final OutputStreamRequestContent content;
+    private final OutputStream out;
     private final InputStreamResponseListener responseListener;
     private final boolean isXml;
 
@@ -345,6 +351,7 @@ public class Http2SolrClient extends HttpSolrClientBase {
       this.origCollection = origCollection;
       this.origParams = origParams;
       this.content = content;
+      this.out = new BufferedOutputStream(content.getOutputStream(), BUFFER_SIZE);
       this.responseListener = responseListener;
       this.isXml = isXml;
     }
@@ -355,11 +362,12 @@ public class Http2SolrClient extends HttpSolrClientBase {
     }
 
     public void write(byte[] b) throws IOException {
-      this.content.getOutputStream().write(b);
+      this.out.write(b);
     }
 
+    /** Sends what was written so far to the server */
     public void flush() throws IOException {
-      this.content.getOutputStream().flush();
+      this.out.flush();
     }
 
     @Override
@@ -367,7 +375,7 @@ public class Http2SolrClient extends HttpSolrClientBase {
       if (isXml) {
         write("</stream>".getBytes(FALLBACK_CHARSET));
       }
-      this.content.getOutputStream().close();
+      this.out.close();
     }
 
     // TODO this class should be hidden
@@ -405,9 +413,21 @@ public class Http2SolrClient extends HttpSolrClientBase {
     return outStream;
   }
 
+  /** Writes a request to the stream, and sends it to the server. */
   public void send(OutStream outStream, SolrRequest<?> req, String collection) throws IOException {
+    sendBuffered(outStream, req, collection);
+    outStream.flush();
+  }
+
+  /**
+   * Writes a request to the stream, like {@link #send(OutStream, SolrRequest, String)}, but it is
+   * buffered with the requests that follow it until {@link OutStream#flush()} or {@link
+   * OutStream#close()}, so that small requests are sent together.
+   */
+  public void sendBuffered(OutStream outStream, SolrRequest<?> req, String collection)
+      throws IOException {
     assert outStream.belongToThisStream(req, collection);
-    this.requestWriter.write(req, outStream.content.getOutputStream());
+    this.requestWriter.write(req, outStream.out);
     if (outStream.isXml) {
       // check for commit or optimize
       SolrParams params = req.getParams();
@@ -428,7 +448,6 @@ public class Http2SolrClient extends HttpSolrClientBase {
         }
       }
     }
-    outStream.flush();
   }
 
   @Override
@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.Set;
 import org.apache.solr.client.solrj.ResponseParser;
 import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.LazyJavaBinCodec;
 import org.apache.solr.common.util.NamedList;
 
 /**
@@ -32,12 +33,23 @@ public class JavaBinResponseParser extends ResponseParser {
   public static final String JAVABIN_CONTENT_TYPE = "application/octet-stream";
 
   protected JavaBinCodec.StringCache stringCache;
+  protected boolean lazyDocuments;
 
   public JavaBinResponseParser setStringCache(JavaBinCodec.StringCache cache) {
     this.stringCache = cache;
     return this;
   }
 
+  /**
+   * Decode the fields of the documents of the responses only when they are read.
+   *
+   * @see LazyJavaBinCodec
+   */
+  public JavaBinResponseParser setLazyDocuments(boolean lazyDocuments) {
+    this.lazyDocuments = lazyDocuments;
+    return this;
+  }
+
   @Override
   public String getWriterType() {
     return "javabin";
@@ -50,7 +62,7 @@ public class JavaBinResponseParser extends ResponseParser {
   }
 
   protected JavaBinCodec createCodec() {
-    return new JavaBinCodec(null, stringCache);
+    return lazyDocuments ? new LazyJavaBinCodec(stringCache) : new JavaBinCodec(null, stringCache);
   }
 
   @Override
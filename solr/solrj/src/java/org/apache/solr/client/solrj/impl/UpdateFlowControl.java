@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.impl;
+
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.http.HttpStatus;
+
+/**
+ * Decides how many streams a {@link ConcurrentUpdateHttp2SolrClient} keeps open and how many
+ * updates it sends on each of them, from the responses of the server.
+ *
+ * <p>Both grow while the server answers within the target latency: the batch size doubles and the
+ * number of streams grows by one per round of responses. Both are halved, at most once per target
+ * latency, when the server answers slower or with 429 or 503. After a 429 or 503 the client also
+ * pauses for the time of the Retry-After header of the response, or backs off exponentially if
+ * there is none. A pause never exceeds {@link #MAX_PAUSE_MILLIS}, so that it does not trip the
+ * stall prevention of the client.
+ */
+class UpdateFlowControl {
+  static final int INITIAL_BATCH_SIZE = 16;
+  static final int MAX_BATCH_SIZE = 1024;
+  static final long MIN_PAUSE_MILLIS = 100;
+  static final long MAX_PAUSE_MILLIS = 10_000;
+
+  /** How many times a batch that the server rejected with 429 is sent again. */
+  static final int MAX_RETRIES = 5;
+
+  private final int maxStreams;
+  private final long targetLatencyNanos;
+
+  private double streamLimit = 1;
+  private int batchSize = INITIAL_BATCH_SIZE;
+  private int throttledInARow;
+  private long lastDecreaseNanos;
+  private long pausedUntilNanos;
+
+  UpdateFlowControl(int maxStreams, long targetLatencyNanos) {
+    this.maxStreams = Math.max(1, maxStreams);
+    this.targetLatencyNanos = targetLatencyNanos;
+    this.lastDecreaseNanos = System.nanoTime() - targetLatencyNanos;
+    this.pausedUntilNanos = System.nanoTime();
+  }
+
+  /** The number of streams the client may keep open. */
+  synchronized int getStreamLimit() {
+    return (int) streamLimit;
+  }
+
+  /** The number of updates the client sends on a stream before it waits for the response. */
+  synchronized int getBatchSize() {
+    return batchSize;
+  }
+
+  synchronized long getPauseNanos() {
+    return Math.max(0, pausedUntilNanos - System.nanoTime());
+  }
+
+  /** Waits until the pause requested by the last throttled response is over. */
+  void awaitPause() throws InterruptedException {
+    long pauseNanos;
+    while ((pauseNanos = getPauseNanos()) > 0) {
+      TimeUnit.NANOSECONDS.sleep(pauseNanos);
+    }
+  }
+
+  /**
+   * Adapts the limits to a response of the server.
+   *
+   * @param status the HTTP status of the response
+   * @param latencyNanos the time between the end of the stream and the response
+   * @param retryAfterMillis the pause the server asked for, or -1
+   */
+  synchronized void onResponse(int status, long latencyNanos, long retryAfterMillis) {
+    long now = System.nanoTime();
+    if (isThrottled(status)) {
+      decrease(now);
+      long pauseMillis = retryAfterMillis;
+      if (pauseMillis < 0) {
+        pauseMillis = MIN_PAUSE_MILLIS << Math.min(throttledInARow, 16);
+      }
+      throttledInARow++;
+      long pausedUntil =
+          now + TimeUnit.MILLISECONDS.toNanos(Math.min(pauseMillis, MAX_PAUSE_MILLIS));
+      if (pausedUntil - pausedUntilNanos > 0) {
+        pausedUntilNanos = pausedUntil;
+      }
+      return;
+    }
+    throttledInARow = 0;
+    if (latencyNanos > targetLatencyNanos) {
+      decrease(now);
+    } else if (status == HttpStatus.OK_200) {
+      streamLimit = Math.min(maxStreams, streamLimit + 1 / streamLimit);
+      batchSize = Math.min(MAX_BATCH_SIZE, batchSize * 2);
+    }
+  }
+
+  private void decrease(long now) {
+    if (now - lastDecreaseNanos < targetLatencyNanos) {
+      // the other streams that are answered now were sent with the same limits
+      return;
+    }
+    lastDecreaseNanos = now;
+    streamLimit = Math.max(1, Math.floor(streamLimit / 2));
+    batchSize = Math.max(1, batchSize / 2);
+  }
+
+  static boolean isThrottled(int status) {
+    return status == HttpStatus.TOO_MANY_REQUESTS_429
+        || status == HttpStatus.SERVICE_UNAVAILABLE_503;
+  }
+
+  /**
+   * Parses the value of a Retry-After header in seconds, returns -1 if there is none. HTTP dates
+   * are not supported, and are handled like a missing header.
+   */
+  static long parseRetryAfterMillis(String retryAfter) {
+    if (retryAfter != null) {
+      try {
+        return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+      } catch (NumberFormatException e) {
+        // an HTTP date
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.util.URLUtil;
+
+/**
+ * Orders replicas by how fast the nodes hosting them currently answer, so that a node that is slow
+ * because of a GC pause, heavy merging or a hot shard gets fewer requests until it recovers.
+ *
+ * <p>The transformer is shared by all the requests of a client, which reports to it the requests it
+ * sends with {@link #onRequest(String)} and their outcome with {@link #onResponse(String, long,
+ * long, boolean)}. For each node, it keeps a moving average of the response time, of the service
+ * time reported by the node, and of the error rate, as well as the number of outstanding requests.
+ * The nodes are ranked like in C3 (Suresh et al., NSDI 2015): {@code R - S + q^3 * S}, where R is
+ * the response time, S the service time and q is 1 plus the number of outstanding requests. The
+ * cubic term steers requests away from a node as soon as they queue up on it, before its average
+ * response time has caught up.
+ *
+ * <p>Nodes whose error rate is above {@link #MAX_ERROR_RATE} come last. Nodes the client knows
+ * nothing about come first, so that they are tried. The averages of a node decay while it gets no
+ * response, so that a node that was slow is eventually tried again. Replicas that rank the same are
+ * shuffled.
+ */
+public class AdaptiveReplicaListTransformer implements ReplicaListTransformer {
+
+  /** The weight of a new sample in the moving averages. */
+  static final double ALPHA = 0.2;
+
+  /** The error rate above which a node is considered unhealthy. */
+  static final double MAX_ERROR_RATE = 0.5;
+
+  /** The time after which the averages of a node that got no response are halved. */
+  static final long HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  /** The lowest service time used in the score, so that outstanding requests always count. */
+  static final long MIN_SERVICE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Random r;
+  private final Map<String, NodeStats> nodes = new ConcurrentHashMap<>();
+
+  public AdaptiveReplicaListTransformer(Random r) {
+    this.r = r;
+  }
+
+  /**
+   * Records a request sent to a replica.
+   *
+   * @param url the URL of the replica, or of its node
+   */
+  public void onRequest(String url) {
+    nodes.computeIfAbsent(getNodeKey(url), k -> new NodeStats()).onRequest();
+  }
+
+  /**
+   * Records the outcome of a request previously recorded with {@link #onRequest(String)}.
+   *
+   * @param url the URL of the replica, or of its node
+   * @param responseNanos the time from sending the request to getting the response, or -1 if the
+   *     request was cancelled
+   * @param serviceNanos the time the node reported it spent on the request, or -1
+   * @param failed whether the request failed
+   */
+  public void onResponse(String url, long responseNanos, long serviceNanos, boolean failed) {
+    nodes
+        .computeIfAbsent(getNodeKey(url), k -> new NodeStats())
+        .onResponse(responseNanos, serviceNanos, failed, System.nanoTime());
+  }
+
+  @Override
+  public <T> void transform(List<T> choices) {
+    if (choices.size() > 1) {
+      Collections.shuffle(choices, r);
+      long now = System.nanoTime();
+      List<ScoredChoice<T>> scoredChoices = new ArrayList<>(choices.size());
+      for (T choice : choices) {
+        NodeStats stats = nodes.get(getNodeKey(choice));
+        scoredChoices.add(
+            stats == null
+                ? new ScoredChoice<>(choice, true, 0)
+                : new ScoredChoice<>(choice, stats.isHealthy(now), stats.getScore(now)));
+      }
+      // a stable sort, replicas that rank the same stay shuffled
+      scoredChoices.sort(SCORED_CHOICE_COMPARATOR);
+      ListIterator<T> iter = choices.listIterator();
+      for (ScoredChoice<T> scoredChoice : scoredChoices) {
+        iter.next();
+        iter.set(scoredChoice.choice);
+      }
+    }
+  }
+
+  /**
+   * Passes the statistics of each node to the consumer: its score, its average response and
+   * service times in milliseconds, its error rate and its number of outstanding requests.
+   */
+  public void forEachNode(BiConsumer<String, Map<String, Object>> consumer) {
+    long now = System.nanoTime();
+    nodes.forEach((node, stats) -> consumer.accept(node, stats.toMap(now)));
+  }
+
+  /** The nodes are identified by their base URL without its scheme. */
+  private static String getNodeKey(Object choice) {
+    if (choice instanceof Replica) {
+      return URLUtil.removeScheme(((Replica) choice).getBaseUrl());
+    } else if (choice instanceof String) {
+      String url = (String) choice;
+      return URLUtil.removeScheme(URLUtil.isBaseUrl(url) ? url : URLUtil.extractBaseUrl(url));
+    } else {
+      throw new IllegalArgumentException("can't handle type " + choice.getClass());
+    }
+  }
+
+  private static final class NodeStats {
+    private int outstanding;
+    private double responseNanos;
+    private double serviceNanos;
+    private double errorRate;
+    private long updatedAtNanos;
+    private boolean hasResponse;
+
+    synchronized void onRequest() {
+      outstanding++;
+    }
+
+    synchronized void onResponse(long response, long service, boolean failed, long now) {
+      outstanding = Math.max(0, outstanding - 1);
+      if (response < 0 && !failed) {
+        // cancelled, says nothing about the node
+        return;
+      }
+      double decay = getDecay(now);
+      errorRate = average(errorRate * decay, failed ? 1 : 0);
+      if (!failed) {
+        if (hasResponse) {
+          responseNanos = average(responseNanos * decay, response);
+          if (service >= 0) {
+            serviceNanos = average(serviceNanos * decay, service);
+          }
+        } else {
+          responseNanos = response;
+          serviceNanos = Math.max(0, service);
+          hasResponse = true;
+        }
+      }
+      updatedAtNanos = now;
+    }
+
+    synchronized boolean isHealthy(long now) {
+      return errorRate * getDecay(now) <= MAX_ERROR_RATE;
+    }
+
+    synchronized double getScore(long now) {
+      double decay = getDecay(now);
+      double response = responseNanos * decay;
+      double service = Math.max(MIN_SERVICE_NANOS, serviceNanos * decay);
+      double queue = 1 + outstanding;
+      return Math.max(0, response - service) + queue * queue * queue * service;
+    }
+
+    synchronized Map<String, Object> toMap(long now) {
+      double decay = getDecay(now);
+      return Map.of(
+          "score",
+          getScore(now) / TimeUnit.MILLISECONDS.toNanos(1),
+          "responseTimeMs",
+          responseNanos * decay / TimeUnit.MILLISECONDS.toNanos(1),
+          "serviceTimeMs",
+          serviceNanos * decay / TimeUnit.MILLISECONDS.toNanos(1),
+          "errorRate",
+          errorRate * decay,
+          "outstanding",
+          outstanding);
+    }
+
+    private double getDecay(long now) {
+      if (updatedAtNanos == 0) {
+        return 1;
+      }
+      return Math.pow(0.5, (double) (now - updatedAtNanos) / HALF_LIFE_NANOS);
+    }
+
+    private static double average(double average, double sample) {
+      return average + ALPHA * (sample - average);
+    }
+  }
+
+  private static final class ScoredChoice<T> {
+    private final T choice;
+    private final boolean healthy;
+    private final double score;
+
+    private ScoredChoice(T choice, boolean healthy, double score) {
+      this.choice = choice;
+      this.healthy = healthy;
+      this.score = score;
+    }
+  }
+
+  private static final Comparator<ScoredChoice<?>> SCORED_CHOICE_COMPARATOR =
+      Comparator.<ScoredChoice<?>, Boolean>comparing(c -> !c.healthy)
+          .thenComparingDouble(c -> c.score);
+}
@@ -90,6 +90,9 @@ public interface ShardParams {
   /** Value denoting stable replica sort */
   String REPLICA_STABLE = "stable";
 
+  /** Value denoting latency-aware replica sort */
+  String REPLICA_ADAPTIVE = "adaptive";
+
   /** configure dividend param for stable replica sort */
   String ROUTING_DIVIDEND = "dividend";
 
@@ -98,9 +101,33 @@ public interface ShardParams {
 
   String _ROUTE_ = "_route_";
 
-  /** Force a single-pass distributed query? (true/false) */
+  /** Force a single-pass distributed query? (true/false/auto) */
   String DISTRIB_SINGLE_PASS = "distrib.singlePass";
 
+  /** Value of {@link #DISTRIB_SINGLE_PASS} to use a single pass for small result pages only */
+  String DISTRIB_SINGLE_PASS_AUTO = "auto";
+
+  /**
+   * The maximum number of documents all the shards may return for {@link
+   * #DISTRIB_SINGLE_PASS_AUTO} to choose a single pass.
+   */
+  String DISTRIB_SINGLE_PASS_MAX_DOCS = "distrib.singlePass.maxDocs";
+
+  /**
+   * The maximum estimated size in bytes of the documents all the shards may return for {@link
+   * #DISTRIB_SINGLE_PASS_AUTO} to choose a single pass.
+   */
+  String DISTRIB_SINGLE_PASS_MAX_BYTES = "distrib.singlePass.maxBytes";
+
+  /**
+   * Use the merged responses cached on the node coordinating a distributed request, if the core
+   * has a <code>distribResultCache</code>? (true/false)
+   */
+  String DISTRIB_RESULT_CACHE = "distrib.resultCache";
+
+  /** The age in milliseconds after which a cached merged response is not used anymore. */
+  String DISTRIB_RESULT_CACHE_MAX_AGE = "distrib.resultCache.maxAge";
+
   /**
    * Throw an error from search requests when the {@value ShardParams#SHARDS_TOLERANT} param has
    * this value and ZooKeeper is not connected.
@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.apache.solr.common.SolrDocument;
+
+/**
+ * A {@link JavaBinCodec} that decodes the field values of the documents it reads only when they are
+ * accessed. The whole input is read into a single byte array, and each document only keeps the
+ * names of its fields and the offsets of their values in that array. This saves most of the
+ * allocations of parsing a response when the application only reads a few fields of each document,
+ * or only a few of the documents, at the cost of keeping the bytes of the response in memory for as
+ * long as one of its documents is.
+ *
+ * <p>The field values are decoded by a decoder of the accessing thread, so that its buffers are
+ * reused across documents and responses. Once decoded, a value replaces the offset in the document,
+ * which then behaves like any other {@link SolrDocument}. The documents can be read from any
+ * thread, but must not be modified concurrently, like other documents.
+ */
+public class LazyJavaBinCodec extends JavaBinCodec {
+
+  private static final ThreadLocal<FieldDecoder> FIELD_DECODERS =
+      ThreadLocal.withInitial(FieldDecoder::new);
+
+  private final StringCache stringCache;
+  private final List<CharSequence> externStrings = new ArrayList<>();
+  private byte[] buf;
+
+  public LazyJavaBinCodec() {
+    this(null);
+  }
+
+  public LazyJavaBinCodec(StringCache stringCache) {
+    super(null, stringCache);
+    this.stringCache = stringCache;
+  }
+
+  @Override
+  public Object unmarshal(InputStream is) throws IOException {
+    return unmarshal(is.readAllBytes());
+  }
+
+  @Override
+  public Object unmarshal(byte[] buf) throws IOException {
+    this.buf = buf;
+    return super.unmarshal(buf);
+  }
+
+  @Override
+  public SolrDocument readSolrDocument(DataInputInputStream dis) throws IOException {
+    if (!(dis instanceof FastInputStream fis) || fis.getBuffer() != buf || fis.in != null) {
+      // not reading from the array of the response, the offsets would be meaningless
+      return super.readSolrDocument(dis);
+    }
+    tagByte = dis.readByte();
+    int size = readSize(dis);
+    LazyFieldMap fields = new LazyFieldMap(size, this);
+    SolrDocument doc = new SolrDocument(fields);
+    for (int i = 0; i < size; i++) {
+      Object obj = readVal(dis); // could be a field name, or a child document
+      if (obj instanceof SolrDocument) {
+        doc.addChildDocument((SolrDocument) obj);
+        continue;
+      }
+      fields.putPending((String) obj, fis.getPositionInBuffer());
+      skipVal(dis);
+    }
+    return doc;
+  }
+
+  @Override
+  public CharSequence readExternString(DataInputInputStream fis) throws IOException {
+    int idx = readSize(fis);
+    if (idx != 0) { // idx != 0 is the index of the extern string
+      return externStrings.get(idx - 1);
+    } else { // idx == 0 means it has a string value
+      tagByte = fis.readByte();
+      CharSequence s = readStr(fis, stringCache, false);
+      if (s != null) s = s.toString();
+      externStrings.add(s);
+      return s;
+    }
+  }
+
+  private Object decodeField(int offset) {
+    try {
+      return FIELD_DECODERS.get().decode(buf, offset, externStrings, stringCache);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Moves past the next value without building it. The extern strings it defines are still
+   * remembered, since the values read after it may refer to them.
+   *
+   * @return the tag of the value
+   */
+  private byte skipVal(DataInputInputStream dis) throws IOException {
+    final byte tag = dis.readByte();
+    tagByte = tag;
+    switch (tag >>> 5) {
+      case STR >>> 5:
+        dis.skipBytes(readSize(dis));
+        return tag;
+      case SINT >>> 5:
+        readSmallInt(dis);
+        return tag;
+      case SLONG >>> 5:
+        readSmallLong(dis);
+        return tag;
+      case ARR >>> 5:
+        skipVals(dis, readSize(dis));
+        return tag;
+      case ORDERED_MAP >>> 5:
+      case NAMED_LST >>> 5:
+        skipVals(dis, 2 * readSize(dis));
+        return tag;
+      case EXTERN_STRING >>> 5:
+        readExternString(dis);
+        return tag;
+    }
+
+    switch (tag) {
+      case NULL:
+      case BOOL_TRUE:
+      case BOOL_FALSE:
+      case END:
+        return tag;
+      case BYTE:
+        dis.skipBytes(1);
+        return tag;
+      case SHORT:
+        dis.skipBytes(2);
+        return tag;
+      case INT:
+      case FLOAT:
+        dis.skipBytes(4);
+        return tag;
+      case DATE:
+      case LONG:
+      case DOUBLE:
+        dis.skipBytes(8);
+        return tag;
+      case MAP:
+        skipVals(dis, 2 * readVInt(dis));
+        return tag;
+      case SOLRDOC:
+        tagByte = dis.readByte();
+        int size = readSize(dis);
+        for (int i = 0; i < size; i++) {
+          if (skipVal(dis) != SOLRDOC) { // a child document has no value
+            skipVal(dis);
+          }
+        }
+        return tag;
+      case SOLRDOCLST:
+      case ENUM_FIELD_VALUE:
+      case MAP_ENTRY:
+        skipVals(dis, 2);
+        return tag;
+      case BYTEARR:
+        dis.skipBytes(readVInt(dis));
+        return tag;
+      case ITERATOR:
+        while (skipVal(dis) != END) {
+          // the items are skipped by the condition
+        }
+        return tag;
+      case MAP_ENTRY_ITER:
+        while (skipVal(dis) != END) {
+          skipVal(dis);
+        }
+        return tag;
+      case SOLRINPUTDOC:
+        skipSolrInputDocument(dis);
+        return tag;
+      case PRIMITIVE_ARR:
+        skipPrimitiveArray(dis);
+        return tag;
+    }
+
+    throw new RuntimeException("Unknown type " + tag);
+  }
+
+  private void skipVals(DataInputInputStream dis, int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      skipVal(dis);
+    }
+  }
+
+  private void skipSolrInputDocument(DataInputInputStream dis) throws IOException {
+    int size = readVInt(dis);
+    skipVal(dis); // document boost
+    for (int i = 0; i < size; i++) {
+      byte tag = skipVal(dis); // could be a boost, a field name, or a child document
+      if (tag == FLOAT) {
+        skipVals(dis, 2);
+      } else if (tag != SOLRINPUTDOC) {
+        skipVal(dis);
+      }
+    }
+  }
+
+  private void skipPrimitiveArray(DataInputInputStream dis) throws IOException {
+    byte type = dis.readByte();
+    int len = readVInt(dis);
+    switch (type) {
+      case FLOAT:
+      case INT:
+        dis.skipBytes(4 * len);
+        break;
+      case LONG:
+      case DOUBLE:
+        dis.skipBytes(8 * len);
+        break;
+      case SHORT:
+        dis.skipBytes(2 * len);
+        break;
+      case BOOL_TRUE:
+      case BOOL_FALSE:
+      case BYTE:
+        dis.skipBytes(len);
+        break;
+      default:
+        throw new RuntimeException("Invalid type : " + type);
+    }
+  }
+
+  /** The offset of a field value that was not decoded yet. */
+  private static final class PendingValue {
+    private final int offset;
+
+    private PendingValue(int offset) {
+      this.offset = offset;
+    }
+  }
+
+  /**
+   * The fields of a document, which decodes each value the first time it is read. The methods that
+   * expose all the values decode them all.
+   */
+  private static final class LazyFieldMap extends LinkedHashMap<String, Object> {
+    private final transient LazyJavaBinCodec codec;
+    private boolean decoded;
+
+    private LazyFieldMap(int size, LazyJavaBinCodec codec) {
+      super((int) (size / 0.75f) + 1);
+      this.codec = codec;
+    }
+
+    @Override
+    public synchronized Object get(Object key) {
+      Object value = super.get(key);
+      if (value instanceof PendingValue pending) {
+        value = codec.decodeField(pending.offset);
+        super.put((String) key, value); // not a structural modification
+      }
+      return value;
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+      return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    private void putPending(String key, int offset) {
+      super.put(key, new PendingValue(offset));
+    }
+
+    // the methods below decode the value of the key first, so that they never return or compare a
+    // PendingValue
+
+    @Override
+    public Object put(String key, Object value) {
+      get(key);
+      return super.put(key, value);
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+      get(key);
+      return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+      get(key);
+      return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+      get(key);
+      return super.remove(key, value);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+      get(key);
+      return super.replace(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+      get(key);
+      return super.replace(key, oldValue, newValue);
+    }
+
+    private synchronized void decodeAll() {
+      if (!decoded) {
+        for (Map.Entry<String, Object> entry : super.entrySet()) {
+          if (entry.getValue() instanceof PendingValue pending) {
+            entry.setValue(codec.decodeField(pending.offset));
+          }
+        }
+        decoded = true;
+      }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+      decodeAll();
+      return super.entrySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+      decodeAll();
+      return super.values();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+      decodeAll();
+      return super.containsValue(value);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+      decodeAll();
+      super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+      decodeAll();
+      super.replaceAll(function);
+    }
+
+    @Override
+    public Object computeIfAbsent(
+        String key, Function<? super String, ? extends Object> mappingFunction) {
+      decodeAll();
+      return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(
+        String key, BiFunction<? super String, ? super Object, ? extends Object> remapping) {
+      decodeAll();
+      return super.computeIfPresent(key, remapping);
+    }
+
+    @Override
+    public Object compute(
+        String key, BiFunction<? super String, ? super Object, ? extends Object> remapping) {
+      decodeAll();
+      return super.compute(key, remapping);
+    }
+
+    @Override
+    public Object merge(
+        String key,
+        Object value,
+        BiFunction<? super Object, ? super Object, ? extends Object> remapping) {
+      decodeAll();
+      return super.merge(key, value, remapping);
+    }
+
+    /** Serialized as a plain map, the bytes of the response are not part of it */
+    private Object writeReplace() {
+      return new LinkedHashMap<>(this);
+    }
+  }
+
+  /** Decodes single values out of the bytes of a response. */
+  private static final class FieldDecoder extends JavaBinCodec {
+    private List<CharSequence> externStrings;
+    private StringCache stringCache;
+
+    Object decode(
+        byte[] buf, int offset, List<CharSequence> externStrings, StringCache stringCache)
+        throws IOException {
+      this.externStrings = externStrings;
+      this.stringCache = stringCache;
+      try {
+        return readVal(new FastInputStream(null, buf, offset, buf.length));
+      } finally {
+        this.externStrings = null;
+        this.stringCache = null;
+      }
+    }
+
+    @Override
+    public CharSequence readStr(
+        DataInputInputStream dis, StringCache stringCache, boolean readStringAsCharSeq)
+        throws IOException {
+      return super.readStr(
+          dis, stringCache == null ? this.stringCache : stringCache, readStringAsCharSeq);
+    }
+
+    @Override
+    public CharSequence readExternString(DataInputInputStream fis) throws IOException {
+      int idx = readSize(fis);
+      if (idx != 0) {
+        return externStrings.get(idx - 1);
+      } else {
+        // the string was remembered when the value was skipped, it must not be added again
+        tagByte = fis.readByte();
+        CharSequence s = readStr(fis, stringCache, false);
+        return s == null ? null : s.toString();
+      }
+    }
+  }
+}
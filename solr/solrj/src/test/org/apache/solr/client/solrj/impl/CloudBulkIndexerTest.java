@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CloudBulkIndexerTest extends SolrCloudTestCase {
+
+  private static final String COLLECTION = "bulk";
+
+  private static CloudHttp2SolrClient cloudClient;
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    configureCluster(2)
+        .addConfig(
+            "conf",
+            getFile("solrj")
+                .resolve("solr")
+                .resolve("configsets")
+                .resolve("streaming")
+                .resolve("conf"))
+        .configure();
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 3, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(COLLECTION, 3, 3);
+
+    cloudClient =
+        new CloudHttp2SolrClient.Builder(
+                Collections.singletonList(cluster.getZkServer().getZkAddress()), Optional.empty())
+            .build();
+  }
+
+  @AfterClass
+  public static void closeClient() throws Exception {
+    if (cloudClient != null) {
+      cloudClient.close();
+      cloudClient = null;
+    }
+  }
+
+  @Test
+  public void testIndexesAllDocuments() throws Exception {
+    cloudClient.deleteByQuery(COLLECTION, "*:*");
+    AtomicInteger indexed = new AtomicInteger();
+    Map<Object, Throwable> failures = new ConcurrentHashMap<>();
+
+    int numDocs = 1000;
+    try (CloudBulkIndexer indexer =
+        new CloudBulkIndexer.Builder(cloudClient, COLLECTION)
+            .withBatchSize(random().nextInt(100) + 1)
+            .withMaxRequestsPerShard(random().nextInt(3) + 1)
+            .withListener(listener(indexed, failures))
+            .build()) {
+      for (int i = 0; i < numDocs; i++) {
+        indexer.add(sdoc("id", Integer.toString(i), "a_i", i));
+      }
+    }
+
+    assertEquals(Collections.emptyMap(), failures);
+    assertEquals(numDocs, indexed.get());
+    cloudClient.commit(COLLECTION);
+    assertEquals(
+        numDocs, cloudClient.query(COLLECTION, new SolrQuery("*:*")).getResults().getNumFound());
+  }
+
+  @Test
+  public void testReportsFailedDocuments() throws Exception {
+    cloudClient.deleteByQuery(COLLECTION, "*:*");
+    AtomicInteger indexed = new AtomicInteger();
+    Map<Object, Throwable> failures = new ConcurrentHashMap<>();
+
+    try (CloudBulkIndexer indexer =
+        new CloudBulkIndexer.Builder(cloudClient, COLLECTION)
+            .withBatchSize(10)
+            .withListener(listener(indexed, failures))
+            .build()) {
+      for (int i = 0; i < 100; i++) {
+        indexer.add(sdoc("id", Integer.toString(i), "a_i", i % 25 == 0 ? "not a number" : i));
+      }
+      // a document that can't be routed
+      indexer.add(sdoc("a_i", 1));
+    }
+
+    // the streaming configset is tolerant, the other documents of a batch are indexed
+    assertEquals(96, indexed.get());
+    assertEquals(5, failures.size());
+    for (String id : List.of("0", "25", "50", "75")) {
+      assertTrue(failures.get(id).getMessage(), failures.get(id).getMessage().contains("a_i"));
+    }
+    assertTrue(failures.containsKey("no id"));
+    cloudClient.commit(COLLECTION);
+    assertEquals(
+        96, cloudClient.query(COLLECTION, new SolrQuery("*:*")).getResults().getNumFound());
+  }
+
+  private static CloudBulkIndexer.Listener listener(
+      AtomicInteger indexed, Map<Object, Throwable> failures) {
+    return new CloudBulkIndexer.Listener() {
+      @Override
+      public void onSuccess(List<SolrInputDocument> docs) {
+        indexed.addAndGet(docs.size());
+      }
+
+      @Override
+      public void onFailure(SolrInputDocument doc, Throwable error) {
+        Object id = doc.getFieldValue("id");
+        failures.put(id == null ? "no id" : id, error);
+      }
+    };
+  }
+}
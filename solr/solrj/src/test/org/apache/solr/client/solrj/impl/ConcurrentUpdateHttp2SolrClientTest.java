@@ -19,9 +19,13 @@ package org.apache.solr.client.solrj.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.apache.solr.SolrJettyTestBase;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -30,6 +34,7 @@ import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.embedded.JettyConfig;
 import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -42,6 +47,7 @@ public class ConcurrentUpdateHttp2SolrClientTest extends SolrJettyTestBase {
         JettyConfig.builder()
             .withServlet(
                 new ServletHolder(ConcurrentUpdateSolrClientTest.TestServlet.class), "/cuss/*")
+            .withServlet(new ServletHolder(ThrottlingServlet.class), "/throttled/*")
             .build();
     createAndStartJetty(legacyExampleCollection1SolrHome(), jettyConfig);
   }
@@ -117,6 +123,48 @@ public class ConcurrentUpdateHttp2SolrClientTest extends SolrJettyTestBase {
     }
   }
 
+  @Test
+  public void testUpdatesAreSentWhileRunnersWait() throws Exception {
+    ConcurrentUpdateSolrClientTest.TestServlet.clear();
+
+    String serverUrl = getBaseUrl() + "/cuss/foo";
+    // the time the streams of a leader to its replicas wait for more updates by default
+    long pollQueueTimeMillis = 10000;
+
+    try (Http2SolrClient http2Client = new Http2SolrClient.Builder().build();
+        ConcurrentUpdateHttp2SolrClient concurrentClient =
+            new ConcurrentUpdateHttp2SolrClient.Builder(serverUrl, http2Client)
+                .withQueueSize(100)
+                .withThreadCount(4)
+                .setPollQueueTime(pollQueueTimeMillis, TimeUnit.MILLISECONDS)
+                .build()) {
+
+      int numDocs = 100;
+      int numRunnables = 4;
+      ExecutorService threadPool =
+          ExecutorUtil.newMDCAwareFixedThreadPool(
+              numRunnables, new SolrNamedThreadFactory("testCUSS"));
+      for (int r = 0; r < numRunnables; r++) {
+        threadPool.execute(
+            new ConcurrentUpdateSolrClientTest.SendDocsRunnable(
+                String.valueOf(r), numDocs, concurrentClient));
+      }
+      threadPool.shutdown();
+      assertTrue(threadPool.awaitTermination(5, TimeUnit.SECONDS));
+
+      // the runners keep their streams open, but must not hold back the updates they wrote
+      int expectedDocs = numDocs * numRunnables;
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pollQueueTimeMillis / 2);
+      while (ConcurrentUpdateSolrClientTest.TestServlet.numDocsRcvd.get() < expectedDocs
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(expectedDocs, ConcurrentUpdateSolrClientTest.TestServlet.numDocsRcvd.get());
+
+      concurrentClient.shutdownNow();
+    }
+  }
+
   @Test
   public void testCollectionParameters() throws IOException, SolrServerException {
 
@@ -216,6 +264,109 @@ public class ConcurrentUpdateHttp2SolrClientTest extends SolrJettyTestBase {
     }
   }
 
+  @Test
+  public void testAdaptiveFlowControl() throws Exception {
+    ConcurrentUpdateSolrClientTest.TestServlet.clear();
+    ThrottlingServlet.rejections.set(2);
+
+    String serverUrl = getBaseUrl() + "/throttled/foo";
+
+    final AtomicInteger successCounter = new AtomicInteger(0);
+    final AtomicInteger errorCounter = new AtomicInteger(0);
+    final StringBuilder errors = new StringBuilder();
+
+    try (Http2SolrClient http2Client = new Http2SolrClient.Builder().build();
+        ConcurrentUpdateHttp2SolrClient concurrentClient =
+            new OutcomeCountingConcurrentUpdateSolrClient.Builder(
+                    serverUrl, http2Client, successCounter, errorCounter, errors)
+                .withQueueSize(100)
+                .withThreadCount(4)
+                .withAdaptiveFlowControl(10, TimeUnit.SECONDS)
+                .setPollQueueTime(0, TimeUnit.MILLISECONDS)
+                .build()) {
+
+      int numDocs = 100;
+      new ConcurrentUpdateSolrClientTest.SendDocsRunnable("0", numDocs, concurrentClient).run();
+      concurrentClient.blockUntilFinished();
+
+      assertEquals("Expected no errors, due to: " + errors, 0, errorCounter.get());
+      // the updates the server rejected were sent again
+      assertEquals(numDocs, ConcurrentUpdateSolrClientTest.TestServlet.numDocsRcvd.get());
+
+      ConcurrentUpdateHttp2SolrClient.Stats stats = concurrentClient.getStats();
+      assertEquals(2, stats.getThrottledStreams());
+      assertEquals(2, stats.getRetriedStreams());
+      assertEquals(0, stats.getFailedStreams());
+      assertEquals(numDocs, stats.getRequests());
+      assertEquals(numDocs, stats.getDocuments());
+      assertEquals(successCounter.get(), stats.getStreams() - 2);
+      assertTrue(stats.getResponseLatencyMillis() >= 0);
+      assertTrue(concurrentClient.getStreamLimit() <= 4);
+      assertTrue(concurrentClient.getBatchSize() <= UpdateFlowControl.MAX_BATCH_SIZE);
+    }
+  }
+
+  @Test
+  public void testRejectedUpdatesAreReportedWhenInterrupted() throws Exception {
+    ConcurrentUpdateSolrClientTest.TestServlet.clear();
+    ThrottlingServlet.rejections.set(1);
+    // the runner pauses long enough to be interrupted before it sends the updates again
+    ThrottlingServlet.retryAfterSeconds = "10";
+
+    final AtomicInteger successCounter = new AtomicInteger(0);
+    final AtomicInteger errorCounter = new AtomicInteger(0);
+    final StringBuilder errors = new StringBuilder();
+
+    try (Http2SolrClient http2Client = new Http2SolrClient.Builder().build();
+        ConcurrentUpdateHttp2SolrClient concurrentClient =
+            new OutcomeCountingConcurrentUpdateSolrClient.Builder(
+                    getBaseUrl() + "/throttled/foo",
+                    http2Client,
+                    successCounter,
+                    errorCounter,
+                    errors)
+                .withQueueSize(100)
+                .withThreadCount(1)
+                .withAdaptiveFlowControl(10, TimeUnit.SECONDS)
+                .setPollQueueTime(0, TimeUnit.MILLISECONDS)
+                .build()) {
+
+      new ConcurrentUpdateSolrClientTest.SendDocsRunnable("0", 1, concurrentClient).run();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (concurrentClient.getStats().getRetriedStreams() == 0
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, concurrentClient.getStats().getRetriedStreams());
+      concurrentClient.shutdownNow();
+
+      assertEquals("Expected the rejected update to be reported", 1, errorCounter.get());
+      assertTrue(errors.toString(), errors.toString().contains("rejected by the server"));
+      assertEquals(0, ConcurrentUpdateSolrClientTest.TestServlet.numDocsRcvd.get());
+      assertEquals(1, concurrentClient.getStats().getFailedStreams());
+    } finally {
+      ThrottlingServlet.retryAfterSeconds = "0";
+    }
+  }
+
+  /** Rejects the first requests it receives with 429, as a rate limited server would. */
+  public static class ThrottlingServlet extends ConcurrentUpdateSolrClientTest.TestServlet {
+    static final AtomicInteger rejections = new AtomicInteger();
+    static volatile String retryAfterSeconds = "0";
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+        throws ServletException, IOException {
+      if (rejections.getAndDecrement() > 0) {
+        req.getInputStream().transferTo(OutputStream.nullOutputStream());
+        resp.setHeader("Retry-After", retryAfterSeconds);
+        resp.sendError(HttpStatus.TOO_MANY_REQUESTS_429);
+        return;
+      }
+      super.doPost(req, resp);
+    }
+  }
+
   static class OutcomeCountingConcurrentUpdateSolrClient extends ConcurrentUpdateHttp2SolrClient {
     private final AtomicInteger successCounter;
     private final AtomicInteger failureCounter;
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.impl;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.Test;
+
+public class UpdateFlowControlTest extends SolrTestCase {
+
+  private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testGrowsWhileServerIsFast() {
+    UpdateFlowControl flowControl = new UpdateFlowControl(4, TARGET_NANOS);
+    assertEquals(1, flowControl.getStreamLimit());
+    assertEquals(UpdateFlowControl.INITIAL_BATCH_SIZE, flowControl.getBatchSize());
+
+    for (int i = 0; i < 100; i++) {
+      flowControl.onResponse(HttpStatus.OK_200, FAST_NANOS, -1);
+    }
+    assertEquals(4, flowControl.getStreamLimit());
+    assertEquals(UpdateFlowControl.MAX_BATCH_SIZE, flowControl.getBatchSize());
+    assertEquals(0, flowControl.getPauseNanos());
+  }
+
+  @Test
+  public void testShrinksWhenServerIsSlow() {
+    UpdateFlowControl flowControl = new UpdateFlowControl(8, TARGET_NANOS);
+    for (int i = 0; i < 100; i++) {
+      flowControl.onResponse(HttpStatus.OK_200, FAST_NANOS, -1);
+    }
+    assertEquals(8, flowControl.getStreamLimit());
+
+    flowControl.onResponse(HttpStatus.OK_200, 2 * TARGET_NANOS, -1);
+    assertEquals(4, flowControl.getStreamLimit());
+    assertEquals(UpdateFlowControl.MAX_BATCH_SIZE / 2, flowControl.getBatchSize());
+
+    // the streams that were sent with the same limits don't shrink them again
+    flowControl.onResponse(HttpStatus.OK_200, 2 * TARGET_NANOS, -1);
+    assertEquals(4, flowControl.getStreamLimit());
+    assertEquals(0, flowControl.getPauseNanos());
+  }
+
+  @Test
+  public void testPausesWhenThrottled() {
+    UpdateFlowControl flowControl = new UpdateFlowControl(8, TARGET_NANOS);
+    flowControl.onResponse(HttpStatus.TOO_MANY_REQUESTS_429, FAST_NANOS, 2000);
+    assertEquals(1, flowControl.getStreamLimit());
+    assertEquals(UpdateFlowControl.INITIAL_BATCH_SIZE / 2, flowControl.getBatchSize());
+    long pauseNanos = flowControl.getPauseNanos();
+    assertTrue(pauseNanos > TimeUnit.MILLISECONDS.toNanos(1000));
+    assertTrue(pauseNanos <= TimeUnit.MILLISECONDS.toNanos(2000));
+
+    // a shorter pause doesn't end the pause sooner
+    flowControl.onResponse(HttpStatus.SERVICE_UNAVAILABLE_503, FAST_NANOS, 0);
+    assertTrue(flowControl.getPauseNanos() > TimeUnit.MILLISECONDS.toNanos(1000));
+
+    // the server can't make the client pause for longer than the stall time
+    flowControl.onResponse(HttpStatus.TOO_MANY_REQUESTS_429, FAST_NANOS, 3_600_000);
+    assertTrue(
+        flowControl.getPauseNanos()
+            <= TimeUnit.MILLISECONDS.toNanos(UpdateFlowControl.MAX_PAUSE_MILLIS));
+  }
+
+  @Test
+  public void testBacksOffWithoutRetryAfter() {
+    UpdateFlowControl flowControl = new UpdateFlowControl(1, TARGET_NANOS);
+    flowControl.onResponse(HttpStatus.SERVICE_UNAVAILABLE_503, FAST_NANOS, -1);
+    long firstPauseNanos = flowControl.getPauseNanos();
+    assertTrue(firstPauseNanos > 0);
+    assertTrue(
+        firstPauseNanos <= TimeUnit.MILLISECONDS.toNanos(UpdateFlowControl.MIN_PAUSE_MILLIS));
+
+    flowControl.onResponse(HttpStatus.SERVICE_UNAVAILABLE_503, FAST_NANOS, -1);
+    flowControl.onResponse(HttpStatus.SERVICE_UNAVAILABLE_503, FAST_NANOS, -1);
+    assertTrue(
+        flowControl.getPauseNanos()
+            > TimeUnit.MILLISECONDS.toNanos(2 * UpdateFlowControl.MIN_PAUSE_MILLIS));
+  }
+
+  @Test
+  public void testParseRetryAfter() {
+    assertEquals(-1, UpdateFlowControl.parseRetryAfterMillis(null));
+    assertEquals(3000, UpdateFlowControl.parseRetryAfterMillis(" 3"));
+    assertEquals(0, UpdateFlowControl.parseRetryAfterMillis("0"));
+    assertEquals(-1, UpdateFlowControl.parseRetryAfterMillis("Wed, 21 Oct 2015 07:28:00 GMT"));
+  }
+}
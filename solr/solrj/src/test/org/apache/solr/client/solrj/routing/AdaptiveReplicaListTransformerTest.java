@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.cloud.Replica;
+import org.junit.Test;
+
+@SolrTestCaseJ4.SuppressSSL // not useful / needed for this test
+public class AdaptiveReplicaListTransformerTest extends SolrTestCase {
+
+  private static final String FAST = "http://fast:8983/solr/c1_s1_r1";
+  private static final String SLOW = "http://slow:8983/solr/c1_s1_r2";
+  private static final String UNKNOWN = "http://unknown:8983/solr/c1_s1_r3";
+
+  private final AdaptiveReplicaListTransformer transformer =
+      new AdaptiveReplicaListTransformer(random());
+
+  @Test
+  public void testPrefersFasterNode() {
+    respond(FAST, 5, 10);
+    respond(SLOW, 200, 10);
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(List.of(FAST, SLOW), transform(SLOW, FAST));
+    }
+    // a node that was never used is tried first
+    assertEquals(UNKNOWN, transform(SLOW, FAST, UNKNOWN).get(0));
+  }
+
+  @Test
+  public void testAvoidsNodeWithOutstandingRequests() {
+    respond(FAST, 5, 10);
+    respond(SLOW, 10, 10);
+    assertEquals(List.of(FAST, SLOW), transform(SLOW, FAST));
+
+    // the requests queuing up on the fast node make the other one faster
+    transformer.onRequest(FAST);
+    transformer.onRequest(FAST);
+    assertEquals(List.of(SLOW, FAST), transform(SLOW, FAST));
+
+    transformer.onResponse(FAST, -1, -1, false);
+    transformer.onResponse(FAST, -1, -1, false);
+    assertEquals(List.of(FAST, SLOW), transform(SLOW, FAST));
+  }
+
+  @Test
+  public void testFailingNodeComesLast() {
+    respond(FAST, 5, 10);
+    respond(SLOW, 200, 10);
+    for (int i = 0; i < 10; i++) {
+      transformer.onRequest(FAST);
+      transformer.onResponse(FAST, TimeUnit.MILLISECONDS.toNanos(1), -1, true);
+    }
+    assertEquals(List.of(SLOW, FAST), transform(SLOW, FAST));
+  }
+
+  @Test
+  public void testRanksReplicasByNode() {
+    respond(FAST, 5, 10);
+    respond(SLOW, 200, 10);
+    Replica fast = replica("fast:8983_solr", "c1_s1_r4");
+    Replica slow = replica("slow:8983_solr", "c1_s1_r5");
+
+    List<Replica> replicas = new ArrayList<>(List.of(slow, fast));
+    transformer.transform(replicas);
+    assertEquals(List.of(fast, slow), replicas);
+
+    Map<String, Map<String, Object>> stats = new HashMap<>();
+    transformer.forEachNode(stats::put);
+    assertEquals(stats.keySet().toString(), 2, stats.size());
+    assertEquals(0, stats.get("fast:8983/solr").get("outstanding"));
+    assertTrue(
+        (double) stats.get("fast:8983/solr").get("score")
+            < (double) stats.get("slow:8983/solr").get("score"));
+  }
+
+  private void respond(String url, long responseMillis, int times) {
+    for (int i = 0; i < times; i++) {
+      transformer.onRequest(url);
+      transformer.onResponse(
+          url,
+          TimeUnit.MILLISECONDS.toNanos(responseMillis),
+          TimeUnit.MILLISECONDS.toNanos(responseMillis / 2),
+          false);
+    }
+  }
+
+  private List<String> transform(String... urls) {
+    List<String> choices = new ArrayList<>(List.of(urls));
+    transformer.transform(choices);
+    return choices;
+  }
+
+  private static Replica replica(String nodeName, String core) {
+    Map<String, Object> propMap = new HashMap<>();
+    propMap.put("core", core);
+    propMap.put("type", "NRT");
+    propMap.put("node_name", nodeName);
+    propMap.put("base_url", "http://" + nodeName.replace('_', '/'));
+    return new Replica(core, propMap, "c1", "s1");
+  }
+}
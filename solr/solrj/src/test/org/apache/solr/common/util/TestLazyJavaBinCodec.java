@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.impl.JavaBinResponseParser;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Test;
+
+public class TestLazyJavaBinCodec extends SolrTestCase {
+
+  @Test
+  public void testDecodesSameValues() throws Exception {
+    byte[] bytes = marshal(createResponse());
+    NamedList<?> expected = (NamedList<?>) new JavaBinCodec().unmarshal(bytes);
+    NamedList<?> actual = (NamedList<?>) new LazyJavaBinCodec().unmarshal(bytes);
+
+    assertEquals(expected.get("responseHeader"), actual.get("responseHeader"));
+    // an extern string first defined in a document
+    assertEquals(expected.get("facets"), actual.get("facets"));
+    assertEquals(Map.of("color", 3), actual.get("facets"));
+    assertDocsEquals(
+        (SolrDocumentList) expected.get("response"), (SolrDocumentList) actual.get("response"));
+  }
+
+  @Test
+  public void testDecodesFieldsOnAccess() throws Exception {
+    byte[] bytes = marshal(createResponse());
+    NamedList<?> rsp = (NamedList<?>) new LazyJavaBinCodec().unmarshal(bytes);
+    SolrDocumentList docs = (SolrDocumentList) rsp.get("response");
+    assertEquals(3, docs.getNumFound());
+    assertEquals(3, docs.size());
+
+    SolrDocument doc = docs.get(1);
+    assertEquals(List.of("id", "name", "price", "cat", "attrs", "bin", "ints"), names(doc));
+    assertEquals("1", doc.getFieldValue("id"));
+    assertEquals(List.of("cat1", "cat2"), doc.getFieldValues("cat"));
+    assertEquals(1.5f, doc.getFirstValue("price"));
+    assertNull(doc.getFieldValue("missing"));
+    assertTrue(doc.containsKey("name"));
+    assertEquals("none", doc.getOrDefault("missing", "none"));
+    assertEquals("name 1", doc.getOrDefault("name", "none"));
+
+    // the document can still be modified
+    doc.setField("id", "one");
+    doc.addField("cat", "cat3");
+    doc.removeFields("bin");
+    assertEquals("one", doc.getFieldValue("id"));
+    assertEquals(List.of("cat1", "cat2", "cat3"), doc.getFieldValues("cat"));
+    assertEquals(List.of("id", "name", "price", "cat", "attrs", "ints"), names(doc));
+    assertEquals(6, doc.size());
+  }
+
+  @Test
+  public void testModificationsReturnDecodedValues() throws Exception {
+    byte[] bytes = marshal(createResponse());
+    NamedList<?> rsp = (NamedList<?>) new LazyJavaBinCodec().unmarshal(bytes);
+    SolrDocument doc = ((SolrDocumentList) rsp.get("response")).get(1);
+
+    assertEquals("1", doc.remove("id"));
+    assertEquals("name 1", doc.putIfAbsent("name", "other"));
+    assertEquals("name 1", doc.put("name", "other"));
+    assertEquals(1.5f, doc.replace("price", 2.5f));
+    assertTrue(doc.replace("cat", List.of("cat1", "cat2"), List.of("cat3")));
+    assertTrue(doc.remove("ints", doc.getFieldValue("ints")));
+    assertNull(doc.putIfAbsent("id", "one"));
+
+    assertEquals(List.of("name", "price", "cat", "attrs", "bin", "id"), names(doc));
+    assertEquals("other", doc.getFieldValue("name"));
+    assertEquals(2.5f, doc.getFieldValue("price"));
+    assertEquals(List.of("cat3"), doc.getFieldValue("cat"));
+    assertEquals("one", doc.getFieldValue("id"));
+  }
+
+  @Test
+  public void testChildDocuments() throws Exception {
+    byte[] bytes = marshal(createResponse());
+    NamedList<?> rsp = (NamedList<?>) new LazyJavaBinCodec().unmarshal(bytes);
+    SolrDocument doc = ((SolrDocumentList) rsp.get("response")).get(0);
+    assertEquals(1, doc.getChildDocumentCount());
+    SolrDocument child = doc.getChildDocuments().get(0);
+    assertEquals("0-child", child.getFieldValue("id"));
+    assertEquals("name 0", doc.getFieldValue("name"));
+  }
+
+  @Test
+  public void testDecodesFromOtherThread() throws Exception {
+    byte[] bytes = marshal(createResponse());
+    NamedList<?> rsp = (NamedList<?>) new LazyJavaBinCodec().unmarshal(bytes);
+    SolrDocument doc = ((SolrDocumentList) rsp.get("response")).get(2);
+
+    AtomicReference<Object> name = new AtomicReference<>();
+    Thread thread = new Thread(() -> name.set(doc.getFieldValue("name")));
+    thread.start();
+    thread.join();
+    assertEquals("name 2", name.get());
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    byte[] bytes = marshal(createResponse());
+    SolrDocumentList docs =
+        (SolrDocumentList) ((NamedList<?>) new LazyJavaBinCodec().unmarshal(bytes)).get("response");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(docs);
+    }
+    try (ObjectInputStream ois =
+        new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      assertDocsEquals(docs, (SolrDocumentList) ois.readObject());
+    }
+  }
+
+  @Test
+  public void testResponseParser() throws Exception {
+    byte[] bytes = marshal(createResponse());
+    NamedList<Object> expected =
+        new JavaBinResponseParser().processResponse(new ByteArrayInputStream(bytes), null);
+    NamedList<Object> actual =
+        new JavaBinResponseParser()
+            .setLazyDocuments(true)
+            .processResponse(new ByteArrayInputStream(bytes), null);
+    assertDocsEquals(
+        (SolrDocumentList) expected.get("response"), (SolrDocumentList) actual.get("response"));
+  }
+
+  private static NamedList<Object> createResponse() {
+    NamedList<Object> header = new SimpleOrderedMap<>();
+    header.add("status", 0);
+    header.add("QTime", 5);
+
+    SolrDocumentList docs = new SolrDocumentList();
+    docs.setNumFound(3);
+    docs.setStart(0);
+    docs.setMaxScore(1.0f);
+    docs.setNumFoundExact(true);
+    for (int i = 0; i < 3; i++) {
+      SolrDocument doc = new SolrDocument();
+      doc.setField("id", Integer.toString(i));
+      doc.setField("name", "name " + i);
+      doc.setField("price", 1.5f * i);
+      doc.setField("cat", List.of("cat" + i, "cat" + (i + 1)));
+      Map<String, Object> attrs = new LinkedHashMap<>();
+      attrs.put("color", "red");
+      attrs.put("inStock", i % 2 == 0);
+      attrs.put("date", new Date(1000L * i));
+      attrs.put("popularity", (long) i << 40);
+      attrs.put("input", new SolrInputDocument("id", "in" + i));
+      attrs.put("enum", new EnumFieldValue(i, "enum" + i));
+      doc.setField("attrs", attrs);
+      doc.setField("bin", new byte[] {1, 2, (byte) i});
+      doc.setField("ints", new int[] {i, i + 1});
+      if (i == 0) {
+        SolrDocument child = new SolrDocument();
+        child.setField("id", i + "-child");
+        doc.addChildDocument(child);
+      }
+      docs.add(doc);
+    }
+
+    NamedList<Object> rsp = new NamedList<>();
+    rsp.add("responseHeader", header);
+    rsp.add("response", docs);
+    rsp.add("facets", Map.of("color", 3));
+    return rsp;
+  }
+
+  private static byte[] marshal(Object o) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JavaBinCodec codec = new JavaBinCodec()) {
+      codec.marshal(o, out);
+    }
+    return out.toByteArray();
+  }
+
+  private static List<String> names(SolrDocument doc) {
+    return new ArrayList<>(doc.getFieldNames());
+  }
+
+  private static void assertDocsEquals(List<SolrDocument> expected, List<SolrDocument> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      SolrDocument expectedDoc = expected.get(i);
+      SolrDocument actualDoc = actual.get(i);
+      assertEquals(names(expectedDoc), names(actualDoc));
+      for (String name : expectedDoc.getFieldNames()) {
+        Object expectedValue = expectedDoc.getFieldValue(name);
+        Object actualValue = actualDoc.getFieldValue(name);
+        if (expectedValue instanceof byte[]) {
+          assertArrayEquals((byte[]) expectedValue, (byte[]) actualValue);
+        } else if (expectedValue instanceof int[]) {
+          assertArrayEquals((int[]) expectedValue, (int[]) actualValue);
+        } else {
+          assertEquals(String.valueOf(expectedValue), String.valueOf(actualValue));
+        }
+      }
+      assertEquals(expectedDoc.getChildDocumentCount(), actualDoc.getChildDocumentCount());
+      if (expectedDoc.hasChildDocuments()) {
+        assertDocsEquals(expectedDoc.getChildDocuments(), actualDoc.getChildDocuments());
+      }
+    }
+  }
+}